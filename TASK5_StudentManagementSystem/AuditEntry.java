@@ -0,0 +1,93 @@
+/**
+ * Single audit_log row waiting to be written
+ */
+class AuditEntry {
+    private static final String NULL_MARKER = "\\N";
+    
+    private final int userId;
+    private final String action;
+    private final String tableName;
+    private final Integer recordId;
+    private final String oldValues;
+    private final String newValues;
+    private final String ipAddress;
+    private final String userAgent;
+    private final long timestampMillis;
+    
+    public AuditEntry(int userId, String action, String tableName, Integer recordId,
+                      String oldValues, String newValues, String ipAddress, String userAgent,
+                      long timestampMillis) {
+        this.userId = userId;
+        this.action = action;
+        this.tableName = tableName;
+        this.recordId = recordId;
+        this.oldValues = oldValues;
+        this.newValues = newValues;
+        this.ipAddress = ipAddress;
+        this.userAgent = userAgent;
+        this.timestampMillis = timestampMillis;
+    }
+    
+    String toSpillLine() {
+        return String.join("\t", String.valueOf(userId), escape(action), escape(tableName),
+            recordId == null ? NULL_MARKER : String.valueOf(recordId), escape(oldValues),
+            escape(newValues), escape(ipAddress), escape(userAgent), String.valueOf(timestampMillis));
+    }
+    
+    static AuditEntry fromSpillLine(String line) {
+        String[] parts = line.split("\t", -1);
+        if (parts.length != 9) {
+            System.err.println("Skipping malformed audit spill line");
+            return null;
+        }
+        try {
+            String recordId = unescape(parts[3]);
+            return new AuditEntry(Integer.parseInt(parts[0]), unescape(parts[1]), unescape(parts[2]),
+                recordId == null ? null : Integer.valueOf(recordId), unescape(parts[4]),
+                unescape(parts[5]), unescape(parts[6]), unescape(parts[7]), Long.parseLong(parts[8]));
+        } catch (NumberFormatException e) {
+            System.err.println("Skipping malformed audit spill line: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private static String escape(String value) {
+        if (value == null) {
+            return NULL_MARKER;
+        }
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+    
+    private static String unescape(String value) {
+        if (NULL_MARKER.equals(value)) {
+            return null;
+        }
+        StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                switch (next) {
+                    case 't': result.append('\t'); break;
+                    case 'n': result.append('\n'); break;
+                    case 'r': result.append('\r'); break;
+                    default: result.append(next); break;
+                }
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+    
+    // Getters
+    public int getUserId() { return userId; }
+    public String getAction() { return action; }
+    public String getTableName() { return tableName; }
+    public Integer getRecordId() { return recordId; }
+    public String getOldValues() { return oldValues; }
+    public String getNewValues() { return newValues; }
+    public String getIpAddress() { return ipAddress; }
+    public String getUserAgent() { return userAgent; }
+    public long getTimestampMillis() { return timestampMillis; }
+}
@@ -0,0 +1,357 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asynchronous audit-log pipeline. Callers enqueue entries into a bounded queue
+ * and a background thread inserts them in multi-row batches, one transaction
+ * per batch, so audit I/O stays off the login path.
+ *
+ * Batches go through the WriteTransactionRunner. An entry written from a thread that
+ * already holds the writer (a full BLOCK queue, or after shutdown) therefore joins
+ * that thread's transaction: it commits or rolls back with the caller's work, and a
+ * failed insert is spilled or dropped without touching the caller's transaction.
+ */
+public class AuditLogWriter {
+    /**
+     * What to do when the queue is full
+     */
+    public enum OverflowPolicy {
+        BLOCK,
+        DROP_OLDEST,
+        SPILL_TO_FILE
+    }
+    
+    // 9 bound columns x 100 rows keeps each statement under SQLite's 999-variable limit
+    private static final int MAX_ROWS_PER_STATEMENT = 100;
+    static final DateTimeFormatter SQLITE_TIMESTAMP =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss", Locale.ROOT).withZone(ZoneOffset.UTC);
+    
+    private final ConnectionPool connectionPool;
+    private final WriteTransactionRunner writeTransactions;
+    private final BlockingQueue<AuditEntry> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final OverflowPolicy overflowPolicy;
+    private final Path spillFile;
+    private final Thread writerThread;
+    private final Object spillLock = new Object();
+    private volatile boolean running;
+    
+    // Metrics
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+    
+    public AuditLogWriter(ConnectionPool connectionPool, WriteTransactionRunner writeTransactions,
+                          int queueCapacity, int batchSize, long flushIntervalMillis,
+                          OverflowPolicy overflowPolicy, String spillFile) {
+        this.connectionPool = connectionPool;
+        this.writeTransactions = writeTransactions;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.overflowPolicy = overflowPolicy;
+        this.spillFile = Paths.get(spillFile);
+        
+        this.writerThread = new Thread(this::runWriter, "audit-log-writer");
+        this.writerThread.setDaemon(true);
+    }
+    
+    public void start() {
+        running = true;
+        writerThread.start();
+    }
+    
+    /**
+     * Queue an audit entry. After shutdown the entry is written synchronously.
+     */
+    public void submit(AuditEntry entry) {
+        if (!running) {
+            writeDirect(entry);
+            return;
+        }
+        enqueued.increment();
+        
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                while (!queue.offer(entry)) {
+                    if (queue.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+                break;
+            case SPILL_TO_FILE:
+                if (!queue.offer(entry)) {
+                    spill(List.of(entry));
+                }
+                break;
+            case BLOCK:
+            default:
+                // A caller holding the writer would deadlock the background thread by blocking
+                // here, so the entry joins the caller's transaction instead
+                if (connectionPool.getCurrentWriter() != null) {
+                    if (!queue.offer(entry)) {
+                        writeDirect(entry);
+                    }
+                    break;
+                }
+                try {
+                    queue.put(entry);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    writeDirect(entry);
+                }
+                break;
+        }
+    }
+    
+    private void runWriter() {
+        replaySpillFile();
+        
+        List<AuditEntry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditEntry first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    replaySpillFile();
+                    continue;
+                }
+                batch.add(first);
+                
+                // Flush when the batch is full or the oldest entry has waited flushIntervalMillis
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    AuditEntry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown requested; drain whatever is left below
+                queue.drainTo(batch);
+            }
+            
+            if (!batch.isEmpty()) {
+                writeOrSpill(batch);
+                batch.clear();
+            }
+        }
+    }
+    
+    private void writeOrSpill(List<AuditEntry> batch) {
+        try {
+            writeBatch(batch);
+        } catch (SQLException e) {
+            failedBatches.increment();
+            System.err.println("Failed to write audit batch of " + batch.size() + ": " + e.getMessage());
+            if (overflowPolicy == OverflowPolicy.SPILL_TO_FILE) {
+                spill(batch);
+            } else {
+                dropped.add(batch.size());
+            }
+        }
+    }
+    
+    /**
+     * Insert entries synchronously, bypassing the queue. Called from a thread that holds
+     * the writer, they join its transaction and commit or roll back with the change they
+     * describe; a failure is thrown to the caller instead of being spilled or dropped.
+     */
+    public void writeInTransaction(List<AuditEntry> entries) throws SQLException {
+        if (!entries.isEmpty()) {
+            writeBatch(entries);
+        }
+    }
+    
+    private void writeDirect(AuditEntry entry) {
+        writeOrSpill(List.of(entry));
+    }
+    
+    /**
+     * Insert the batch as multi-row INSERT statements inside a single transaction,
+     * or inside the current thread's transaction if it holds the writer
+     */
+    private void writeBatch(List<AuditEntry> batch) throws SQLException {
+        long start = System.nanoTime();
+        
+        writeTransactions.run(conn -> {
+            PreparedStatement fullChunk = null;
+            try {
+                for (int offset = 0; offset < batch.size(); offset += MAX_ROWS_PER_STATEMENT) {
+                    int rows = Math.min(MAX_ROWS_PER_STATEMENT, batch.size() - offset);
+                    if (rows == MAX_ROWS_PER_STATEMENT) {
+                        if (fullChunk == null) {
+                            fullChunk = conn.prepareStatement(buildInsert(rows));
+                        }
+                        bindAndExecute(fullChunk, batch, offset, rows);
+                    } else {
+                        try (PreparedStatement partial = conn.prepareStatement(buildInsert(rows))) {
+                            bindAndExecute(partial, batch, offset, rows);
+                        }
+                    }
+                }
+            } finally {
+                if (fullChunk != null) {
+                    fullChunk.close();
+                }
+            }
+            return null;
+        });
+        
+        written.add(batch.size());
+        flushLatency.record(System.nanoTime() - start);
+    }
+    
+    private static String buildInsert(int rows) {
+        StringBuilder sql = new StringBuilder(
+            "INSERT INTO audit_log (user_id, action, table_name, record_id, old_values, new_values, ip_address, user_agent, timestamp) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        }
+        return sql.toString();
+    }
+    
+    private static void bindAndExecute(PreparedStatement pstmt, List<AuditEntry> batch,
+                                       int offset, int rows) throws SQLException {
+        int index = 1;
+        for (int i = offset; i < offset + rows; i++) {
+            AuditEntry entry = batch.get(i);
+            pstmt.setInt(index++, entry.getUserId());
+            pstmt.setString(index++, entry.getAction());
+            pstmt.setString(index++, entry.getTableName());
+            pstmt.setObject(index++, entry.getRecordId());
+            pstmt.setString(index++, entry.getOldValues());
+            pstmt.setString(index++, entry.getNewValues());
+            pstmt.setString(index++, entry.getIpAddress());
+            pstmt.setString(index++, entry.getUserAgent());
+            pstmt.setString(index++, SQLITE_TIMESTAMP.format(Instant.ofEpochMilli(entry.getTimestampMillis())));
+        }
+        pstmt.executeUpdate();
+    }
+    
+    // Spill file handling: one tab-separated, escaped entry per line
+    
+    private void spill(List<AuditEntry> entries) {
+        synchronized (spillLock) {
+            try (BufferedWriter writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (AuditEntry entry : entries) {
+                    writer.write(entry.toSpillLine());
+                    writer.newLine();
+                }
+                spilled.add(entries.size());
+            } catch (IOException e) {
+                System.err.println("Failed to spill audit entries: " + e.getMessage());
+                dropped.add(entries.size());
+            }
+        }
+    }
+    
+    /**
+     * Re-insert entries previously spilled to disk, once the queue has room to breathe
+     */
+    private void replaySpillFile() {
+        Path replayFile = Paths.get(spillFile + ".replay");
+        synchronized (spillLock) {
+            if (!Files.exists(spillFile)) {
+                return;
+            }
+            try {
+                Files.move(spillFile, replayFile, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                System.err.println("Failed to rotate audit spill file: " + e.getMessage());
+                return;
+            }
+        }
+        
+        List<AuditEntry> batch = new ArrayList<>(batchSize);
+        try (BufferedReader reader = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                AuditEntry entry = AuditEntry.fromSpillLine(line);
+                if (entry == null) {
+                    continue;
+                }
+                batch.add(entry);
+                if (batch.size() >= batchSize) {
+                    writeOrSpill(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeOrSpill(batch);
+            }
+            Files.delete(replayFile);
+        } catch (IOException e) {
+            System.err.println("Failed to replay audit spill file: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Stop accepting queued entries, flush everything pending and wait for the writer thread
+     */
+    public void shutdown(long timeoutMillis) {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writerThread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            System.err.println("Audit writer did not finish within " + timeoutMillis + "ms, "
+                + queue.size() + " entries pending");
+        }
+    }
+    
+    // Metrics getters
+    public int getQueueDepth() { return queue.size(); }
+    public long getEnqueuedCount() { return enqueued.sum(); }
+    public long getWrittenCount() { return written.sum(); }
+    public long getDroppedCount() { return dropped.sum(); }
+    public long getSpilledCount() { return spilled.sum(); }
+    public long getFailedBatchCount() { return failedBatches.sum(); }
+    public LatencyHistogram getFlushLatency() { return flushLatency; }
+    
+    @Override
+    public String toString() {
+        return "AuditLogWriter[policy=" + overflowPolicy + ", queued=" + getQueueDepth()
+            + ", enqueued=" + getEnqueuedCount() + ", written=" + getWrittenCount()
+            + ", dropped=" + getDroppedCount() + ", spilled=" + getSpilledCount()
+            + ", failedBatches=" + getFailedBatchCount() + "]\n"
+            + "  flush: " + flushLatency;
+    }
+}
@@ -0,0 +1,18 @@
+import java.util.List;
+
+/**
+ * One page of audit entries; nextCursor is null on the last page
+ */
+class AuditPage {
+    private final List<AuditRecord> records;
+    private final Long nextCursor;
+    
+    public AuditPage(List<AuditRecord> records, Long nextCursor) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<AuditRecord> getRecords() { return records; }
+    public Long getNextCursor() { return nextCursor; }
+    public boolean hasMore() { return nextCursor != null; }
+}
@@ -0,0 +1,376 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Monthly partitioning of the audit log. New entries always go into audit_log, which
+ * now only holds the current month: maintenance moves older rows into one table per
+ * month (audit_log_YYYYMM, ids preserved) recorded in the audit_partitions catalog,
+ * and the audit_log_all view unions them for ad hoc queries. Partitions older than
+ * the retention window are exported to gzip-compressed JSON Lines and dropped.
+ *
+ * query() pages newest first by id (a keyset cursor, never OFFSET) and only touches
+ * the partitions whose id and time ranges can contain matching rows.
+ */
+public class AuditPartitionManager {
+    private static final String HOT_TABLE = "audit_log";
+    private static final String COLUMNS =
+        "id, user_id, action, table_name, record_id, old_values, new_values, ip_address, user_agent, timestamp";
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    
+    private final ConnectionPool connectionPool;
+    private final WriteTransactionRunner writeTransactions;
+    private final Path archiveDir;
+    private final int onlineMonths;
+    private final ScheduledExecutorService scheduler;
+    
+    /**
+     * onlineMonths closed months stay queryable in the database before being archived
+     */
+    public AuditPartitionManager(ConnectionPool connectionPool, WriteTransactionRunner writeTransactions,
+                                 Path archiveDir, int onlineMonths) {
+        this.connectionPool = connectionPool;
+        this.writeTransactions = writeTransactions;
+        this.archiveDir = archiveDir;
+        this.onlineMonths = Math.max(0, onlineMonths);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "audit-partitions");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    /**
+     * Rotate and archive now, then every intervalHours
+     */
+    public void schedule(int intervalHours) {
+        if (intervalHours <= 0) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                maintain();
+            } catch (SQLException | IOException | RuntimeException e) {
+                System.err.println("Audit partition maintenance failed: " + e.getMessage());
+            }
+        }, 0, intervalHours, TimeUnit.HOURS);
+    }
+    
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    /**
+     * Move closed months out of the hot table, then archive partitions past the online window
+     */
+    public synchronized void maintain() throws SQLException, IOException {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (YearMonth month : closedMonthsInHotTable(current)) {
+            rotate(month);
+        }
+        for (String[] partition : partitionsToArchive(current.minusMonths(onlineMonths))) {
+            archive(partition[0], partition[1]);
+        }
+    }
+    
+    private List<YearMonth> closedMonthsInHotTable(YearMonth current) throws SQLException {
+        List<YearMonth> months = new ArrayList<>();
+        try (Connection conn = connectionPool.acquireRead();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "SELECT DISTINCT substr(timestamp, 1, 7) FROM audit_log WHERE timestamp < ? ORDER BY 1")) {
+            pstmt.setString(1, monthStart(current));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    months.add(YearMonth.parse(rs.getString(1)));
+                }
+            }
+        }
+        return months;
+    }
+    
+    /**
+     * Move one month from the hot table into its partition in a single transaction.
+     * A month already archived is reopened for late rows (e.g. replayed from the spill file).
+     */
+    private void rotate(YearMonth month) throws SQLException {
+        String table = partitionTable(month);
+        long moved = writeTransactions.run(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                             "id INTEGER PRIMARY KEY," +
+                             "user_id INTEGER," +
+                             "action VARCHAR(100) NOT NULL," +
+                             "table_name VARCHAR(50) NOT NULL," +
+                             "record_id INTEGER," +
+                             "old_values TEXT," +
+                             "new_values TEXT," +
+                             "ip_address VARCHAR(45)," +
+                             "user_agent TEXT," +
+                             "timestamp TIMESTAMP" +
+                             ")");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_" + table + "_user ON " + table + "(user_id, id)");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_" + table + "_action ON " + table + "(action, id)");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_" + table + "_record ON " + table
+                             + "(table_name, record_id, id)");
+            }
+            
+            int rows;
+            String range = " WHERE timestamp >= ? AND timestamp < ?";
+            try (PreparedStatement copy = conn.prepareStatement(
+                     "INSERT INTO " + table + " (" + COLUMNS + ") SELECT " + COLUMNS + " FROM audit_log" + range);
+                 PreparedStatement delete = conn.prepareStatement("DELETE FROM audit_log" + range)) {
+                for (PreparedStatement pstmt : new PreparedStatement[] { copy, delete }) {
+                    pstmt.setString(1, monthStart(month));
+                    pstmt.setString(2, monthStart(month.plusMonths(1)));
+                }
+                rows = copy.executeUpdate();
+                delete.executeUpdate();
+            }
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO audit_partitions (period, table_name, state, row_count, min_id, max_id, " +
+                    "min_timestamp, max_timestamp) " +
+                    "SELECT ?, ?, 'CLOSED', COUNT(*), MIN(id), MAX(id), MIN(timestamp), MAX(timestamp) FROM " + table + " " +
+                    "WHERE 1 = 1 ON CONFLICT (period) DO UPDATE SET state = 'CLOSED', row_count = excluded.row_count, " +
+                    "min_id = excluded.min_id, max_id = excluded.max_id, " +
+                    "min_timestamp = excluded.min_timestamp, max_timestamp = excluded.max_timestamp")) {
+                pstmt.setString(1, month.toString());
+                pstmt.setString(2, table);
+                pstmt.executeUpdate();
+            }
+            rebuildView(conn);
+            return (long) rows;
+        });
+        System.out.println("Rotated " + moved + " audit entries for " + month + " into " + table);
+    }
+    
+    private List<String[]> partitionsToArchive(YearMonth cutoff) throws SQLException {
+        List<String[]> partitions = new ArrayList<>();
+        try (Connection conn = connectionPool.acquireRead();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "SELECT period, table_name FROM audit_partitions WHERE state = 'CLOSED' AND period < ? ORDER BY period")) {
+            pstmt.setString(1, cutoff.toString());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    partitions.add(new String[] { rs.getString(1), rs.getString(2) });
+                }
+            }
+        }
+        return partitions;
+    }
+    
+    /**
+     * Export a partition to JSON Lines and drop it once the file is complete. The drop
+     * checks the row count again, so rows rotated in meanwhile are never lost.
+     */
+    private void archive(String period, String table) throws SQLException, IOException {
+        Files.createDirectories(archiveDir);
+        Path target = archiveDir.resolve(table + ".jsonl.gz");
+        for (int n = 2; Files.exists(target); n++) {
+            target = archiveDir.resolve(table + "-" + n + ".jsonl.gz");
+        }
+        Path partFile = target.resolveSibling(target.getFileName() + ".part");
+        
+        long exported = 0;
+        String[] names = COLUMNS.split(", ");
+        try (Connection conn = connectionPool.acquireRead();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT " + COLUMNS + " FROM " + table + " ORDER BY id");
+             ResultSet rs = pstmt.executeQuery();
+             Writer out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(
+                 new BufferedOutputStream(Files.newOutputStream(partFile), OUTPUT_BUFFER_SIZE), OUTPUT_BUFFER_SIZE),
+                 StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE)) {
+            while (rs.next()) {
+                StudentExporter.writeJsonRow(out, rs, names);
+                exported++;
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            Files.deleteIfExists(partFile);
+            throw e;
+        }
+        Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING);
+        
+        long expected = exported;
+        String fileName = target.getFileName().toString();
+        boolean dropped = writeTransactions.run(conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM " + table);
+                 ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getLong(1) != expected) {
+                    return false;
+                }
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP TABLE " + table);
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "UPDATE audit_partitions SET state = 'ARCHIVED', archive_file = ?, " +
+                    "archived_at = CURRENT_TIMESTAMP WHERE period = ?")) {
+                pstmt.setString(1, fileName);
+                pstmt.setString(2, period);
+                pstmt.executeUpdate();
+            }
+            rebuildView(conn);
+            return true;
+        });
+        
+        if (dropped) {
+            System.out.println("Archived " + exported + " audit entries for " + period + " to " + target);
+        } else {
+            // Late rows arrived while exporting; the next run archives the partition again
+            Files.deleteIfExists(target);
+        }
+    }
+    
+    /**
+     * Recreate audit_log_all over the hot table and every partition still in the database
+     */
+    private static void rebuildView(Connection conn) throws SQLException {
+        StringBuilder view = new StringBuilder("CREATE VIEW audit_log_all AS SELECT " + COLUMNS + " FROM audit_log");
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT table_name FROM audit_partitions WHERE state = 'CLOSED' ORDER BY period");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                view.append(" UNION ALL SELECT ").append(COLUMNS).append(" FROM ").append(rs.getString(1));
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP VIEW IF EXISTS audit_log_all");
+            stmt.execute(view.toString());
+        }
+    }
+    
+    /**
+     * One page of audit entries, newest first. Every filter is optional; from is inclusive
+     * and to exclusive. Pass the previous page's next cursor as beforeId to continue.
+     * Archived months are not searched; they live in the archive files.
+     */
+    public AuditPage query(Integer userId, String action, Instant from, Instant to, Long beforeId, int limit)
+            throws SQLException {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        StringBuilder filter = new StringBuilder(" WHERE 1 = 1");
+        List<Object> parameters = new ArrayList<>();
+        if (userId != null) {
+            filter.append(" AND user_id = ?");
+            parameters.add(userId);
+        }
+        if (action != null && !action.isEmpty()) {
+            filter.append(" AND action = ?");
+            parameters.add(action);
+        }
+        if (from != null) {
+            filter.append(" AND timestamp >= ?");
+            parameters.add(AuditLogWriter.SQLITE_TIMESTAMP.format(from));
+        }
+        if (to != null) {
+            filter.append(" AND timestamp < ?");
+            parameters.add(AuditLogWriter.SQLITE_TIMESTAMP.format(to));
+        }
+        if (beforeId != null) {
+            filter.append(" AND id < ?");
+            parameters.add(beforeId);
+        }
+        
+        List<AuditRecord> records = new ArrayList<>();
+        try (Connection conn = connectionPool.acquireRead()) {
+            List<String[]> sources = new ArrayList<>();
+            sources.add(new String[] { HOT_TABLE, null });
+            sources.addAll(candidatePartitions(conn, from, to, beforeId));
+            
+            for (String[] source : sources) {
+                // Sources are in descending max_id order: once the page is full, a source
+                // whose newest row is older than the page's oldest cannot contribute
+                if (source[1] != null && records.size() >= pageSize
+                    && Long.parseLong(source[1]) < records.get(pageSize - 1).getId()) {
+                    break;
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT " + COLUMNS + " FROM " + source[0]
+                         + filter + " ORDER BY id DESC LIMIT ?")) {
+                    int index = 1;
+                    for (Object parameter : parameters) {
+                        pstmt.setObject(index++, parameter);
+                    }
+                    pstmt.setInt(index, pageSize);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            records.add(readRecord(rs));
+                        }
+                    }
+                }
+                records.sort(Comparator.comparingLong(AuditRecord::getId).reversed());
+                if (records.size() > pageSize) {
+                    records.subList(pageSize, records.size()).clear();
+                }
+            }
+        }
+        
+        Long nextCursor = records.size() == pageSize ? records.get(pageSize - 1).getId() : null;
+        return new AuditPage(records, nextCursor);
+    }
+    
+    /**
+     * Partitions that may hold rows for the filter, as {table, max_id}, newest first
+     */
+    private static List<String[]> candidatePartitions(Connection conn, Instant from, Instant to, Long beforeId)
+            throws SQLException {
+        List<String[]> partitions = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT table_name, max_id FROM audit_partitions WHERE state = 'CLOSED' AND row_count > 0 " +
+                "AND (? IS NULL OR max_timestamp >= ?) AND (? IS NULL OR min_timestamp < ?) " +
+                "AND (? IS NULL OR min_id < ?) ORDER BY max_id DESC")) {
+            String fromText = from != null ? AuditLogWriter.SQLITE_TIMESTAMP.format(from) : null;
+            String toText = to != null ? AuditLogWriter.SQLITE_TIMESTAMP.format(to) : null;
+            pstmt.setString(1, fromText);
+            pstmt.setString(2, fromText);
+            pstmt.setString(3, toText);
+            pstmt.setString(4, toText);
+            pstmt.setObject(5, beforeId);
+            pstmt.setObject(6, beforeId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    partitions.add(new String[] { rs.getString(1), rs.getString(2) });
+                }
+            }
+        }
+        return partitions;
+    }
+    
+    private static AuditRecord readRecord(ResultSet rs) throws SQLException {
+        return new AuditRecord(rs.getLong(1), nullableInt(rs, 2), rs.getString(3), rs.getString(4),
+            nullableInt(rs, 5), rs.getString(6), rs.getString(7), rs.getString(8), rs.getString(9),
+            rs.getString(10));
+    }
+    
+    private static Integer nullableInt(ResultSet rs, int column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+    
+    private static String partitionTable(YearMonth month) {
+        return String.format("audit_log_%04d%02d", month.getYear(), month.getMonthValue());
+    }
+    
+    private static String monthStart(YearMonth month) {
+        return month + "-01 00:00:00";
+    }
+}
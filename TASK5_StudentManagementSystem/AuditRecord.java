@@ -0,0 +1,40 @@
+/**
+ * An audit_log row as read back for display
+ */
+class AuditRecord {
+    private final long id;
+    private final Integer userId;
+    private final String action;
+    private final String tableName;
+    private final Integer recordId;
+    private final String oldValues;
+    private final String newValues;
+    private final String ipAddress;
+    private final String userAgent;
+    private final String timestamp;
+    
+    public AuditRecord(long id, Integer userId, String action, String tableName, Integer recordId,
+                       String oldValues, String newValues, String ipAddress, String userAgent, String timestamp) {
+        this.id = id;
+        this.userId = userId;
+        this.action = action;
+        this.tableName = tableName;
+        this.recordId = recordId;
+        this.oldValues = oldValues;
+        this.newValues = newValues;
+        this.ipAddress = ipAddress;
+        this.userAgent = userAgent;
+        this.timestamp = timestamp;
+    }
+    
+    public long getId() { return id; }
+    public Integer getUserId() { return userId; }
+    public String getAction() { return action; }
+    public String getTableName() { return tableName; }
+    public Integer getRecordId() { return recordId; }
+    public String getOldValues() { return oldValues; }
+    public String getNewValues() { return newValues; }
+    public String getIpAddress() { return ipAddress; }
+    public String getUserAgent() { return userAgent; }
+    public String getTimestamp() { return timestamp; }
+}
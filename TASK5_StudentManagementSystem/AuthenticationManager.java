@@ -1,20 +1,28 @@
 import java.sql.*;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.security.SecureRandom;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public class AuthenticationManager {
     private static AuthenticationManager instance;
     private final DatabaseManager dbManager;
     private final Map<String, UserSession> activeSessions;
     private final SecureRandom secureRandom;
+    private final LoginThrottle loginThrottle;
+    private final SessionExpiryWheel sessionExpiry;
     
     // Session configuration
     public static final int SESSION_TIMEOUT_MINUTES = 30;
     private static final int MAX_LOGIN_ATTEMPTS = 5;
     private static final int LOCKOUT_DURATION_MINUTES = 15;
+    private static final int FAILURE_WINDOW_MINUTES = 15;
+    // One address failing across many accounts is a spray; allow for shared NAT
+    private static final int MAX_IP_FAILURES = 50;
+    private static final int MAX_THROTTLED_KEYS = 100_000;
+    private static final int SESSION_EXPIRY_TICK_SECONDS = 1;
     
     // Role constants
     public static final String ROLE_ADMIN = "ADMIN";
@@ -26,6 +34,17 @@ public class AuthenticationManager {
         this.dbManager = DatabaseManager.getInstance();
         this.activeSessions = new ConcurrentHashMap<>();
         this.secureRandom = new SecureRandom();
+        this.loginThrottle = new LoginThrottle(dbManager, MAX_LOGIN_ATTEMPTS, MAX_IP_FAILURES,
+            TimeUnit.MINUTES.toMillis(FAILURE_WINDOW_MINUTES), TimeUnit.MINUTES.toMillis(LOCKOUT_DURATION_MINUTES),
+            MAX_THROTTLED_KEYS, true);
+        try {
+            loginThrottle.load();
+        } catch (SQLException e) {
+            System.err.println("Failed to restore login lockouts: " + e.getMessage());
+        }
+        this.sessionExpiry = new SessionExpiryWheel(TimeUnit.SECONDS.toNanos(SESSION_EXPIRY_TICK_SECONDS),
+            UserSession.TIMEOUT_NANOS, session -> activeSessions.remove(session.getSessionToken(), session));
+        sessionExpiry.start();
     }
     
     public static synchronized AuthenticationManager getInstance() {
@@ -40,16 +59,16 @@ public class AuthenticationManager {
      */
     public LoginResult authenticateUser(String username, String password, String ipAddress, String userAgent) {
         try {
-            // Check if user is locked out
-            if (isUserLockedOut(username)) {
-                return new LoginResult(false, "Account is temporarily locked due to multiple failed attempts. Please try again later.", null);
+            // Check if user is locked out, before paying for a hash or a query
+            if (isUserLockedOut(username, ipAddress)) {
+                return lockedOutResult();
             }
             
             // Verify credentials
             User user = verifyCredentials(username, password);
             if (user == null) {
                 // Increment failed login attempts
-                incrementFailedLoginAttempts(username);
+                incrementFailedLoginAttempts(username, ipAddress, userAgent);
                 return new LoginResult(false, "Invalid username or password.", null);
             }
             
@@ -65,6 +84,7 @@ public class AuthenticationManager {
             String sessionToken = generateSessionToken();
             UserSession session = new UserSession(user, sessionToken, ipAddress, userAgent);
             activeSessions.put(sessionToken, session);
+            sessionExpiry.schedule(session);
             
             // Update last login time
             updateLastLoginTime(user.getId());
@@ -80,6 +100,28 @@ public class AuthenticationManager {
         }
     }
     
+    /**
+     * authenticateUser on the password hashing pool, so the caller (e.g. the FX thread)
+     * never runs the hash. If the pool is saturated the login fails at once with a
+     * "busy" result rather than queueing behind the others.
+     */
+    public CompletableFuture<LoginResult> authenticateUserAsync(String username, String password,
+                                                                String ipAddress, String userAgent) {
+        if (isUserLockedOut(username, ipAddress)) {
+            return CompletableFuture.completedFuture(lockedOutResult());
+        }
+        return dbManager.getPasswordHashing()
+            .submit(() -> authenticateUser(username, password, ipAddress, userAgent))
+            .exceptionally(e -> {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof RejectedExecutionException) {
+                    return new LoginResult(false, "The server is busy. Please try again in a moment.", null);
+                }
+                System.err.println("Login failed: " + cause.getMessage());
+                return new LoginResult(false, "System error occurred. Please try again later.", null);
+            });
+    }
+    
     /**
      * Verify user credentials against database
      */
@@ -90,56 +132,85 @@ public class AuthenticationManager {
             WHERE username = ? AND is_active = TRUE
         """;
         
-        try (Connection conn = dbManager.getConnection();
+        User user;
+        String storedHash;
+        try (Connection conn = dbManager.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             
             pstmt.setString(1, username);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    String storedHash = rs.getString("password_hash");
-                    
-                    // Verify password hash
-                    if (PasswordHasher.verifyPassword(password, storedHash)) {
-                        User user = new User();
-                        user.setId(rs.getInt("id"));
-                        user.setUsername(rs.getString("username"));
-                        user.setEmail(rs.getString("email"));
-                        user.setRole(rs.getString("role"));
-                        user.setActive(rs.getBoolean("is_active"));
-                        user.setLastLogin(rs.getTimestamp("last_login"));
-                        return user;
-                    }
+                if (!rs.next()) {
+                    return null;
                 }
+                storedHash = rs.getString("password_hash");
+                user = new User();
+                user.setId(rs.getInt("id"));
+                user.setUsername(rs.getString("username"));
+                user.setEmail(rs.getString("email"));
+                user.setRole(rs.getString("role"));
+                user.setActive(rs.getBoolean("is_active"));
+                user.setLastLogin(rs.getTimestamp("last_login"));
             }
         }
         
-        return null;
+        // Hash only after the reader is back in the pool: a slow verify must not starve reads
+        if (!PasswordHasher.verifyPassword(password, storedHash)) {
+            return null;
+        }
+        if (PasswordHasher.needsRehash(storedHash)) {
+            rehashPassword(user.getId(), password, storedHash);
+        }
+        return user;
     }
     
     /**
-     * Check if user account is locked out
+     * Store a verified password again with the current algorithm and cost, hashing before
+     * the writer is taken. Only the hash that was verified is replaced, so a concurrent
+     * password change wins; a failure is logged and retried on the next login.
      */
-    private boolean isUserLockedOut(String username) {
-        // This would typically check a database table for failed login attempts
-        // For now, we'll use a simple in-memory approach
-        return false; // Placeholder implementation
+    private void rehashPassword(int userId, String password, String oldHash) {
+        String newHash = PasswordHasher.hashPassword(password);
+        try {
+            dbManager.inWriteTransaction(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE users SET password_hash = ? WHERE id = ? AND password_hash = ?")) {
+                    pstmt.setString(1, newHash);
+                    pstmt.setInt(2, userId);
+                    pstmt.setString(3, oldHash);
+                    return pstmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println("Failed to upgrade password hash for user " + userId + ": " + e.getMessage());
+        }
     }
     
     /**
-     * Increment failed login attempts
+     * Check if the account or the client address is locked out
      */
-    private void incrementFailedLoginAttempts(String username) {
-        // This would typically update a database table
-        // For now, we'll use a simple in-memory approach
+    private boolean isUserLockedOut(String username, String ipAddress) {
+        return loginThrottle.retryAfterMillis(username, ipAddress) > 0;
+    }
+    
+    private static LoginResult lockedOutResult() {
+        return new LoginResult(false, "Account is temporarily locked due to multiple failed attempts. Please try again later.", null);
+    }
+    
+    /**
+     * Increment failed login attempts for the username and the address
+     */
+    private void incrementFailedLoginAttempts(String username, String ipAddress, String userAgent) {
+        if (loginThrottle.recordFailure(username, ipAddress)) {
+            logLoginActivity(0, "LOGIN_LOCKOUT", ipAddress, userAgent);
+        }
     }
     
     /**
      * Reset failed login attempts
      */
     private void resetFailedLoginAttempts(String username) {
-        // This would typically update a database table
-        // For now, we'll use a simple in-memory approach
+        loginThrottle.recordSuccess(username);
     }
     
     /**
@@ -157,12 +228,12 @@ public class AuthenticationManager {
     private void updateLastLoginTime(int userId) throws SQLException {
         String query = "UPDATE users SET last_login = CURRENT_TIMESTAMP WHERE id = ?";
         
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-            
-            pstmt.setInt(1, userId);
-            pstmt.executeUpdate();
-        }
+        dbManager.inWriteTransaction(conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                pstmt.setInt(1, userId);
+                return pstmt.executeUpdate();
+            }
+        });
     }
     
     /**
@@ -186,9 +257,9 @@ public class AuthenticationManager {
             return null;
         }
         
-        // Check if session has expired
+        // Check if session has expired; the expiry wheel may not have reached it yet
         if (session.isExpired()) {
-            activeSessions.remove(sessionToken);
+            activeSessions.remove(sessionToken, session);
             return null;
         }
         
@@ -216,64 +287,24 @@ public class AuthenticationManager {
     }
     
     /**
-     * Check if user has required permission
+     * Check if user has required permission; allocation-free for a live session
      */
-    public boolean hasPermission(String sessionToken, String requiredPermission) {
+    public boolean hasPermission(String sessionToken, Permission requiredPermission) {
         UserSession session = validateSession(sessionToken);
-        if (session == null) {
-            return false;
-        }
-        
-        User user = session.getUser();
-        return checkPermission(user.getRole(), requiredPermission);
+        return session != null && session.hasPermission(requiredPermission);
     }
     
     /**
-     * Check role-based permissions
+     * Check a permission by name; unknown names are never granted
      */
-    private boolean checkPermission(String userRole, String requiredPermission) {
-        Map<String, Set<String>> rolePermissions = getRolePermissions();
-        
-        Set<String> userPermissions = rolePermissions.get(userRole);
-        if (userPermissions == null) {
+    public boolean hasPermission(String sessionToken, String requiredPermission) {
+        Permission permission;
+        try {
+            permission = Permission.valueOf(requiredPermission);
+        } catch (IllegalArgumentException | NullPointerException e) {
             return false;
         }
-        
-        return userPermissions.contains(requiredPermission) || userPermissions.contains("ALL");
-    }
-    
-    /**
-     * Get role-based permissions mapping
-     */
-    private Map<String, Set<String>> getRolePermissions() {
-        Map<String, Set<String>> permissions = new HashMap<>();
-        
-        // Admin permissions
-        Set<String> adminPermissions = new HashSet<>(Arrays.asList(
-            "ALL", "USER_MANAGEMENT", "STUDENT_MANAGEMENT", "COURSE_MANAGEMENT",
-            "GRADE_MANAGEMENT", "SYSTEM_CONFIGURATION", "AUDIT_LOGS", "REPORTS"
-        ));
-        permissions.put(ROLE_ADMIN, adminPermissions);
-        
-        // Teacher permissions
-        Set<String> teacherPermissions = new HashSet<>(Arrays.asList(
-            "STUDENT_VIEW", "GRADE_MANAGEMENT", "COURSE_VIEW", "REPORTS"
-        ));
-        permissions.put(ROLE_TEACHER, teacherPermissions);
-        
-        // Student permissions
-        Set<String> studentPermissions = new HashSet<>(Arrays.asList(
-            "PROFILE_VIEW", "GRADE_VIEW", "COURSE_VIEW"
-        ));
-        permissions.put(ROLE_STUDENT, studentPermissions);
-        
-        // Staff permissions
-        Set<String> staffPermissions = new HashSet<>(Arrays.asList(
-            "STUDENT_VIEW", "STUDENT_EDIT", "COURSE_VIEW", "REPORTS"
-        ));
-        permissions.put(ROLE_STAFF, staffPermissions);
-        
-        return permissions;
+        return hasPermission(sessionToken, permission);
     }
     
     /**
@@ -291,16 +322,28 @@ public class AuthenticationManager {
     }
     
     /**
-     * Clean up expired sessions
+     * Clean up expired sessions with a full scan. The expiry wheel already removes
+     * them within a tick of their deadline; this is for callers that need it now.
      */
     public void cleanupExpiredSessions() {
         activeSessions.entrySet().removeIf(entry -> entry.getValue().isExpired());
     }
     
     /**
-     * Change user password
+     * changePassword on the password hashing pool; both the check of the current
+     * password and the new hash run there. If the pool is saturated the future fails
+     * with RejectedExecutionException so the caller can report that the server is busy.
      */
-    public boolean changePassword(String sessionToken, String currentPassword, String newPassword) {
+    public CompletableFuture<Boolean> changePasswordAsync(String sessionToken, String currentPassword,
+                                                          String newPassword) {
+        return dbManager.getPasswordHashing()
+            .submit(() -> changePassword(sessionToken, currentPassword, newPassword));
+    }
+    
+    /**
+     * Change user password. Hashes twice, so it only runs on the hashing pool.
+     */
+    private boolean changePassword(String sessionToken, String currentPassword, String newPassword) {
         UserSession session = validateSession(sessionToken);
         if (session == null) {
             return false;
@@ -319,28 +362,20 @@ public class AuthenticationManager {
             // Update password in database
             String query = "UPDATE users SET password_hash = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
             
-            try (Connection conn = dbManager.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(query)) {
-                
-                pstmt.setString(1, newPasswordHash);
-                pstmt.setInt(2, user.getId());
-                
-                int rowsAffected = pstmt.executeUpdate();
-                if (rowsAffected > 0) {
-                    dbManager.commitTransaction();
-                    
-                    // Log password change
-                    logLoginActivity(user.getId(), "PASSWORD_CHANGE", null, null);
-                    return true;
+            int rowsAffected = dbManager.inWriteTransaction(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                    pstmt.setString(1, newPasswordHash);
+                    pstmt.setInt(2, user.getId());
+                    return pstmt.executeUpdate();
                 }
+            });
+            if (rowsAffected > 0) {
+                // Log password change
+                logLoginActivity(user.getId(), "PASSWORD_CHANGE", null, null);
+                return true;
             }
             
         } catch (SQLException e) {
-            try {
-                dbManager.rollbackTransaction();
-            } catch (SQLException rollbackEx) {
-                System.err.println("Failed to rollback transaction: " + rollbackEx.getMessage());
-            }
             System.err.println("Failed to change password: " + e.getMessage());
         }
         
@@ -348,10 +383,20 @@ public class AuthenticationManager {
     }
     
     /**
-     * Create new user account (admin only)
+     * createUser on the password hashing pool, failing the same way as changePasswordAsync
+     * when the pool is saturated
      */
-    public boolean createUser(String sessionToken, String username, String password, String email, String role) {
-        if (!hasPermission(sessionToken, "USER_MANAGEMENT")) {
+    public CompletableFuture<Boolean> createUserAsync(String sessionToken, String username, String password,
+                                                      String email, String role) {
+        return dbManager.getPasswordHashing()
+            .submit(() -> createUser(sessionToken, username, password, email, role));
+    }
+    
+    /**
+     * Create new user account (admin only). Hashes the password, so it only runs on the hashing pool.
+     */
+    private boolean createUser(String sessionToken, String username, String password, String email, String role) {
+        if (!hasPermission(sessionToken, Permission.USER_MANAGEMENT)) {
             return false;
         }
         
@@ -363,125 +408,28 @@ public class AuthenticationManager {
                 VALUES (?, ?, ?, ?, TRUE, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
             """;
             
-            try (Connection conn = dbManager.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(query)) {
-                
-                pstmt.setString(1, username);
-                pstmt.setString(2, passwordHash);
-                pstmt.setString(3, email);
-                pstmt.setString(4, role);
-                
-                int rowsAffected = pstmt.executeUpdate();
-                if (rowsAffected > 0) {
-                    dbManager.commitTransaction();
-                    
-                    // Log user creation
-                    UserSession session = validateSession(sessionToken);
-                    if (session != null) {
-                        logLoginActivity(session.getUser().getId(), "USER_CREATED", null, null);
-                    }
-                    return true;
+            int rowsAffected = dbManager.inWriteTransaction(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                    pstmt.setString(1, username);
+                    pstmt.setString(2, passwordHash);
+                    pstmt.setString(3, email);
+                    pstmt.setString(4, role);
+                    return pstmt.executeUpdate();
+                }
+            });
+            if (rowsAffected > 0) {
+                // Log user creation
+                UserSession session = validateSession(sessionToken);
+                if (session != null) {
+                    logLoginActivity(session.getUser().getId(), "USER_CREATED", null, null);
                 }
+                return true;
             }
             
         } catch (SQLException e) {
-            try {
-                dbManager.rollbackTransaction();
-            } catch (SQLException rollbackEx) {
-                System.err.println("Failed to rollback transaction: " + rollbackEx.getMessage());
-            }
             System.err.println("Failed to create user: " + e.getMessage());
         }
         
         return false;
     }
 }
-
-/**
- * User class representing authenticated user
- */
-class User {
-    private int id;
-    private String username;
-    private String email;
-    private String role;
-    private boolean isActive;
-    private Timestamp lastLogin;
-    
-    // Getters and Setters
-    public int getId() { return id; }
-    public void setId(int id) { this.id = id; }
-    
-    public String getUsername() { return username; }
-    public void setUsername(String username) { this.username = username; }
-    
-    public String getEmail() { return email; }
-    public void setEmail(String email) { this.email = email; }
-    
-    public String getRole() { return role; }
-    public void setRole(String role) { this.role = role; }
-    
-    public boolean isActive() { return isActive; }
-    public void setActive(boolean active) { isActive = active; }
-    
-    public Timestamp getLastLogin() { return lastLogin; }
-    public void setLastLogin(Timestamp lastLogin) { this.lastLogin = lastLogin; }
-}
-
-/**
- * User session class for managing active sessions
- */
-class UserSession {
-    private final User user;
-    private final String sessionToken;
-    private final String ipAddress;
-    private final String userAgent;
-    private LocalDateTime createdAt;
-    private LocalDateTime lastActivity;
-    
-    public UserSession(User user, String sessionToken, String ipAddress, String userAgent) {
-        this.user = user;
-        this.sessionToken = sessionToken;
-        this.ipAddress = ipAddress;
-        this.userAgent = userAgent;
-        this.createdAt = LocalDateTime.now();
-        this.lastActivity = LocalDateTime.now();
-    }
-    
-    public boolean isExpired() {
-        LocalDateTime now = LocalDateTime.now();
-        long minutesSinceLastActivity = ChronoUnit.MINUTES.between(lastActivity, now);
-        return minutesSinceLastActivity > AuthenticationManager.SESSION_TIMEOUT_MINUTES;
-    }
-    
-    public void extendSession() {
-        this.lastActivity = LocalDateTime.now();
-    }
-    
-    // Getters
-    public User getUser() { return user; }
-    public String getSessionToken() { return sessionToken; }
-    public String getIpAddress() { return ipAddress; }
-    public String getUserAgent() { return userAgent; }
-    public LocalDateTime getCreatedAt() { return createdAt; }
-    public LocalDateTime getLastActivity() { return lastActivity; }
-}
-
-/**
- * Login result class for authentication responses
- */
-class LoginResult {
-    private final boolean success;
-    private final String message;
-    private final UserSession session;
-    
-    public LoginResult(boolean success, String message, UserSession session) {
-        this.success = success;
-        this.message = message;
-        this.session = session;
-    }
-    
-    public boolean isSuccess() { return success; }
-    public String getMessage() { return message; }
-    public UserSession getSession() { return session; }
-}
@@ -0,0 +1,433 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Online backups of the live database. A snapshot is taken with VACUUM INTO on a
+ * reader connection: under WAL it reads one consistent view while the writer keeps
+ * committing, so writers are never locked out for the copy. The snapshot is then
+ * gzip-compressed, checksummed (SHA-256 sidecar in sha256sum format), recorded in
+ * backup_history and pruned by age. While a backup runs, a probe commits a small
+ * heartbeat write every 100 ms so the longest writer stall is measured, not assumed.
+ *
+ * VACUUM INTO can only write a file, so the uncompressed copy sits next to the gzip
+ * output until compression finishes: a backup needs free space in the backup
+ * directory of up to twice the database size. This is checked before starting.
+ *
+ * Usage: java -cp ".;sqlite-jdbc-3.50.3.0.jar" BackupManager [backup | verify file | list]
+ */
+public class BackupManager {
+    private static final DateTimeFormatter STAMP_FORMAT =
+        DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+    private static final String SNAPSHOT_SUFFIX = ".db.gz";
+    private static final String CHECKSUM_SUFFIX = ".sha256";
+    private static final long PROBE_INTERVAL_MS = 100;
+    private static final int COPY_BUFFER_SIZE = 1 << 20;
+    
+    private final ConnectionPool connectionPool;
+    private final WriteTransactionRunner writeTransactions;
+    private final Path backupDir;
+    private final String baseName;
+    private final int retentionDays;
+    private final ScheduledExecutorService scheduler;
+    
+    public BackupManager(ConnectionPool connectionPool, WriteTransactionRunner writeTransactions,
+                         Path backupDir, String baseName, int retentionDays) {
+        this.connectionPool = connectionPool;
+        this.writeTransactions = writeTransactions;
+        this.backupDir = backupDir;
+        this.baseName = baseName;
+        this.retentionDays = retentionDays;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-backup");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    /**
+     * Run a backup every intervalHours, starting one interval from now
+     */
+    public void schedule(int intervalHours) {
+        if (intervalHours <= 0) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                backupNow();
+            } catch (Exception e) {
+                System.err.println("Scheduled backup failed: " + e.getMessage());
+            }
+        }, intervalHours, intervalHours, TimeUnit.HOURS);
+    }
+    
+    /**
+     * Take a snapshot now; concurrent calls are serialised. Interrupting the calling
+     * thread cancels the backup at the next step boundary (after the snapshot, during
+     * compression, before the file is published) and removes its scratch files.
+     */
+    public synchronized BackupReport backupNow() throws SQLException, IOException {
+        Files.createDirectories(backupDir);
+        Instant started = Instant.now();
+        String fileName = baseName + "-" + STAMP_FORMAT.format(started) + SNAPSHOT_SUFFIX;
+        Path target = backupDir.resolve(fileName);
+        Path rawSnapshot = backupDir.resolve(fileName + ".tmp");
+        Path partFile = backupDir.resolve(fileName + ".part");
+        checkFreeSpace();
+        long historyId = startHistory(fileName, started);
+        
+        LatencyHistogram writerStalls = new LatencyHistogram();
+        AtomicBoolean probing = new AtomicBoolean(true);
+        Thread probe = new Thread(() -> probeWriter(historyId, writerStalls, probing), "db-backup-probe");
+        probe.setDaemon(true);
+        
+        long startNanos = System.nanoTime();
+        try {
+            Files.deleteIfExists(rawSnapshot);
+            probe.start();
+            try (Connection conn = connectionPool.acquireRead();
+                 PreparedStatement pstmt = conn.prepareStatement("VACUUM INTO ?")) {
+                pstmt.setString(1, rawSnapshot.toString());
+                pstmt.executeUpdate();
+            } finally {
+                probing.set(false);
+                probe.join();
+            }
+            long snapshotNanos = System.nanoTime() - startNanos;
+            throwIfInterrupted();
+            
+            long snapshotBytes = Files.size(rawSnapshot);
+            String sha256 = compress(rawSnapshot, partFile);
+            throwIfInterrupted();
+            Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING);
+            Files.writeString(backupDir.resolve(fileName + CHECKSUM_SUFFIX),
+                              sha256 + "  " + fileName + "\n", StandardCharsets.UTF_8);
+            
+            BackupReport report = new BackupReport(target, snapshotBytes, Files.size(target), sha256,
+                snapshotNanos, System.nanoTime() - startNanos, writerStalls.getMaxMillis());
+            finishHistory(historyId, "COMPLETED", report, null);
+            System.out.println("Backup written: " + report);
+            
+            // The backup is published; a cancel now only skips pruning
+            int pruned = Thread.currentThread().isInterrupted() ? 0 : prune();
+            if (pruned > 0) {
+                System.out.println("Pruned " + pruned + " backups older than " + retentionDays + " days");
+            }
+            return report;
+            
+        } catch (SQLException | IOException | RuntimeException e) {
+            Files.deleteIfExists(partFile);
+            // File channels fail with ClosedByInterruptException when the thread is interrupted
+            if (Thread.currentThread().isInterrupted()) {
+                finishCancelled(historyId);
+            } else {
+                finishHistory(historyId, "FAILED", null, e.getMessage());
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            Files.deleteIfExists(partFile);
+            finishCancelled(historyId);
+            throw new IOException("Backup cancelled", e);
+        } finally {
+            Files.deleteIfExists(rawSnapshot);
+        }
+    }
+    
+    /**
+     * Fail before copying anything if the backup directory cannot hold the raw
+     * snapshot and its compressed copy at the same time. The live page count is an
+     * upper bound for the vacuumed copy, and gzip output never exceeds it by much.
+     */
+    private void checkFreeSpace() throws SQLException, IOException {
+        long databaseBytes;
+        try (Connection conn = connectionPool.acquireRead();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "SELECT page_count * page_size FROM pragma_page_count(), pragma_page_size()")) {
+            databaseBytes = rs.next() ? rs.getLong(1) : 0;
+        }
+        long required = 2 * databaseBytes;
+        long usable = Files.getFileStore(backupDir).getUsableSpace();
+        if (usable < required) {
+            throw new IOException(String.format("Not enough space in %s for a backup: %,d bytes free, %,d needed",
+                backupDir, usable, required));
+        }
+    }
+    
+    /**
+     * Commit a heartbeat write every PROBE_INTERVAL_MS and record how long each
+     * took end to end; the maximum is the worst stall a real writer saw
+     */
+    private void probeWriter(long historyId, LatencyHistogram stalls, AtomicBoolean probing) {
+        while (probing.get()) {
+            long start = System.nanoTime();
+            try {
+                writeTransactions.run(conn -> {
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                             "UPDATE backup_history SET heartbeat_at = CURRENT_TIMESTAMP WHERE id = ?")) {
+                        pstmt.setLong(1, historyId);
+                        return pstmt.executeUpdate();
+                    }
+                });
+            } catch (SQLException e) {
+                System.err.println("Backup writer probe failed: " + e.getMessage());
+            }
+            stalls.record(System.nanoTime() - start);
+            
+            try {
+                Thread.sleep(PROBE_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Gzip the snapshot into target and return the SHA-256 of the compressed bytes
+     */
+    private static String compress(Path source, Path target) throws IOException, InterruptedException {
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = new GZIPOutputStream(
+                 new DigestOutputStream(Files.newOutputStream(target), digest), COPY_BUFFER_SIZE)) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            for (int n; (n = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, n);
+                throwIfInterrupted();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+    
+    private static void throwIfInterrupted() throws InterruptedException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException();
+        }
+    }
+    
+    /**
+     * Restore-verification: check the checksum, decompress to a scratch file and run
+     * PRAGMA integrity_check on it. The live database is never touched.
+     */
+    public VerificationResult verify(Path snapshot) throws IOException {
+        Path checksumFile = snapshot.resolveSibling(snapshot.getFileName() + CHECKSUM_SUFFIX);
+        if (!Files.exists(checksumFile)) {
+            return new VerificationResult(snapshot, false, "Checksum file missing: " + checksumFile.getFileName(), 0);
+        }
+        String expected = Files.readString(checksumFile, StandardCharsets.UTF_8).trim().split("\\s+")[0];
+        
+        Path restored = Files.createTempFile("sms-restore-", ".db");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new GZIPInputStream(
+                     new DigestInputStream(Files.newInputStream(snapshot), digest), COPY_BUFFER_SIZE)) {
+                Files.copy(in, restored, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String actual = HexFormat.of().formatHex(digest.digest());
+            if (!actual.equalsIgnoreCase(expected)) {
+                return new VerificationResult(snapshot, false, "Checksum mismatch: expected " + expected + ", got " + actual, 0);
+            }
+            
+            try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + restored);
+                 Statement stmt = conn.createStatement()) {
+                String integrity;
+                try (ResultSet rs = stmt.executeQuery("PRAGMA integrity_check")) {
+                    integrity = rs.next() ? rs.getString(1) : "no result";
+                }
+                if (!"ok".equalsIgnoreCase(integrity)) {
+                    return new VerificationResult(snapshot, false, "Integrity check failed: " + integrity, 0);
+                }
+                try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM students")) {
+                    long students = rs.next() ? rs.getLong(1) : 0;
+                    return new VerificationResult(snapshot, true, "ok", students);
+                }
+            }
+        } catch (SQLException e) {
+            return new VerificationResult(snapshot, false, "Restored copy could not be opened: " + e.getMessage(), 0);
+        } finally {
+            Files.deleteIfExists(restored);
+        }
+    }
+    
+    /**
+     * Delete snapshots older than the retention period; the newest is always kept
+     */
+    public int prune() throws IOException {
+        if (retentionDays <= 0) {
+            return 0;
+        }
+        List<Path> snapshots = listSnapshots();
+        Instant cutoff = Instant.now().minus(retentionDays, ChronoUnit.DAYS);
+        int pruned = 0;
+        for (int i = 0; i < snapshots.size() - 1; i++) {
+            Path snapshot = snapshots.get(i);
+            Instant taken = snapshotTime(snapshot);
+            if (taken != null && taken.isBefore(cutoff)) {
+                Files.deleteIfExists(snapshot);
+                Files.deleteIfExists(snapshot.resolveSibling(snapshot.getFileName() + CHECKSUM_SUFFIX));
+                pruned++;
+            }
+        }
+        return pruned;
+    }
+    
+    /**
+     * Snapshots in the backup directory, oldest first
+     */
+    public List<Path> listSnapshots() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(backupDir)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(backupDir, baseName + "-*" + SNAPSHOT_SUFFIX)) {
+            for (Path path : dir) {
+                if (snapshotTime(path) != null) {
+                    snapshots.add(path);
+                }
+            }
+        }
+        // The timestamp format sorts chronologically as text
+        Collections.sort(snapshots);
+        return snapshots;
+    }
+    
+    private Instant snapshotTime(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        String stamp = name.substring(baseName.length() + 1, name.length() - SNAPSHOT_SUFFIX.length());
+        try {
+            return Instant.from(STAMP_FORMAT.parse(stamp));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+    
+    private long startHistory(String fileName, Instant started) throws SQLException {
+        return writeTransactions.run(conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                     "INSERT INTO backup_history (file_name, status, started_at) VALUES (?, 'RUNNING', ?)",
+                     Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, fileName);
+                pstmt.setString(2, sqlTimestamp(started));
+                pstmt.executeUpdate();
+                try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                    return rs.next() ? rs.getLong(1) : -1L;
+                }
+            }
+        });
+    }
+    
+    private void finishHistory(long historyId, String status, BackupReport report, String error) {
+        String sql = "UPDATE backup_history SET status = ?, finished_at = ?, snapshot_bytes = ?, " +
+                     "compressed_bytes = ?, sha256 = ?, max_writer_stall_ms = ?, error_message = ? WHERE id = ?";
+        String finishedAt = sqlTimestamp(Instant.now());
+        try {
+            writeTransactions.run(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, status);
+                    pstmt.setString(2, finishedAt);
+                    pstmt.setObject(3, report != null ? report.getSnapshotBytes() : null);
+                    pstmt.setObject(4, report != null ? report.getCompressedBytes() : null);
+                    pstmt.setString(5, report != null ? report.getSha256() : null);
+                    pstmt.setObject(6, report != null ? report.getMaxWriterStallMillis() : null);
+                    pstmt.setString(7, error);
+                    pstmt.setLong(8, historyId);
+                    return pstmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println("Failed to record backup history: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Record a cancelled backup. The writer permit wait is interruptible, so the
+     * interrupt is held back until the history row is written, then restored.
+     */
+    private void finishCancelled(long historyId) {
+        Thread.interrupted();
+        try {
+            finishHistory(historyId, "CANCELLED", null, null);
+        } finally {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static String sqlTimestamp(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC).toLocalDateTime().truncatedTo(ChronoUnit.SECONDS).toString().replace('T', ' ');
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    public static void main(String[] args) throws Exception {
+        String command = args.length > 0 ? args[0] : "backup";
+        BackupManager backupManager = DatabaseManager.getInstance().getBackupManager();
+        
+        switch (command) {
+            case "backup":
+                backupManager.backupNow();
+                break;
+            case "verify":
+                if (args.length < 2) {
+                    List<Path> snapshots = backupManager.listSnapshots();
+                    if (snapshots.isEmpty()) {
+                        System.err.println("No backups found");
+                        System.exit(1);
+                    }
+                    System.out.println(backupManager.verify(snapshots.get(snapshots.size() - 1)));
+                } else {
+                    System.out.println(backupManager.verify(Paths.get(args[1])));
+                }
+                break;
+            case "list":
+                for (Path snapshot : backupManager.listSnapshots()) {
+                    System.out.printf("%s  %,d bytes%n", snapshot.getFileName(), Files.size(snapshot));
+                }
+                break;
+            default:
+                System.err.println("Usage: java BackupManager [backup | verify [file] | list]");
+                System.exit(1);
+        }
+        DatabaseManager.getInstance().closeConnection();
+    }
+}
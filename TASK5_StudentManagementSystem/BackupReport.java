@@ -0,0 +1,45 @@
+import java.nio.file.Path;
+
+/**
+ * Size, checksum and timing of one completed backup
+ */
+class BackupReport {
+    private final Path file;
+    private final long snapshotBytes;
+    private final long compressedBytes;
+    private final String sha256;
+    private final long snapshotNanos;
+    private final long totalNanos;
+    private final double maxWriterStallMillis;
+    
+    public BackupReport(Path file, long snapshotBytes, long compressedBytes, String sha256,
+                        long snapshotNanos, long totalNanos, double maxWriterStallMillis) {
+        this.file = file;
+        this.snapshotBytes = snapshotBytes;
+        this.compressedBytes = compressedBytes;
+        this.sha256 = sha256;
+        this.snapshotNanos = snapshotNanos;
+        this.totalNanos = totalNanos;
+        this.maxWriterStallMillis = maxWriterStallMillis;
+    }
+    
+    public Path getFile() { return file; }
+    public long getSnapshotBytes() { return snapshotBytes; }
+    public long getCompressedBytes() { return compressedBytes; }
+    public String getSha256() { return sha256; }
+    public double getMaxWriterStallMillis() { return maxWriterStallMillis; }
+    
+    /**
+     * Database bytes copied per second while taking the snapshot
+     */
+    public double getThroughputMBps() {
+        return snapshotNanos > 0 ? snapshotBytes / 1048576.0 / (snapshotNanos / 1e9) : 0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s: %,d bytes -> %,d compressed in %.1fs (snapshot %.1f MB/s), max writer stall %.1f ms",
+            file.getFileName(), snapshotBytes, compressedBytes, totalNanos / 1e9,
+            getThroughputMBps(), maxWriterStallMillis);
+    }
+}
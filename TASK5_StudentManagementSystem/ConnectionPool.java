@@ -0,0 +1,428 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded JDBC connection pool shaped for SQLite: a set of auto-commit read
+ * connections plus exactly one writer connection, since SQLite only allows a
+ * single writer at a time. Connections handed out are proxies, so closing them
+ * returns the physical connection to the pool instead of closing it.
+ */
+public class ConnectionPool {
+    private final String url;
+    private final int maxReaders;
+    private final long acquireTimeoutMillis;
+    private final int queryTimeoutSeconds;
+    private final long leakThresholdMillis;
+    private final boolean writerAutoCommit;
+    private final SqlitePragmaProfile pragmaProfile;
+    private final int statementCacheSize;
+    
+    // Reader connections
+    private final BlockingQueue<Connection> idleReaders;
+    private final Semaphore readerPermits;
+    
+    // Single writer connection, re-entrant per thread
+    private final Semaphore writerPermit;
+    private final ThreadLocal<PooledConnectionHandler> currentWriter;
+    private Connection writerConnection;
+    
+    // Prepared statement caches, one per physical connection
+    private final Map<Connection, StatementCache> statementCaches;
+    private final LongAdder statementCacheHits;
+    private final LongAdder statementCacheMisses;
+    private final LongAdder statementCacheEvictions;
+    private volatile QueryMetrics queryMetrics;
+    
+    // Monitoring
+    private final Map<PooledConnectionHandler, Boolean> activeLeases;
+    private final LatencyHistogram readWaitHistogram;
+    private final LatencyHistogram writeWaitHistogram;
+    private final LongAdder acquireTimeouts;
+    private final LongAdder leaksDetected;
+    private final ScheduledExecutorService leakDetector;
+    private volatile boolean closed;
+    
+    public ConnectionPool(String url, int maxConnections, long acquireTimeoutMillis,
+                          int queryTimeoutSeconds, long leakThresholdMillis, boolean writerAutoCommit,
+                          SqlitePragmaProfile pragmaProfile, int statementCacheSize) {
+        this.url = url;
+        this.maxReaders = Math.max(1, maxConnections - 1);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.writerAutoCommit = writerAutoCommit;
+        this.pragmaProfile = pragmaProfile != null ? pragmaProfile : SqlitePragmaProfile.defaults();
+        this.statementCacheSize = statementCacheSize;
+        
+        this.idleReaders = new LinkedBlockingQueue<>();
+        this.readerPermits = new Semaphore(maxReaders, true);
+        this.writerPermit = new Semaphore(1, true);
+        this.currentWriter = new ThreadLocal<>();
+        
+        this.statementCaches = new ConcurrentHashMap<>();
+        this.statementCacheHits = new LongAdder();
+        this.statementCacheMisses = new LongAdder();
+        this.statementCacheEvictions = new LongAdder();
+        
+        this.activeLeases = new ConcurrentHashMap<>();
+        this.readWaitHistogram = new LatencyHistogram();
+        this.writeWaitHistogram = new LatencyHistogram();
+        this.acquireTimeouts = new LongAdder();
+        this.leaksDetected = new LongAdder();
+        
+        if (leakThresholdMillis > 0) {
+            this.leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "db-pool-leak-detector");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(1000, leakThresholdMillis / 2);
+            leakDetector.scheduleAtFixedRate(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.leakDetector = null;
+        }
+    }
+    
+    /**
+     * Borrow a read connection. If the calling thread already holds the writer,
+     * the writer is shared so the caller can read its own uncommitted changes.
+     */
+    public Connection acquireRead() throws SQLException {
+        PooledConnectionHandler writer = currentWriter.get();
+        if (writer != null) {
+            return acquireWrite();
+        }
+        
+        ensureOpen();
+        long start = System.nanoTime();
+        acquirePermit(readerPermits, "read");
+        readWaitHistogram.record(System.nanoTime() - start);
+        
+        Connection physical = idleReaders.poll();
+        try {
+            if (physical == null || physical.isClosed()) {
+                physical = openConnection(true);
+            }
+        } catch (SQLException e) {
+            readerPermits.release();
+            throw e;
+        }
+        return lease(new PooledConnectionHandler(physical, false));
+    }
+    
+    /**
+     * Borrow the single writer connection. Nested calls on the same thread
+     * share the lease; the writer is released when the outermost proxy closes.
+     */
+    public Connection acquireWrite() throws SQLException {
+        PooledConnectionHandler outer = currentWriter.get();
+        if (outer != null) {
+            outer.depth++;
+            return outer.proxy;
+        }
+        
+        ensureOpen();
+        long start = System.nanoTime();
+        acquirePermit(writerPermit, "write");
+        writeWaitHistogram.record(System.nanoTime() - start);
+        
+        try {
+            if (writerConnection == null || writerConnection.isClosed()) {
+                writerConnection = openConnection(false);
+            }
+        } catch (SQLException e) {
+            writerPermit.release();
+            throw e;
+        }
+        
+        PooledConnectionHandler handler = new PooledConnectionHandler(writerConnection, true);
+        currentWriter.set(handler);
+        return lease(handler);
+    }
+    
+    /**
+     * Time every statement and commit made through pooled connections from now on
+     */
+    public void setQueryMetrics(QueryMetrics queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+    
+    public QueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+    
+    /**
+     * Physical writer connection held by the calling thread, or null if none
+     */
+    public Connection getCurrentWriter() {
+        PooledConnectionHandler handler = currentWriter.get();
+        return handler == null ? null : handler.physical;
+    }
+    
+    private void acquirePermit(Semaphore permits, String kind) throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                acquireTimeouts.increment();
+                throw new SQLException("Timed out after " + acquireTimeoutMillis
+                    + "ms waiting for a " + kind + " connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a " + kind + " connection", e);
+        }
+    }
+    
+    protected Connection openConnection(boolean reader) throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try {
+            // Pragmas first: journal_mode can only change outside a transaction
+            pragmaProfile.apply(conn);
+            conn.setAutoCommit(reader || writerAutoCommit);
+        } catch (SQLException e) {
+            closeQuietly(conn);
+            throw e;
+        }
+        return conn;
+    }
+    
+    private Connection lease(PooledConnectionHandler handler) {
+        handler.proxy = (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+        if (leakThresholdMillis > 0) {
+            handler.origin = new Throwable("Connection acquired by " + Thread.currentThread().getName());
+        }
+        activeLeases.put(handler, Boolean.TRUE);
+        return handler.proxy;
+    }
+    
+    private void release(PooledConnectionHandler handler) {
+        if (handler.writer && --handler.depth > 0) {
+            return;
+        }
+        activeLeases.remove(handler);
+        
+        if (handler.writer) {
+            currentWriter.remove();
+            resetOrDiscard(handler.physical, true);
+            writerPermit.release();
+        } else {
+            resetOrDiscard(handler.physical, false);
+            readerPermits.release();
+        }
+    }
+    
+    /**
+     * Roll back anything left uncommitted, as closing a real connection would,
+     * then return the connection to the pool or discard it if it is broken.
+     */
+    private void resetOrDiscard(Connection physical, boolean writer) {
+        try {
+            if (!physical.isClosed() && !physical.getAutoCommit()) {
+                physical.rollback();
+            }
+            if (closed || physical.isClosed()) {
+                discard(physical);
+            } else if (!writer) {
+                idleReaders.offer(physical);
+            }
+        } catch (SQLException e) {
+            System.err.println("Discarding broken pooled connection: " + e.getMessage());
+            discard(physical);
+            if (writer) {
+                writerConnection = null;
+            }
+        }
+    }
+    
+    private void detectLeaks() {
+        long now = System.nanoTime();
+        for (PooledConnectionHandler handler : activeLeases.keySet()) {
+            long heldMillis = TimeUnit.NANOSECONDS.toMillis(now - handler.acquiredAt);
+            if (!handler.leakReported && heldMillis > leakThresholdMillis) {
+                handler.leakReported = true;
+                leaksDetected.increment();
+                System.err.println("Possible connection leak: " + (handler.writer ? "writer" : "reader")
+                    + " connection held for " + heldMillis + "ms");
+                if (handler.origin != null) {
+                    handler.origin.printStackTrace();
+                }
+            }
+        }
+    }
+    
+    private void ensureOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+    }
+    
+    /**
+     * Close a physical connection together with its cached statements
+     */
+    private void discard(Connection conn) {
+        StatementCache cache = statementCaches.remove(conn);
+        if (cache != null) {
+            cache.close();
+        }
+        closeQuietly(conn);
+    }
+    
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing connection: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Close all pooled connections. Connections still on loan are closed when returned.
+     */
+    public void shutdown() {
+        closed = true;
+        if (leakDetector != null) {
+            leakDetector.shutdownNow();
+        }
+        
+        Connection idle;
+        while ((idle = idleReaders.poll()) != null) {
+            discard(idle);
+        }
+        if (writerConnection != null && writerPermit.tryAcquire()) {
+            discard(writerConnection);
+            writerConnection = null;
+            writerPermit.release();
+        }
+    }
+    
+    // Monitoring getters
+    public int getMaxReaders() { return maxReaders; }
+    public SqlitePragmaProfile getPragmaProfile() { return pragmaProfile; }
+    public int getActiveLeaseCount() { return activeLeases.size(); }
+    public int getIdleReaderCount() { return idleReaders.size(); }
+    public long getAcquireTimeoutCount() { return acquireTimeouts.sum(); }
+    public long getLeakCount() { return leaksDetected.sum(); }
+    public LatencyHistogram getReadWaitHistogram() { return readWaitHistogram; }
+    public LatencyHistogram getWriteWaitHistogram() { return writeWaitHistogram; }
+    public long getStatementCacheHits() { return statementCacheHits.sum(); }
+    public long getStatementCacheMisses() { return statementCacheMisses.sum(); }
+    public long getStatementCacheEvictions() { return statementCacheEvictions.sum(); }
+    
+    public double getStatementCacheHitRatio() {
+        long hits = getStatementCacheHits();
+        long total = hits + getStatementCacheMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+    
+    @Override
+    public String toString() {
+        return "ConnectionPool[readers=" + maxReaders + "+1 writer, active=" + getActiveLeaseCount()
+            + ", idleReaders=" + getIdleReaderCount() + ", timeouts=" + getAcquireTimeoutCount()
+            + ", leaks=" + getLeakCount() + "]\n"
+            + String.format("  statements: hits=%d misses=%d evictions=%d (%.1f%% hit)%n",
+                getStatementCacheHits(), getStatementCacheMisses(), getStatementCacheEvictions(),
+                getStatementCacheHitRatio() * 100)
+            + "  read wait:  " + readWaitHistogram + "\n"
+            + "  write wait: " + writeWaitHistogram;
+    }
+    
+    /**
+     * Proxy handler that turns close() into a return to the pool, serves single-argument
+     * prepareStatement calls from the connection's statement cache, applies the query timeout
+     * and wraps statements for query metrics when enabled
+     */
+    private final class PooledConnectionHandler implements InvocationHandler {
+        private final Connection physical;
+        private final boolean writer;
+        private final long acquiredAt;
+        private Connection proxy;
+        private Throwable origin;
+        private int depth;
+        private volatile boolean leakReported;
+        private boolean returned;
+        
+        PooledConnectionHandler(Connection physical, boolean writer) {
+            this.physical = physical;
+            this.writer = writer;
+            this.acquiredAt = System.nanoTime();
+            this.depth = 1;
+        }
+        
+        @Override
+        public Object invoke(Object proxyInstance, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        if (!writer || depth == 1) {
+                            returned = true;
+                        }
+                        release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.isClosed();
+                case "equals":
+                    return proxyInstance == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxyInstance);
+                case "toString":
+                    return "Pooled" + (writer ? "Writer" : "Reader") + "[" + physical + "]";
+                default:
+                    break;
+            }
+            
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            
+            QueryMetrics metrics = queryMetrics;
+            if (metrics != null && "commit".equals(method.getName())) {
+                long start = System.nanoTime();
+                try {
+                    physical.commit();
+                } finally {
+                    metrics.recordCommit(System.nanoTime() - start);
+                }
+                return null;
+            }
+            
+            try {
+                Object result;
+                if (statementCacheSize > 0 && "prepareStatement".equals(method.getName()) && args.length == 1) {
+                    result = statementCaches.computeIfAbsent(physical, c -> new StatementCache(c,
+                        statementCacheSize, statementCacheHits, statementCacheMisses, statementCacheEvictions))
+                        .prepare((String) args[0], proxy);
+                } else {
+                    result = method.invoke(physical, args);
+                }
+                if (result instanceof Statement) {
+                    if (queryTimeoutSeconds > 0) {
+                        ((Statement) result).setQueryTimeout(queryTimeoutSeconds);
+                    }
+                    if (metrics != null) {
+                        String sql = args != null && args.length > 0 ? (String) args[0] : null;
+                        result = metrics.instrument((Statement) result, method.getReturnType(), sql);
+                    }
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
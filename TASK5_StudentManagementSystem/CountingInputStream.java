@@ -0,0 +1,36 @@
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that counts the bytes read through it
+ */
+class CountingInputStream extends FilterInputStream {
+    private volatile long count;
+    
+    public CountingInputStream(InputStream in) {
+        super(in);
+    }
+    
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            count++;
+        }
+        return b;
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            count += n;
+        }
+        return n;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Immutable row of the courses table
+ */
+class Course {
+    private final int id;
+    private final String code;
+    private final String name;
+    private final String department;
+    private final int durationMonths;
+    private final int totalCredits;
+    private final boolean active;
+    
+    public Course(int id, String code, String name, String department, int durationMonths,
+                  int totalCredits, boolean active) {
+        this.id = id;
+        this.code = code;
+        this.name = name;
+        this.department = department;
+        this.durationMonths = durationMonths;
+        this.totalCredits = totalCredits;
+        this.active = active;
+    }
+    
+    public int getId() { return id; }
+    public String getCode() { return code; }
+    public String getName() { return name; }
+    public String getDepartment() { return department; }
+    public int getDurationMonths() { return durationMonths; }
+    public int getTotalCredits() { return totalCredits; }
+    public boolean isActive() { return active; }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,45 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * CSV writer that quotes only the fields that need it
+ */
+class CsvWriter implements Closeable {
+    private final Writer writer;
+    
+    public CsvWriter(Writer writer) {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer, 1 << 16);
+    }
+    
+    public void writeRecord(List<String> fields) throws IOException {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(fields.get(i)));
+        }
+        writer.write("\r\n");
+    }
+    
+    static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+    
+    public void flush() throws IOException {
+        writer.flush();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
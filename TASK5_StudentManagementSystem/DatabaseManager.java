@@ -2,19 +2,66 @@ import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Instant;
 
 public class DatabaseManager {
     private static final String DB_URL = "jdbc:sqlite:student_management.db";
     private static final String CONFIG_FILE = "database.properties";
     private static DatabaseManager instance;
-    private Connection connection;
+    private ConnectionPool connectionPool;
+    private AuditLogWriter auditLogWriter;
+    private AuditPartitionManager auditPartitions;
+    private StudentStatisticsEngine statisticsEngine;
+    private GpaEngine gpaEngine;
+    private RollNumberAllocator rollNumberAllocator;
+    private ReferenceDataCache referenceData;
+    private PasswordHashingExecutor passwordHashing;
+    private BackupManager backupManager;
+    private WriteTransactionRunner writeTransactions;
+    private boolean auditLoggingEnabled = true;
+    private int importChunkSize = IMPORT_CHUNK_SIZE;
+    private int importValidationThreads;
+    private int exportFetchSize = EXPORT_FETCH_SIZE;
+    private int transcriptThreads;
+    private int transcriptQueueCapacity = TRANSCRIPT_QUEUE_CAPACITY;
     
     // Database configuration
     private static final int MAX_CONNECTIONS = 10;
     private static final int CONNECTION_TIMEOUT = 30;
     private static final int QUERY_TIMEOUT = 15;
+    private static final int LEAK_DETECTION_THRESHOLD = 60;
+    private static final int STATEMENT_CACHE_SIZE = 64;
+    private static final int WRITE_RETRY_ATTEMPTS = 5;
+    private static final int WRITE_RETRY_BASE_DELAY_MS = 10;
+    private static final int WRITE_RETRY_MAX_DELAY_MS = 500;
+    private static final int SLOW_QUERY_THRESHOLD_MS = 200;
+    private static final int SLOW_QUERY_LOG_MAX_KB = 5120;
+    private static final int SLOW_QUERY_LOG_FILES = 5;
+    private static final int AUDIT_QUEUE_CAPACITY = 10000;
+    private static final int AUDIT_BATCH_SIZE = 200;
+    private static final int AUDIT_FLUSH_INTERVAL_MS = 500;
+    private static final int AUDIT_SHUTDOWN_TIMEOUT_MS = 5000;
+    private static final int AUDIT_ONLINE_MONTHS = 3;
+    private static final int REFERENCE_POLL_INTERVAL_SECONDS = 30;
+    private static final int PASSWORD_HASH_QUEUE_CAPACITY = 16;
+    private static final int AUDIT_MAINTENANCE_INTERVAL_HOURS = 24;
+    private static final int STATS_CONSISTENCY_CHECK_HOURS = 24;
+    private static final int ROLL_NUMBER_BLOCK_SIZE = 20;
+    private static final int GPA_PARTITION_SIZE = 2000;
+    private static final int GPA_WRITE_BATCH_SIZE = 500;
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final int TRANSCRIPT_QUEUE_CAPACITY = 256;
+    private static final int BACKUP_INTERVAL_HOURS = 24;
+    private static final int BACKUP_RETENTION_DAYS = 30;
     
     private DatabaseManager() {
         initializeDatabase();
@@ -31,35 +78,63 @@ public class DatabaseManager {
         try {
             // Load database properties
             Properties props = loadDatabaseProperties();
+            configurePasswordHashing(props);
+            passwordHashing = new PasswordHashingExecutor(intProperty(props, "db.password.hash_threads", 0),
+                intProperty(props, "db.password.hash_queue_capacity", PASSWORD_HASH_QUEUE_CAPACITY));
+            connectionPool = createConnectionPool(props);
+            connectionPool.setQueryMetrics(createQueryMetrics(props));
+            writeTransactions = new WriteTransactionRunner(connectionPool,
+                intProperty(props, "db.write_retry.max_attempts", WRITE_RETRY_ATTEMPTS),
+                intProperty(props, "db.write_retry.base_delay_ms", WRITE_RETRY_BASE_DELAY_MS),
+                intProperty(props, "db.write_retry.max_delay_ms", WRITE_RETRY_MAX_DELAY_MS));
+            statisticsEngine = new StudentStatisticsEngine(connectionPool, writeTransactions);
+            gpaEngine = new GpaEngine(connectionPool, writeTransactions,
+                intProperty(props, "db.gpa.partition_size", GPA_PARTITION_SIZE),
+                intProperty(props, "db.gpa.write_batch_size", GPA_WRITE_BATCH_SIZE),
+                intProperty(props, "db.gpa.threads", 0));
+            referenceData = new ReferenceDataCache(connectionPool);
+            rollNumberAllocator = new RollNumberAllocator(connectionPool, writeTransactions, referenceData,
+                intProperty(props, "db.roll_number.block_size", ROLL_NUMBER_BLOCK_SIZE));
+            importChunkSize = intProperty(props, "db.import.chunk_size", IMPORT_CHUNK_SIZE);
+            importValidationThreads = intProperty(props, "db.import.validation_threads", 0);
+            exportFetchSize = intProperty(props, "db.export.fetch_size", EXPORT_FETCH_SIZE);
+            transcriptThreads = intProperty(props, "db.transcripts.threads", 0);
+            transcriptQueueCapacity = intProperty(props, "db.transcripts.queue_capacity", TRANSCRIPT_QUEUE_CAPACITY);
             
-            // Create database and tables
-            Connection conn = getConnection();
-            try {
-                createTables(conn);
-                
-                // Initialize admin user if not exists
+            // Log the effective pragma values so misconfiguration is visible at startup
+            try (Connection conn = getReadConnection()) {
+                connectionPool.getPragmaProfile().logEffectiveSettings(conn);
+            }
+            
+            // Apply pending schema migrations; a no-op on an up-to-date database
+            new SchemaMigrator(connectionPool).migrate();
+            referenceData.load();
+            referenceData.schedule(
+                intProperty(props, "db.reference.poll_interval_seconds", REFERENCE_POLL_INTERVAL_SECONDS));
+            
+            // Initialize admin user if not exists
+            inWriteTransaction(conn -> {
                 initializeAdminUser(conn);
-                
-                // Commit all changes
-                conn.commit();
-                System.out.println("Database initialized successfully!");
-                
-            } catch (SQLException e) {
-                // Rollback on error
-                try {
-                    conn.rollback();
-                } catch (SQLException rollbackEx) {
-                    System.err.println("Error rolling back: " + rollbackEx.getMessage());
-                }
-                throw e;
-            } finally {
-                // Don't close the connection here, just reset autoCommit
-                try {
-                    conn.setAutoCommit(false);
-                } catch (SQLException e) {
-                    System.err.println("Error resetting autoCommit: " + e.getMessage());
-                }
+                return null;
+            });
+            System.out.println("Database initialized successfully!");
+            
+            // Start the background audit writer and flush it on JVM exit
+            auditLoggingEnabled = Boolean.parseBoolean(props.getProperty("db.audit_logging_enabled", "true"));
+            auditLogWriter = createAuditLogWriter(props);
+            auditLogWriter.start();
+            auditPartitions = new AuditPartitionManager(connectionPool, writeTransactions,
+                Paths.get(props.getProperty("db.audit.archive_dir", "audit_archive")),
+                intProperty(props, "db.audit.online_months", AUDIT_ONLINE_MONTHS));
+            auditPartitions.schedule(
+                intProperty(props, "db.audit.maintenance_interval_hours", AUDIT_MAINTENANCE_INTERVAL_HOURS));
+            statisticsEngine.scheduleConsistencyCheck(
+                intProperty(props, "db.stats.consistency_check_hours", STATS_CONSISTENCY_CHECK_HOURS));
+            backupManager = createBackupManager(props);
+            if (Boolean.parseBoolean(props.getProperty("db.backup_enabled", "true"))) {
+                backupManager.schedule(intProperty(props, "db.backup_interval_hours", BACKUP_INTERVAL_HOURS));
             }
+            Runtime.getRuntime().addShutdownHook(new Thread(this::closeConnection, "db-shutdown"));
             
         } catch (SQLException e) {
             System.err.println("Database initialization failed: " + e.getMessage());
@@ -83,148 +158,123 @@ public class DatabaseManager {
         return props;
     }
     
-    private void createTables(Connection conn) throws SQLException {
-        System.out.println("Starting table creation...");
-        
-        // Users table for authentication
-        String createUsersTable = 
-            "CREATE TABLE IF NOT EXISTS users (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-            "username VARCHAR(50) UNIQUE NOT NULL," +
-            "password_hash VARCHAR(255) NOT NULL," +
-            "email VARCHAR(100) UNIQUE NOT NULL," +
-            "role VARCHAR(20) NOT NULL DEFAULT 'USER'," +
-            "is_active BOOLEAN DEFAULT TRUE," +
-            "last_login TIMESTAMP," +
-            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-            "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-            ")";
-        
-        // Students table with advanced features
-        String createStudentsTable = 
-            "CREATE TABLE IF NOT EXISTS students (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-            "roll_number VARCHAR(20) UNIQUE NOT NULL," +
-            "name VARCHAR(100) NOT NULL," +
-            "email VARCHAR(100) UNIQUE NOT NULL," +
-            "phone VARCHAR(15)," +
-            "date_of_birth DATE NOT NULL," +
-            "gender VARCHAR(10) NOT NULL," +
-            "address TEXT," +
-            "city VARCHAR(50)," +
-            "state VARCHAR(50)," +
-            "country VARCHAR(50) DEFAULT 'India'," +
-            "postal_code VARCHAR(10)," +
-            "course_id INTEGER," +
-            "enrollment_date DATE DEFAULT CURRENT_DATE," +
-            "graduation_date DATE," +
-            "status VARCHAR(20) DEFAULT 'ACTIVE'," +
-            "gpa DECIMAL(3,2) DEFAULT 0.00," +
-            "total_credits INTEGER DEFAULT 0," +
-            "emergency_contact_name VARCHAR(100)," +
-            "emergency_contact_phone VARCHAR(15)," +
-            "emergency_contact_relationship VARCHAR(50)," +
-            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-            "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-            "created_by INTEGER," +
-            "updated_by INTEGER" +
-            ")";
-        
-        // Courses table
-        String createCoursesTable = 
-            "CREATE TABLE IF NOT EXISTS courses (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-            "code VARCHAR(20) UNIQUE NOT NULL," +
-            "name VARCHAR(100) NOT NULL," +
-            "description TEXT," +
-            "duration_months INTEGER NOT NULL," +
-            "total_credits INTEGER NOT NULL," +
-            "department VARCHAR(50) NOT NULL," +
-            "is_active BOOLEAN DEFAULT TRUE," +
-            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-            "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-            ")";
-        
-        // Subjects table
-        String createSubjectsTable = 
-            "CREATE TABLE IF NOT EXISTS subjects (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-            "code VARCHAR(20) UNIQUE NOT NULL," +
-            "name VARCHAR(100) NOT NULL," +
-            "description TEXT," +
-            "credits INTEGER NOT NULL," +
-            "course_id INTEGER NOT NULL," +
-            "semester INTEGER NOT NULL," +
-            "is_core BOOLEAN DEFAULT TRUE," +
-            "is_active BOOLEAN DEFAULT TRUE," +
-            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-            ")";
+    /**
+     * Build the connection pool from db.* properties
+     */
+    private ConnectionPool createConnectionPool(Properties props) {
+        String url = props.getProperty("db.url", DB_URL);
+        int maxConnections = intProperty(props, "db.max_connections", MAX_CONNECTIONS);
+        int connectionTimeout = intProperty(props, "db.connection_timeout", CONNECTION_TIMEOUT);
+        int queryTimeout = intProperty(props, "db.query_timeout", QUERY_TIMEOUT);
+        int leakThreshold = intProperty(props, "db.leak_detection_threshold", LEAK_DETECTION_THRESHOLD);
+        boolean autoCommit = Boolean.parseBoolean(props.getProperty("db.auto_commit", "false"));
+        int statementCacheSize = intProperty(props, "db.statement_cache_size", STATEMENT_CACHE_SIZE);
         
-        // Student grades table
-        String createGradesTable = 
-            "CREATE TABLE IF NOT EXISTS student_grades (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-            "student_id INTEGER NOT NULL," +
-            "subject_id INTEGER NOT NULL," +
-            "semester INTEGER NOT NULL," +
-            "academic_year VARCHAR(9) NOT NULL," +
-            "marks_obtained DECIMAL(5,2) NOT NULL," +
-            "max_marks DECIMAL(5,2) DEFAULT 100.00," +
-            "grade VARCHAR(2)," +
-            "grade_points DECIMAL(3,2)," +
-            "attendance_percentage DECIMAL(5,2)," +
-            "remarks TEXT," +
-            "graded_by INTEGER," +
-            "graded_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-            ")";
+        return new ConnectionPool(url, maxConnections, connectionTimeout * 1000L,
+                                  queryTimeout, leakThreshold * 1000L, autoCommit,
+                                  SqlitePragmaProfile.fromProperties(props), statementCacheSize);
+    }
+    
+    /**
+     * db.performance_logging_enabled collects per-query metrics and db.sql_logging_enabled
+     * writes statements over the threshold to the slow-query log; either turns on timing
+     */
+    private QueryMetrics createQueryMetrics(Properties props) {
+        boolean performanceLogging = Boolean.parseBoolean(props.getProperty("db.performance_logging_enabled", "false"));
+        boolean sqlLogging = Boolean.parseBoolean(props.getProperty("db.sql_logging_enabled", "false"));
+        if (!performanceLogging && !sqlLogging) {
+            return null;
+        }
         
-        // Audit log table
-        String createAuditTable = 
-            "CREATE TABLE IF NOT EXISTS audit_log (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-            "user_id INTEGER," +
-            "action VARCHAR(100) NOT NULL," +
-            "table_name VARCHAR(50) NOT NULL," +
-            "record_id INTEGER," +
-            "old_values TEXT," +
-            "new_values TEXT," +
-            "ip_address VARCHAR(45)," +
-            "user_agent TEXT," +
-            "timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-            ")";
+        SlowQueryLog slowQueryLog = null;
+        if (sqlLogging) {
+            slowQueryLog = new SlowQueryLog(Paths.get(props.getProperty("db.slow_query_log", "slow_queries.log")),
+                intProperty(props, "db.slow_query_log_max_kb", SLOW_QUERY_LOG_MAX_KB) * 1024L,
+                intProperty(props, "db.slow_query_log_files", SLOW_QUERY_LOG_FILES));
+        }
+        return new QueryMetrics(intProperty(props, "db.slow_query_threshold_ms", SLOW_QUERY_THRESHOLD_MS), slowQueryLog);
+    }
+    
+    private AuditLogWriter createAuditLogWriter(Properties props) {
+        AuditLogWriter.OverflowPolicy policy;
+        try {
+            policy = AuditLogWriter.OverflowPolicy.valueOf(
+                props.getProperty("db.audit.overflow_policy", "BLOCK").trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown db.audit.overflow_policy, using BLOCK");
+            policy = AuditLogWriter.OverflowPolicy.BLOCK;
+        }
         
-        // Execute table creation
-        try (Statement stmt = conn.createStatement()) {
-            System.out.println("Creating users table...");
-            stmt.execute(createUsersTable);
-            System.out.println("Creating courses table...");
-            stmt.execute(createCoursesTable);
-            System.out.println("Creating subjects table...");
-            stmt.execute(createSubjectsTable);
-            System.out.println("Creating students table...");
-            stmt.execute(createStudentsTable);
-            System.out.println("Creating grades table...");
-            stmt.execute(createGradesTable);
-            System.out.println("Creating audit table...");
-            stmt.execute(createAuditTable);
-            System.out.println("All tables created successfully!");
+        return new AuditLogWriter(connectionPool, writeTransactions,
+                                  intProperty(props, "db.audit.queue_capacity", AUDIT_QUEUE_CAPACITY),
+                                  intProperty(props, "db.audit.batch_size", AUDIT_BATCH_SIZE),
+                                  intProperty(props, "db.audit.flush_interval_ms", AUDIT_FLUSH_INTERVAL_MS),
+                                  policy,
+                                  props.getProperty("db.audit.spill_file", "audit_spill.log"));
+    }
+    
+    /**
+     * Algorithm and cost for new password hashes. With db.password.target_ms set, the
+     * cost is calibrated on this host at startup, but never below db.password.iterations.
+     */
+    private static void configurePasswordHashing(Properties props) {
+        String algorithm = props.getProperty("db.password.algorithm", PasswordHasher.PBKDF2_SHA256).trim();
+        int cost = intProperty(props, "db.password.iterations", PasswordHasher.DEFAULT_ITERATIONS);
+        int targetMillis = intProperty(props, "db.password.target_ms", 0);
+        try {
+            if (targetMillis > 0) {
+                cost = Math.max(cost, PasswordHasher.calibrate(algorithm, targetMillis));
+            }
+            PasswordHasher.configure(algorithm, cost);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid password hashing settings: " + e.getMessage() + ", using defaults");
         }
+        System.out.println("Password hashing: " + PasswordHasher.getAlgorithm() + ", cost " + PasswordHasher.getCost());
+    }
+    
+    /**
+     * Snapshots are named after the database file, e.g. student_management-20241017-020000.db.gz
+     */
+    private BackupManager createBackupManager(Properties props) {
+        String url = props.getProperty("db.url", DB_URL);
+        String dbFile = Paths.get(url.substring(url.lastIndexOf(':') + 1)).getFileName().toString();
+        String baseName = dbFile.endsWith(".db") ? dbFile.substring(0, dbFile.length() - 3) : dbFile;
         
-        // Create indexes for better performance
-        createIndexes(conn);
+        return new BackupManager(connectionPool, writeTransactions,
+                                 Paths.get(props.getProperty("db.backup_dir", "backups")),
+                                 baseName,
+                                 intProperty(props, "db.backup_retention_days", BACKUP_RETENTION_DAYS));
+    }
+    
+    private static int intProperty(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
     }
     
-    private void createIndexes(Connection conn) throws SQLException {
-        try (Statement stmt = conn.createStatement()) {
-            // Performance indexes
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_students_roll_number ON students(roll_number)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_students_email ON students(email)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_students_course ON students(course_id)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_grades_student ON student_grades(student_id)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_grades_subject ON student_grades(subject_id)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_users_username ON users(username)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_audit_timestamp ON audit_log(timestamp)");
+    /**
+     * Turn free text into an FTS5 query: every token must match, and each token
+     * matches as a prefix. Tokens are quoted so user input cannot inject FTS syntax.
+     */
+    static String buildFullTextQuery(String searchTerm) {
+        StringBuilder match = new StringBuilder();
+        for (String token : searchTerm.split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(token).append("\"*");
         }
+        return match.toString();
     }
     
     private void initializeAdminUser(Connection conn) throws SQLException {
@@ -253,50 +303,344 @@ public class DatabaseManager {
         }
     }
     
+    /**
+     * Borrow the writer connection from the pool. Closing it returns it to the pool;
+     * uncommitted work is rolled back at that point.
+     */
     public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(DB_URL);
-            connection.setAutoCommit(false); // Enable transaction support
+        return connectionPool.acquireWrite();
+    }
+    
+    /**
+     * Run work in a transaction on the writer and commit it. Lock conflicts
+     * (SQLITE_BUSY / SQLITE_LOCKED) roll back and replay the whole unit after a
+     * jittered backoff, so work must not have side effects outside the database.
+     * Called while already holding the writer, it joins the outer transaction.
+     */
+    public <T> T inWriteTransaction(WriteTransactionRunner.TransactionWork<T> work) throws SQLException {
+        return writeTransactions.run(work);
+    }
+    
+    /**
+     * Run a change to courses or subjects and reload the reference data cache once it
+     * commits. Inside an outer transaction the reload waits for the next poll instead.
+     */
+    public <T> T inReferenceDataTransaction(WriteTransactionRunner.TransactionWork<T> work) throws SQLException {
+        T result = writeTransactions.run(work);
+        referenceData.refreshIfChanged();
+        return result;
+    }
+    
+    public PasswordHashingExecutor getPasswordHashing() {
+        return passwordHashing;
+    }
+    
+    public ReferenceDataCache getReferenceData() {
+        return referenceData;
+    }
+    
+    /**
+     * Commit, retry and abort counts for inWriteTransaction
+     */
+    public WriteTransactionRunner getWriteTransactions() {
+        return writeTransactions;
+    }
+    
+    /**
+     * Borrow an auto-commit read connection from the pool
+     */
+    public Connection getReadConnection() throws SQLException {
+        return connectionPool.acquireRead();
+    }
+    
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+    
+    public StudentStatisticsEngine getStatisticsEngine() {
+        return statisticsEngine;
+    }
+    
+    public GpaEngine getGpaEngine() {
+        return gpaEngine;
+    }
+    
+    /**
+     * Current query metrics, or null when performance and SQL logging are both disabled
+     */
+    public QueryMetricsSnapshot getQueryMetricsSnapshot() {
+        QueryMetrics metrics = connectionPool.getQueryMetrics();
+        return metrics == null ? null : metrics.snapshot(connectionPool);
+    }
+    
+    public void resetQueryMetrics() {
+        QueryMetrics metrics = connectionPool.getQueryMetrics();
+        if (metrics != null) {
+            metrics.reset();
         }
-        return connection;
     }
     
-    public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-            }
-        } catch (SQLException e) {
-            System.err.println("Error closing connection: " + e.getMessage());
+    public BackupManager getBackupManager() {
+        return backupManager;
+    }
+    
+    public AuditLogWriter getAuditLogWriter() {
+        return auditLogWriter;
+    }
+    
+    public AuditPartitionManager getAuditPartitions() {
+        return auditPartitions;
+    }
+    
+    /**
+     * One page of audit entries, newest first, across the hot table and online partitions.
+     * Filters may be null; pass the previous page's next cursor as beforeId to continue.
+     */
+    public AuditPage queryAuditLog(Integer userId, String action, Instant from, Instant to,
+                                   Long beforeId, int limit) throws SQLException {
+        return auditPartitions.query(userId, action, from, to, beforeId, limit);
+    }
+    
+    /**
+     * Flush pending audit entries and close all pooled connections
+     */
+    public synchronized void closeConnection() {
+        if (backupManager != null) {
+            backupManager.shutdown();
+        }
+        if (auditPartitions != null) {
+            auditPartitions.shutdown();
+        }
+        if (referenceData != null) {
+            referenceData.shutdown();
+        }
+        if (passwordHashing != null) {
+            passwordHashing.shutdown();
+        }
+        if (statisticsEngine != null) {
+            statisticsEngine.shutdown();
+        }
+        if (auditLogWriter != null) {
+            auditLogWriter.shutdown(AUDIT_SHUTDOWN_TIMEOUT_MS);
+        }
+        if (connectionPool != null) {
+            connectionPool.shutdown();
         }
     }
     
+    /**
+     * Commit the writer transaction held by the calling thread
+     */
     public void commitTransaction() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            connection.commit();
+        Connection writer = connectionPool.getCurrentWriter();
+        if (writer != null && !writer.isClosed() && !writer.getAutoCommit()) {
+            writer.commit();
         }
     }
     
+    /**
+     * Roll back the writer transaction held by the calling thread
+     */
     public void rollbackTransaction() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            connection.rollback();
+        Connection writer = connectionPool.getCurrentWriter();
+        if (writer != null && !writer.isClosed() && !writer.getAutoCommit()) {
+            writer.rollback();
         }
     }
     
     // Advanced query methods
+    
+    /**
+     * Search students. searchType is one of name, roll_number, email, phone
+     * (substring match) or fulltext (token/prefix match on the FTS index, ranked by relevance).
+     */
     public List<Student> searchStudentsAdvanced(String searchTerm, String searchType, 
                                               String courseFilter, String statusFilter) throws SQLException {
         List<Student> students = new ArrayList<>();
         
-        StringBuilder query = new StringBuilder();
-        query.append("SELECT s.*, c.name as course_name, c.code as course_code ");
-        query.append("FROM students s ");
-        query.append("LEFT JOIN courses c ON s.course_id = c.id ");
-        query.append("WHERE 1=1 ");
+        List<Object> parameters = new ArrayList<>();
+        StringBuilder query = buildSearchQuery(searchTerm, searchType, courseFilter, statusFilter, parameters);
+        boolean fullText = query.indexOf("students_fts") >= 0;
+        query.append(fullText ? "ORDER BY f.rank, s.name ASC" : "ORDER BY s.name ASC");
+        
+        try (Connection conn = getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+            
+            for (int i = 0; i < parameters.size(); i++) {
+                pstmt.setObject(i + 1, parameters.get(i));
+            }
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Student student = mapResultSetToStudent(rs);
+                    students.add(student);
+                }
+            }
+        }
+        
+        return students;
+    }
+    
+    /**
+     * Fetch one page of search results ordered by (name, id). Pass null as the cursor
+     * for the first page and the returned page's cursor for the next one. Seeking past
+     * the cursor costs the same on page 1000 as on page 1, unlike OFFSET.
+     */
+    public StudentPage searchStudentsPage(String searchTerm, String searchType, String courseFilter,
+                                          String statusFilter, StudentPage.Cursor after, int pageSize) throws SQLException {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
         
         List<Object> parameters = new ArrayList<>();
+        StringBuilder query = buildSearchQuery(searchTerm, searchType, courseFilter, statusFilter, parameters);
+        if (after != null) {
+            query.append("AND (s.name, s.id) > (?, ?) ");
+            parameters.add(after.getName());
+            parameters.add(after.getId());
+        }
+        // One extra row tells us whether another page exists
+        query.append("ORDER BY s.name ASC, s.id ASC LIMIT ?");
+        parameters.add(pageSize + 1);
         
-        if (searchTerm != null && !searchTerm.trim().isEmpty()) {
+        List<Student> students = new ArrayList<>(pageSize);
+        boolean hasMore = false;
+        try (Connection conn = getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+            
+            for (int i = 0; i < parameters.size(); i++) {
+                pstmt.setObject(i + 1, parameters.get(i));
+            }
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (students.size() == pageSize) {
+                        hasMore = true;
+                        break;
+                    }
+                    students.add(mapResultSetToStudent(rs));
+                }
+            }
+        }
+        
+        StudentPage.Cursor next = null;
+        if (hasMore) {
+            Student last = students.get(students.size() - 1);
+            next = new StudentPage.Cursor(last.getName(), last.getId());
+        }
+        return new StudentPage(students, next);
+    }
+    
+    /**
+     * Push every matching student to the consumer, one row at a time, ordered by (name, id).
+     * Nothing is accumulated, so heap use does not depend on the size of the result.
+     *
+     * @return number of students delivered
+     */
+    public long streamStudents(String searchTerm, String searchType, String courseFilter,
+                               String statusFilter, int fetchSize, Consumer<Student> consumer) throws SQLException {
+        try (Stream<Student> stream = openStudentStream(searchTerm, searchType, courseFilter, statusFilter, fetchSize)) {
+            long[] count = new long[1];
+            stream.forEach(student -> {
+                consumer.accept(student);
+                count[0]++;
+            });
+            return count[0];
+        } catch (UncheckedSqlException e) {
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Lazily stream matching students from a forward-only cursor, ordered by (name, id).
+     * The stream holds a pooled read connection until it is closed, so always use
+     * try-with-resources. Database errors surface as {@link UncheckedSqlException}.
+     */
+    public Stream<Student> openStudentStream(String searchTerm, String searchType, String courseFilter,
+                                             String statusFilter, int fetchSize) throws SQLException {
+        List<Object> parameters = new ArrayList<>();
+        StringBuilder query = buildSearchQuery(searchTerm, searchType, courseFilter, statusFilter, parameters);
+        query.append("ORDER BY s.name ASC, s.id ASC");
+        
+        Connection conn = getReadConnection();
+        PreparedStatement pstmt = null;
+        ResultSet rs;
+        try {
+            pstmt = conn.prepareStatement(query.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(fetchSize);
+            for (int i = 0; i < parameters.size(); i++) {
+                pstmt.setObject(i + 1, parameters.get(i));
+            }
+            rs = pstmt.executeQuery();
+        } catch (SQLException e) {
+            if (pstmt != null) {
+                pstmt.close();
+            }
+            conn.close();
+            throw e;
+        }
+        
+        final PreparedStatement statement = pstmt;
+        Spliterator<Student> rows = new Spliterators.AbstractSpliterator<Student>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Student> action) {
+                try {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    action.accept(mapResultSetToStudent(rs));
+                    return true;
+                } catch (SQLException e) {
+                    throw new UncheckedSqlException(e);
+                }
+            }
+        };
+        
+        return StreamSupport.stream(rows, false).onClose(() -> {
+            try {
+                rs.close();
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing student stream: " + e.getMessage());
+            } finally {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    System.err.println("Error releasing connection: " + e.getMessage());
+                }
+            }
+        });
+    }
+    
+    /**
+     * Build the SELECT ... WHERE part of a student search (without ORDER BY) and collect its parameters
+     */
+    private StringBuilder buildSearchQuery(String searchTerm, String searchType, String courseFilter,
+                                           String statusFilter, List<Object> parameters) {
+        String fullTextQuery = null;
+        if (searchTerm != null && "fulltext".equalsIgnoreCase(searchType)) {
+            fullTextQuery = buildFullTextQuery(searchTerm);
+            if (fullTextQuery.isEmpty()) {
+                fullTextQuery = null;
+            }
+        }
+        
+        StringBuilder query = new StringBuilder();
+        // Course names come from the reference data cache, so courses is not joined
+        query.append("SELECT s.* ");
+        if (fullTextQuery != null) {
+            query.append("FROM students_fts f ");
+            query.append("JOIN students s ON s.id = f.rowid ");
+        } else {
+            query.append("FROM students s ");
+        }
+        query.append("WHERE 1=1 ");
+        
+        if (fullTextQuery != null) {
+            query.append("AND students_fts MATCH ? ");
+            parameters.add(fullTextQuery);
+        } else if (searchTerm != null && !searchTerm.trim().isEmpty()) {
             switch (searchType.toLowerCase()) {
                 case "name":
                     query.append("AND s.name LIKE ? ");
@@ -318,8 +662,15 @@ public class DatabaseManager {
         }
         
         if (courseFilter != null && !courseFilter.trim().isEmpty()) {
-            query.append("AND c.name = ? ");
-            parameters.add(courseFilter);
+            Course course = referenceData.findCourse(courseFilter);
+            if (course != null) {
+                query.append("AND s.course_id = ? ");
+                parameters.add(course.getId());
+            } else {
+                // Not cached yet (added by another process); let the database resolve it
+                query.append("AND s.course_id IN (SELECT id FROM courses WHERE name = ?) ");
+                parameters.add(courseFilter);
+            }
         }
         
         if (statusFilter != null && !statusFilter.trim().isEmpty()) {
@@ -327,82 +678,14 @@ public class DatabaseManager {
             parameters.add(statusFilter);
         }
         
-        query.append("ORDER BY s.name ASC");
-        
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
-            
-            for (int i = 0; i < parameters.size(); i++) {
-                pstmt.setObject(i + 1, parameters.get(i));
-            }
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    Student student = mapResultSetToStudent(rs);
-                    students.add(student);
-                }
-            }
-        }
-        
-        return students;
+        return query;
     }
     
+    /**
+     * Dashboard statistics, served from cache until the students table changes
+     */
     public StudentStatistics getStudentStatistics() throws SQLException {
-        StudentStatistics stats = new StudentStatistics();
-        
-        try (Connection conn = getConnection()) {
-            // Total students
-            String totalQuery = "SELECT COUNT(*) FROM students WHERE status = 'ACTIVE'";
-            try (PreparedStatement pstmt = conn.prepareStatement(totalQuery)) {
-                ResultSet rs = pstmt.executeQuery();
-                if (rs.next()) {
-                    stats.setTotalStudents(rs.getInt(1));
-                }
-            }
-            
-            // Students by course
-            String courseQuery = """
-                SELECT c.name, COUNT(s.id) as student_count
-                FROM courses c
-                LEFT JOIN students s ON c.id = s.course_id AND s.status = 'ACTIVE'
-                WHERE c.is_active = TRUE
-                GROUP BY c.id, c.name
-                ORDER BY student_count DESC
-            """;
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(courseQuery)) {
-                ResultSet rs = pstmt.executeQuery();
-                while (rs.next()) {
-                    stats.addCourseDistribution(rs.getString("name"), rs.getInt("student_count"));
-                }
-            }
-            
-            // Average GPA
-            String gpaQuery = "SELECT AVG(gpa) FROM students WHERE status = 'ACTIVE' AND gpa > 0";
-            try (PreparedStatement pstmt = conn.prepareStatement(gpaQuery)) {
-                ResultSet rs = pstmt.executeQuery();
-                if (rs.next()) {
-                    stats.setAverageGPA(rs.getDouble(1));
-                }
-            }
-            
-            // Gender distribution
-            String genderQuery = """
-                SELECT gender, COUNT(*) as count
-                FROM students
-                WHERE status = 'ACTIVE'
-                GROUP BY gender
-            """;
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(genderQuery)) {
-                ResultSet rs = pstmt.executeQuery();
-                while (rs.next()) {
-                    stats.addGenderDistribution(rs.getString("gender"), rs.getInt("count"));
-                }
-            }
-        }
-        
-        return stats;
+        return statisticsEngine.getStatistics();
     }
     
     private Student mapResultSetToStudent(ResultSet rs) throws SQLException {
@@ -433,111 +716,138 @@ public class DatabaseManager {
         student.setCreatedBy(rs.getInt("created_by"));
         student.setUpdatedBy(rs.getInt("updated_by"));
         
-        // Set course name if available
-        try {
-            student.setCourseName(rs.getString("course_name"));
-        } catch (SQLException e) {
-            // Course name column might not exist in some queries
+        Course course = referenceData.getCourse(student.getCourseId());
+        if (course != null) {
+            student.setCourseName(course.getName());
         }
         
         return student;
     }
     
+    /**
+     * Queue an audit entry for the background writer. The row is stamped with
+     * the time of the call, not the time it reaches the database.
+     */
     public void logAuditTrail(int userId, String action, String tableName, 
                              Integer recordId, String oldValues, String newValues, 
                              String ipAddress, String userAgent) throws SQLException {
-        String auditQuery = """
-            INSERT INTO audit_log (user_id, action, table_name, record_id, old_values, new_values, ip_address, user_agent)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
-        """;
+        if (!auditLoggingEnabled) {
+            return;
+        }
         
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(auditQuery)) {
-            
-            pstmt.setInt(1, userId);
-            pstmt.setString(2, action);
-            pstmt.setString(3, tableName);
-            pstmt.setObject(4, recordId);
-            pstmt.setString(5, oldValues);
-            pstmt.setString(6, newValues);
-            pstmt.setString(7, ipAddress);
-            pstmt.setString(8, userAgent);
+        auditLogWriter.submit(new AuditEntry(userId, action, tableName, recordId, oldValues,
+                                             newValues, ipAddress, userAgent, System.currentTimeMillis()));
+    }
+
+    /**
+     * Audit students just inserted, in the caller's write transaction so the entries
+     * commit or roll back with the rows. Each CREATE entry holds the full row as stored
+     * (see StudentAuditCodec), read back by roll number so the id and the column
+     * defaults the insert filled in are recorded too.
+     */
+    public void logStudentsCreated(int userId, List<String> rollNumbers) throws SQLException {
+        if (!auditLoggingEnabled || rollNumbers.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        writeTransactions.run(conn -> {
+            List<AuditEntry> entries = new ArrayList<>(rollNumbers.size());
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM students WHERE roll_number = ?")) {
+                for (String rollNumber : rollNumbers) {
+                    pstmt.setString(1, rollNumber);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (rs.next()) {
+                            Student student = mapResultSetToStudent(rs);
+                            String newValues = StudentAuditCodec.encode(null, student)[1];
+                            entries.add(new AuditEntry(userId, "CREATE", "students", student.getId(),
+                                                       null, newValues, null, null, now));
+                        }
+                    }
+                }
+            }
+            auditLogWriter.writeInTransaction(entries);
+            return null;
+        });
+    }
+    
+    /**
+     * Audited changes to a student, newest first, each with full before and after
+     * snapshots rebuilt by walking back from the current row. Months already archived
+     * are not included, and columns changed without an audit entry (e.g. GPA derived
+     * from grades) show their later value.
+     */
+    public List<StudentRevision> getStudentHistory(int studentId) throws SQLException {
+        List<StudentRevision> revisions = new ArrayList<>();
+        try (Connection conn = connectionPool.acquireRead()) {
+            Student state = null;
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT * FROM students WHERE id = ?")) {
+                pstmt.setInt(1, studentId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        state = mapResultSetToStudent(rs);
+                    }
+                }
+            }
             
-            pstmt.executeUpdate();
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT id, user_id, action, old_values, new_values, timestamp FROM audit_log_all " +
+                    "WHERE table_name = 'students' AND record_id = ? ORDER BY id DESC")) {
+                pstmt.setInt(1, studentId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        String oldValues = rs.getString("old_values");
+                        Student after = state;
+                        Student before = oldValues != null ? StudentAuditCodec.apply(after, oldValues) : null;
+                        revisions.add(new StudentRevision(rs.getLong("id"), rs.getInt("user_id"),
+                            rs.getString("action"), rs.getString("timestamp"), before, after));
+                        state = before;
+                    }
+                }
+            }
         }
+        return revisions;
     }
-
+    
     /**
      * Generate a unique roll number for a new student
      * Format: [COURSE_CODE][YEAR][SEQUENTIAL_NUMBER]
-     * Example: CS2024001, IT2024001, ME2024001
+     * Example: CS24001, IT24001, ME24001
+     * Returns null if no number could be reserved.
      */
     public String generateRollNumber(Integer courseId) {
         try {
-            // Get course code
-            String courseCode = getCourseCode(courseId);
-            if (courseCode == null) {
-                courseCode = "GEN"; // Default for unknown courses
-            }
-            
-            // Get current year (last 2 digits)
-            String currentYear = String.valueOf(java.time.LocalDate.now().getYear()).substring(2);
-            
-            // Get next sequential number for this course and year
-            String nextNumber = getNextRollNumberSequence(courseCode, currentYear);
-            
-            return courseCode + currentYear + nextNumber;
-            
+            return rollNumberAllocator.next(courseId);
         } catch (SQLException e) {
             System.err.println("Error generating roll number: " + e.getMessage());
-            // Fallback: timestamp-based roll number
-            return "STU" + System.currentTimeMillis() % 10000;
+            return null;
         }
     }
     
     /**
-     * Get the course code for a given course ID
+     * Reserve roll numbers for a bulk admission in one database round trip
      */
-    private String getCourseCode(Integer courseId) throws SQLException {
-        if (courseId == null) return "GEN";
-        
-        String sql = "SELECT code FROM courses WHERE id = ?";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
-            pstmt.setInt(1, courseId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getString("code");
-                }
-            }
-        }
-        return "GEN";
+    public List<String> generateRollNumbers(Integer courseId, int count) throws SQLException {
+        return rollNumberAllocator.allocate(courseId, count);
     }
     
     /**
-     * Get the next sequential number for roll number generation
+     * Importer configured from db.import.* settings; importedBy is recorded as
+     * created_by on every row and may be null for command-line imports
      */
-    private String getNextRollNumberSequence(String courseCode, String year) throws SQLException {
-        String pattern = courseCode + year + "%";
-        String sql = "SELECT roll_number FROM students WHERE roll_number LIKE ? ORDER BY roll_number DESC LIMIT 1";
-        
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
-            pstmt.setString(1, pattern);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    String lastRollNumber = rs.getString("roll_number");
-                    // Extract the sequential number part
-                    String seqPart = lastRollNumber.substring(courseCode.length() + year.length());
-                    try {
-                        int nextSeq = Integer.parseInt(seqPart) + 1;
-                        return String.format("%03d", nextSeq); // 3-digit format with leading zeros
-                    } catch (NumberFormatException e) {
-                        // If parsing fails, start with 001
-                        return "001";
-                    }
-                }
-            }
-        }
-        return "001"; // First student for this course and year
+    public StudentImporter createStudentImporter(Integer importedBy) {
+        return new StudentImporter(this, importChunkSize, importValidationThreads, importedBy);
+    }
+    
+    /**
+     * Streaming exporter; exportedBy is written to the audit log when not null
+     */
+    public StudentExporter createStudentExporter(Integer exportedBy) {
+        return new StudentExporter(this, exportFetchSize, exportedBy);
+    }
+    
+    public TranscriptGenerator createTranscriptGenerator(Integer generatedBy) {
+        return new TranscriptGenerator(this, transcriptThreads, transcriptQueueCapacity, exportFetchSize, generatedBy);
     }
     
     /**
@@ -545,7 +855,8 @@ public class DatabaseManager {
      */
     public boolean rollNumberExists(String rollNumber) {
         String sql = "SELECT COUNT(*) FROM students WHERE roll_number = ?";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, rollNumber);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
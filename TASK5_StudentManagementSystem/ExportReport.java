@@ -0,0 +1,31 @@
+/**
+ * Outcome of a finished or cancelled export
+ */
+class ExportReport {
+    private final long rows;
+    private final long bytes;
+    private final long elapsedNanos;
+    private final boolean cancelled;
+    
+    public ExportReport(long rows, long bytes, long elapsedNanos, boolean cancelled) {
+        this.rows = rows;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+        this.cancelled = cancelled;
+    }
+    
+    public long getRows() { return rows; }
+    public long getBytes() { return bytes; }
+    public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+    public boolean isCancelled() { return cancelled; }
+    
+    public double getRowsPerSecond() {
+        return elapsedNanos > 0 ? rows * 1_000_000_000.0 / elapsedNanos : 0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("rows=%d bytes=%d in %.1fs (%.0f rows/s)",
+            rows, bytes, elapsedNanos / 1e9, getRowsPerSecond());
+    }
+}
@@ -0,0 +1,151 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Derives students.gpa and students.total_credits from student_grades and subjects.
+ * GPA is the credit-weighted mean of grade_points over graded subjects, rounded to two
+ * places; total_credits counts the credits of subjects passed (grade_points > 0).
+ *
+ * One student is recomputed incrementally by triggers whenever a grade is inserted,
+ * updated or deleted, or a subject's credits change. recomputeAll() rebuilds every
+ * student in parallel: student id ranges are aggregated on separate reader connections
+ * in a fork-join pool, and only the rows whose values changed are written back in
+ * batched updates. Students with no grades are left alone and keep the column defaults.
+ * recomputeAll() is run on demand from the admin screen to repair drifted values.
+ */
+public class GpaEngine {
+    private static final String RANGE_QUERY =
+        "SELECT g.student_id, " + SchemaMigrator.GPA_EXPRESSION + " AS new_gpa, "
+        + SchemaMigrator.CREDITS_EXPRESSION + " AS new_credits "
+        + SchemaMigrator.GRADES_JOIN + " JOIN students st ON st.id = g.student_id "
+        + "WHERE g.student_id BETWEEN ? AND ? GROUP BY g.student_id "
+        + "HAVING new_gpa IS NOT st.gpa OR new_credits IS NOT st.total_credits";
+    
+    private final ConnectionPool connectionPool;
+    private final WriteTransactionRunner writeTransactions;
+    private final int partitionSize;
+    private final int writeBatchSize;
+    private final int parallelism;
+    
+    public GpaEngine(ConnectionPool connectionPool, WriteTransactionRunner writeTransactions,
+                     int partitionSize, int writeBatchSize, int threads) {
+        this.connectionPool = connectionPool;
+        this.writeTransactions = writeTransactions;
+        this.partitionSize = Math.max(1, partitionSize);
+        this.writeBatchSize = Math.max(1, writeBatchSize);
+        // Every worker holds a reader, so more threads than readers would only queue
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.parallelism = Math.max(1, Math.min(workers, connectionPool.getMaxReaders()));
+    }
+    
+    /**
+     * Recompute one student now; the triggers normally do this on every grade change
+     */
+    public void recompute(int studentId) throws SQLException {
+        writeTransactions.run(conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(SchemaMigrator.gpaRecompute("id = ?"))) {
+                pstmt.setInt(1, studentId);
+                return pstmt.executeUpdate();
+            }
+        });
+    }
+    
+    /**
+     * Recompute every student with grades and write back the ones that changed
+     */
+    public GpaReport recomputeAll() throws SQLException {
+        long start = System.nanoTime();
+        long minId;
+        long maxId;
+        try (Connection conn = connectionPool.acquireRead();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "SELECT MIN(student_id), MAX(student_id) FROM student_grades");
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            minId = rs.getLong(1);
+            maxId = rs.getLong(2);
+            if (rs.wasNull()) {
+                return new GpaReport(0, 0, System.nanoTime() - start);
+            }
+        }
+        
+        List<Long> staleIds;
+        ForkJoinPool workers = new ForkJoinPool(parallelism);
+        try {
+            staleIds = workers.submit(new RangeTask(minId, maxId)).join();
+        } catch (UncheckedSqlException e) {
+            throw e.getCause();
+        } finally {
+            workers.shutdown();
+        }
+        
+        // Short transactions so other writers can interleave with a large recompute. Each
+        // student is re-derived at write time, so a grade changed meanwhile is not lost
+        for (int from = 0; from < staleIds.size(); from += writeBatchSize) {
+            List<Long> batch = staleIds.subList(from, Math.min(from + writeBatchSize, staleIds.size()));
+            writeTransactions.run(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(SchemaMigrator.gpaRecompute("id = ?"))) {
+                    for (long studentId : batch) {
+                        pstmt.setLong(1, studentId);
+                        pstmt.addBatch();
+                    }
+                    return pstmt.executeBatch();
+                }
+            });
+        }
+        
+        GpaReport report = new GpaReport(maxId - minId + 1, staleIds.size(), System.nanoTime() - start);
+        System.out.println("GPA recompute finished: " + report);
+        return report;
+    }
+    
+    /**
+     * Aggregates a range of student ids, splitting it until it is at most partitionSize
+     * wide, and returns the ids of students whose stored values are out of date
+     */
+    private final class RangeTask extends RecursiveTask<List<Long>> {
+        private static final long serialVersionUID = 1L;
+        
+        private final long from;
+        private final long to;
+        
+        RangeTask(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected List<Long> compute() {
+            if (to - from + 1 > partitionSize) {
+                long middle = from + (to - from) / 2;
+                RangeTask left = new RangeTask(from, middle);
+                left.fork();
+                List<Long> changes = new RangeTask(middle + 1, to).compute();
+                List<Long> leftChanges = left.join();
+                leftChanges.addAll(changes);
+                return leftChanges;
+            }
+            
+            List<Long> changes = new ArrayList<>();
+            try (Connection conn = connectionPool.acquireRead();
+                 PreparedStatement pstmt = conn.prepareStatement(RANGE_QUERY)) {
+                pstmt.setLong(1, from);
+                pstmt.setLong(2, to);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        changes.add(rs.getLong(1));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new UncheckedSqlException(e);
+            }
+            return changes;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * Outcome of a full GPA recompute
+ */
+class GpaReport {
+    private final long studentIdSpan;
+    private final long studentsUpdated;
+    private final long elapsedNanos;
+    
+    public GpaReport(long studentIdSpan, long studentsUpdated, long elapsedNanos) {
+        this.studentIdSpan = studentIdSpan;
+        this.studentsUpdated = studentsUpdated;
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    public long getStudentIdSpan() { return studentIdSpan; }
+    public long getStudentsUpdated() { return studentsUpdated; }
+    public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+    
+    @Override
+    public String toString() {
+        return String.format("ids=%d updated=%d in %.2fs", studentIdSpan, studentsUpdated, elapsedNanos / 1e9);
+    }
+}
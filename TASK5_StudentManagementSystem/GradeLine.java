@@ -0,0 +1,13 @@
+import java.math.BigDecimal;
+
+class GradeLine {
+    int semester;
+    String academicYear;
+    String subjectCode;
+    String subjectName;
+    int credits;
+    BigDecimal marksObtained;
+    BigDecimal maxMarks;
+    String grade;
+    BigDecimal gradePoints;
+}
@@ -0,0 +1,46 @@
+/**
+ * Counters for a running or finished import
+ */
+class ImportReport {
+    private final long rowsRead;
+    private final long imported;
+    private final long rejected;
+    private final long bytesRead;
+    private final long totalBytes;
+    private final long elapsedNanos;
+    private final boolean cancelled;
+    
+    public ImportReport(long rowsRead, long imported, long rejected, long bytesRead, long totalBytes,
+                        long elapsedNanos, boolean cancelled) {
+        this.rowsRead = rowsRead;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.bytesRead = bytesRead;
+        this.totalBytes = totalBytes;
+        this.elapsedNanos = elapsedNanos;
+        this.cancelled = cancelled;
+    }
+    
+    public long getRowsRead() { return rowsRead; }
+    public long getImported() { return imported; }
+    public long getRejected() { return rejected; }
+    public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+    public boolean isCancelled() { return cancelled; }
+    
+    /**
+     * Fraction of the file consumed so far, for progress bars
+     */
+    public double getFractionDone() {
+        return totalBytes > 0 ? Math.min(1.0, (double) bytesRead / totalBytes) : 1.0;
+    }
+    
+    public double getRowsPerSecond() {
+        return elapsedNanos > 0 ? rowsRead * 1_000_000_000.0 / elapsedNanos : 0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("read=%d imported=%d rejected=%d in %.1fs (%.0f rows/s)",
+            rowsRead, imported, rejected, elapsedNanos / 1e9, getRowsPerSecond());
+    }
+}
@@ -0,0 +1,17 @@
+import java.util.List;
+
+/**
+ * One CSV record on its way through the pipeline
+ */
+class ImportRow {
+    final long line;
+    final List<String> fields;
+    Student student;
+    String error;
+    boolean generatedRollNumber;
+    
+    ImportRow(long line, List<String> fields) {
+        this.line = line;
+        this.fields = fields;
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets.
+ * Bucket i holds samples in [2^(i-1), 2^i) microseconds, so percentiles
+ * are accurate to within a factor of two, which is enough for dashboards.
+ */
+public class LatencyHistogram {
+    private static final int BUCKET_COUNT = 40;
+    
+    private final LongAdder[] buckets;
+    private final LongAdder count;
+    private final LongAdder totalNanos;
+    private final AtomicLong maxNanos;
+    
+    public LatencyHistogram() {
+        this.buckets = new LongAdder[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+        this.count = new LongAdder();
+        this.totalNanos = new LongAdder();
+        this.maxNanos = new AtomicLong();
+    }
+    
+    /**
+     * Record a single sample measured in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        long micros = nanos / 1000;
+        int bucket = micros == 0 ? 0 : Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets[bucket].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        
+        long currentMax;
+        while (nanos > (currentMax = maxNanos.get())) {
+            if (maxNanos.compareAndSet(currentMax, nanos)) {
+                break;
+            }
+        }
+    }
+    
+    public long getCount() { return count.sum(); }
+    
+    public double getMeanMillis() {
+        long samples = count.sum();
+        return samples == 0 ? 0.0 : totalNanos.sum() / (double) samples / 1_000_000.0;
+    }
+    
+    public double getMaxMillis() { return maxNanos.get() / 1_000_000.0; }
+    
+    /**
+     * Upper bound of the bucket containing the given percentile (0-100), in milliseconds
+     */
+    public double getPercentileMillis(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long samples = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets[i].sum();
+            samples += snapshot[i];
+        }
+        if (samples == 0) {
+            return 0.0;
+        }
+        
+        long rank = (long) Math.ceil(percentile / 100.0 * samples);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                long upperMicros = 1L << i;
+                return Math.min(upperMicros / 1000.0, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+    
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.3fms p50=%.3fms p95=%.3fms p99=%.3fms max=%.3fms",
+            getCount(), getMeanMillis(), getPercentileMillis(50), getPercentileMillis(95),
+            getPercentileMillis(99), getMaxMillis());
+    }
+}
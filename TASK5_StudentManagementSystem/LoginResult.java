@@ -0,0 +1,18 @@
+/**
+ * Login result class for authentication responses
+ */
+class LoginResult {
+    private final boolean success;
+    private final String message;
+    private final UserSession session;
+    
+    public LoginResult(boolean success, String message, UserSession session) {
+        this.success = success;
+        this.message = message;
+        this.session = session;
+    }
+    
+    public boolean isSuccess() { return success; }
+    public String getMessage() { return message; }
+    public UserSession getSession() { return session; }
+}
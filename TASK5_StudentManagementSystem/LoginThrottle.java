@@ -0,0 +1,217 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Failed-login counters per username and per client IP, checked before any password
+ * hashing or database access. Each key counts failures over a sliding window,
+ * approximated by the current and previous fixed windows with the previous one
+ * weighted by how much of it still overlaps; reaching the limit locks the key out.
+ *
+ * Updates go through ConcurrentHashMap.compute, which locks only the key's bin, and
+ * checks are plain reads. Once maxEntries keys are tracked, expired ones are purged
+ * and then unlocked ones evicted, so a spray of usernames cannot exhaust memory.
+ * Lockouts (not partial counts) are written to login_lockouts and reloaded at
+ * startup, so a restart does not lift them.
+ */
+public class LoginThrottle {
+    private final DatabaseManager dbManager;
+    private final int maxUserFailures;
+    private final int maxIpFailures;
+    private final long windowMillis;
+    private final long lockoutMillis;
+    private final int maxEntries;
+    private final boolean persistent;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    
+    public LoginThrottle(DatabaseManager dbManager, int maxUserFailures, int maxIpFailures,
+                         long windowMillis, long lockoutMillis, int maxEntries, boolean persistent) {
+        this.dbManager = dbManager;
+        this.maxUserFailures = maxUserFailures;
+        this.maxIpFailures = maxIpFailures;
+        this.windowMillis = windowMillis;
+        this.lockoutMillis = lockoutMillis;
+        this.maxEntries = Math.max(16, maxEntries);
+        this.persistent = persistent;
+    }
+    
+    /**
+     * Restore lockouts that have not expired yet
+     */
+    public void load() throws SQLException {
+        if (!persistent) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (Connection conn = dbManager.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "SELECT throttle_key, locked_until FROM login_lockouts WHERE locked_until > ?")) {
+            pstmt.setLong(1, now);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Counter counter = new Counter(now);
+                    counter.lockedUntil = rs.getLong("locked_until");
+                    counters.put(rs.getString("throttle_key"), counter);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Milliseconds until the username or IP may try again, or 0 if neither is locked
+     */
+    public long retryAfterMillis(String username, String ipAddress) {
+        long now = System.currentTimeMillis();
+        return Math.max(remaining(userKey(username), now), remaining(ipKey(ipAddress), now));
+    }
+    
+    private long remaining(String key, long now) {
+        Counter counter = key != null ? counters.get(key) : null;
+        return counter != null ? Math.max(0, counter.lockedUntil - now) : 0;
+    }
+    
+    /**
+     * Count a failed attempt against the username and the IP; returns true if this
+     * failure locked either of them
+     */
+    public boolean recordFailure(String username, String ipAddress) {
+        long now = System.currentTimeMillis();
+        boolean userLocked = fail(userKey(username), maxUserFailures, now);
+        boolean ipLocked = fail(ipKey(ipAddress), maxIpFailures, now);
+        return userLocked || ipLocked;
+    }
+    
+    /**
+     * Forget the username's failures after a successful login. The IP keeps its
+     * count, so one valid account cannot be used to reset a password spray.
+     */
+    public void recordSuccess(String username) {
+        String key = userKey(username);
+        if (key != null) {
+            counters.remove(key);
+        }
+    }
+    
+    public int getTrackedKeys() {
+        return counters.size();
+    }
+    
+    private boolean fail(String key, int limit, long now) {
+        if (key == null || limit <= 0) {
+            return false;
+        }
+        boolean[] locked = new boolean[1];
+        counters.compute(key, (k, counter) -> {
+            if (counter == null) {
+                counter = new Counter(now);
+            }
+            counter.roll(now, windowMillis);
+            counter.current++;
+            if (counter.lockedUntil <= now && counter.weighted(now, windowMillis) >= limit) {
+                counter.lockedUntil = now + lockoutMillis;
+                // The count starts again once the lockout ends
+                counter.current = 0;
+                counter.previous = 0;
+                locked[0] = true;
+            }
+            return counter;
+        });
+        if (counters.size() > maxEntries) {
+            evict(now);
+        }
+        if (locked[0] && persistent) {
+            saveLockout(key, now + lockoutMillis);
+        }
+        return locked[0];
+    }
+    
+    /**
+     * Drop keys with nothing left to remember, then unlocked keys, down to 90% of capacity
+     */
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            counters.entrySet().removeIf(e -> e.getValue().isIdle(now, windowMillis));
+            int target = maxEntries - maxEntries / 10;
+            for (Iterator<Counter> it = counters.values().iterator(); it.hasNext() && counters.size() > target; ) {
+                if (it.next().lockedUntil <= now) {
+                    it.remove();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+    
+    private void saveLockout(String key, long lockedUntil) {
+        try {
+            dbManager.inWriteTransaction(conn -> {
+                // Expired lockouts are pruned here, so logins never write to clear them
+                try (PreparedStatement prune = conn.prepareStatement(
+                         "DELETE FROM login_lockouts WHERE locked_until <= ?");
+                     PreparedStatement pstmt = conn.prepareStatement(
+                         "INSERT OR REPLACE INTO login_lockouts (throttle_key, locked_until) VALUES (?, ?)")) {
+                    prune.setLong(1, System.currentTimeMillis());
+                    prune.executeUpdate();
+                    pstmt.setString(1, key);
+                    pstmt.setLong(2, lockedUntil);
+                    return pstmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println("Failed to persist login lockout: " + e.getMessage());
+        }
+    }
+    
+    private static String userKey(String username) {
+        return username != null && !username.isBlank() ? "user:" + username.trim().toLowerCase(Locale.ROOT) : null;
+    }
+    
+    private static String ipKey(String ipAddress) {
+        return ipAddress != null && !ipAddress.isBlank() ? "ip:" + ipAddress.trim() : null;
+    }
+    
+    /**
+     * Failures in the current and previous fixed windows; mutated only inside compute
+     */
+    private static final class Counter {
+        long windowStart;
+        int current;
+        int previous;
+        volatile long lockedUntil;
+        
+        Counter(long now) {
+            this.windowStart = now;
+        }
+        
+        void roll(long now, long windowMillis) {
+            long windows = (now - windowStart) / windowMillis;
+            if (windows >= 1) {
+                previous = windows == 1 ? current : 0;
+                current = 0;
+                windowStart += windows * windowMillis;
+            }
+        }
+        
+        /**
+         * Failures in the last windowMillis, assuming the previous window's were spread evenly
+         */
+        double weighted(long now, long windowMillis) {
+            double overlap = 1.0 - (double) (now - windowStart) / windowMillis;
+            return current + previous * Math.max(0, overlap);
+        }
+        
+        boolean isIdle(long now, long windowMillis) {
+            return lockedUntil <= now && now - windowStart >= 2 * windowMillis;
+        }
+    }
+}
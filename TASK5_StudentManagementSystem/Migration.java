@@ -0,0 +1,40 @@
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * One schema change: its version, a description and the SQL it runs, in order
+ */
+class Migration {
+    private final int version;
+    private final String description;
+    private final List<String> statements;
+    private final String checksum;
+    
+    public Migration(int version, String description, List<String> statements) {
+        this.version = version;
+        this.description = description;
+        this.statements = List.copyOf(statements);
+        this.checksum = checksum(this.statements);
+    }
+    
+    public int getVersion() { return version; }
+    public String getDescription() { return description; }
+    public List<String> getStatements() { return statements; }
+    public String getChecksum() { return checksum; }
+    
+    private static String checksum(List<String> statements) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String sql : statements) {
+                digest.update(sql.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,80 +1,261 @@
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
 
+/**
+ * Password hashing with a versioned storage format, algorithm$cost$salt$hash, so the
+ * algorithm and cost can change without invalidating stored passwords. New hashes use
+ * the configured algorithm and cost; verifyPassword accepts any registered algorithm
+ * as well as the legacy salt:hash format (10,000 rounds of SHA-256), and needsRehash
+ * tells the caller when a verified password should be stored again at the current cost.
+ *
+ * Passwords are encoded as UTF-8 and hashes are compared in constant time.
+ */
 public class PasswordHasher {
-    private static final String HASH_ALGORITHM = "SHA-256";
+    public static final String PBKDF2_SHA256 = "pbkdf2-sha256";
+    public static final String PBKDF2_SHA512 = "pbkdf2-sha512";
+    public static final int DEFAULT_ITERATIONS = 600_000;
+    
     private static final int SALT_LENGTH = 16;
-    private static final int ITERATIONS = 10000;
+    private static final int KEY_LENGTH_BITS = 256;
+    private static final int MIN_COST = 10_000;
+    // Stored costs above this are treated as corrupt rather than run
+    private static final int MAX_COST = 50_000_000;
+    private static final int LEGACY_ITERATIONS = 10000;
+    private static final long CALIBRATION_WARMUP_NANOS = 3_000_000_000L;
+    private static final long CALIBRATION_PROBE_NANOS = 20_000_000L;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    
+    /**
+     * A key derivation function that can be selected by its id in stored hashes
+     */
+    public interface Algorithm {
+        String id();
+        byte[] derive(String password, byte[] salt, int cost) throws GeneralSecurityException;
+    }
+    
+    private static final Map<String, Algorithm> ALGORITHMS = new LinkedHashMap<>();
+    static {
+        register(new Pbkdf2(PBKDF2_SHA256, "PBKDF2WithHmacSHA256"));
+        register(new Pbkdf2(PBKDF2_SHA512, "PBKDF2WithHmacSHA512"));
+    }
+    
+    private static volatile Algorithm currentAlgorithm = ALGORITHMS.get(PBKDF2_SHA256);
+    private static volatile int currentCost = DEFAULT_ITERATIONS;
+    
+    /**
+     * Make an algorithm available for hashing and verification
+     */
+    public static synchronized void register(Algorithm algorithm) {
+        ALGORITHMS.put(algorithm.id(), algorithm);
+    }
+    
+    /**
+     * Algorithm and cost for new hashes; existing hashes with a different algorithm or
+     * a lower cost are reported by needsRehash
+     */
+    public static void configure(String algorithmId, int cost) {
+        Algorithm algorithm = ALGORITHMS.get(algorithmId);
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Unknown password hash algorithm: " + algorithmId);
+        }
+        if (cost < MIN_COST || cost > MAX_COST) {
+            throw new IllegalArgumentException("Password hash cost must be between " + MIN_COST + " and " + MAX_COST);
+        }
+        currentAlgorithm = algorithm;
+        currentCost = cost;
+    }
+    
+    public static String getAlgorithm() { return currentAlgorithm.id(); }
+    public static int getCost() { return currentCost; }
     
     /**
-     * Hash a password with salt and multiple iterations
+     * Hash a password with a fresh random salt using the configured algorithm and cost
      */
     public static String hashPassword(String password) {
+        Algorithm algorithm = currentAlgorithm;
+        int cost = currentCost;
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
         try {
-            // Generate random salt
-            SecureRandom random = new SecureRandom();
-            byte[] salt = new byte[SALT_LENGTH];
-            random.nextBytes(salt);
-            
-            // Hash password with salt and iterations
-            String hashedPassword = hashWithSalt(password, salt, ITERATIONS);
-            
-            // Combine salt and hash for storage
-            return Base64.getEncoder().encodeToString(salt) + ":" + hashedPassword;
-            
-        } catch (NoSuchAlgorithmException e) {
+            byte[] hash = algorithm.derive(password, salt, cost);
+            Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+            return algorithm.id() + "$" + cost + "$" + base64.encodeToString(salt) + "$" + base64.encodeToString(hash);
+        } catch (GeneralSecurityException e) {
             throw new RuntimeException("Failed to hash password", e);
         }
     }
     
     /**
-     * Verify a password against stored hash
+     * Verify a password against a stored hash in either format
      */
     public static boolean verifyPassword(String password, String storedHash) {
+        if (password == null || storedHash == null) {
+            return false;
+        }
         try {
-            // Split stored hash into salt and hash
-            String[] parts = storedHash.split(":");
-            if (parts.length != 2) {
-                return false; // Invalid hash format
+            String[] parts = storedHash.split("\\$");
+            if (parts.length == 4) {
+                Algorithm algorithm = ALGORITHMS.get(parts[0]);
+                int cost = Integer.parseInt(parts[1]);
+                if (algorithm == null || cost < 1 || cost > MAX_COST) {
+                    return false;
+                }
+                byte[] salt = Base64.getDecoder().decode(parts[2]);
+                byte[] expected = Base64.getDecoder().decode(parts[3]);
+                return MessageDigest.isEqual(expected, algorithm.derive(password, salt, cost));
             }
             
-            byte[] salt = Base64.getDecoder().decode(parts[0]);
-            String storedPasswordHash = parts[1];
-            
-            // Hash input password with same salt and iterations
-            String inputPasswordHash = hashWithSalt(password, salt, ITERATIONS);
-            
-            // Compare hashes
-            return storedPasswordHash.equals(inputPasswordHash);
-            
+            parts = storedHash.split(":");
+            if (parts.length == 2) {
+                byte[] salt = Base64.getDecoder().decode(parts[0]);
+                byte[] expected = Base64.getDecoder().decode(parts[1]);
+                return MessageDigest.isEqual(expected, legacyHash(password, salt));
+            }
+            return false; // Invalid hash format
         } catch (Exception e) {
             return false; // Any error means verification failed
         }
     }
     
     /**
-     * Hash password with salt and iterations
+     * True if the stored hash uses the legacy format, another algorithm or a lower cost
+     * than configured; call after a successful verify and store hashPassword's result
      */
-    private static String hashWithSalt(String password, byte[] salt, int iterations) 
-            throws NoSuchAlgorithmException {
+    public static boolean needsRehash(String storedHash) {
+        String[] parts = storedHash != null ? storedHash.split("\\$") : new String[0];
+        if (parts.length != 4 || !parts[0].equals(currentAlgorithm.id())) {
+            return true;
+        }
+        try {
+            return Integer.parseInt(parts[1]) < currentCost;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+    
+    /**
+     * Cost at which one hash takes about targetMillis on this host, never below the minimum
+     */
+    public static int calibrate(String algorithmId, long targetMillis) {
+        Algorithm algorithm = ALGORITHMS.get(algorithmId);
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Unknown password hash algorithm: " + algorithmId);
+        }
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        try {
+            // Until the JIT has compiled the HMAC loop a hash runs several times slower, so
+            // warm up until five runs in a row fail to beat the fastest by 5% (or time runs out)
+            long warmupEnd = System.nanoTime() + CALIBRATION_WARMUP_NANOS;
+            long warmupFastest = Long.MAX_VALUE;
+            for (int stable = 0; stable < 5 && System.nanoTime() < warmupEnd; ) {
+                long start = System.nanoTime();
+                algorithm.derive("calibration-password", salt, MIN_COST);
+                long elapsed = System.nanoTime() - start;
+                if (elapsed < warmupFastest * 0.95) {
+                    stable = 0;
+                } else {
+                    stable++;
+                }
+                warmupFastest = Math.min(warmupFastest, elapsed);
+            }
+            
+            // Grow the probe until it is long enough to time, keeping the fastest of a few runs
+            int probe = MIN_COST;
+            long fastest;
+            while (true) {
+                fastest = Long.MAX_VALUE;
+                for (int i = 0; i < 3; i++) {
+                    long start = System.nanoTime();
+                    algorithm.derive("calibration-password", salt, probe);
+                    fastest = Math.min(fastest, System.nanoTime() - start);
+                }
+                if (fastest >= CALIBRATION_PROBE_NANOS || probe >= MAX_COST / 2) {
+                    break;
+                }
+                probe *= 2;
+            }
+            long cost = Math.round(probe * (targetMillis * 1_000_000.0 / fastest));
+            return (int) Math.max(MIN_COST, Math.min(MAX_COST, cost));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Failed to calibrate password hashing", e);
+        }
+    }
+    
+    /**
+     * Print the cost that hits a target latency on this host, e.g.
+     * java PasswordHasher 250 pbkdf2-sha256
+     */
+    public static void main(String[] args) throws GeneralSecurityException {
+        long targetMillis = args.length > 0 ? Long.parseLong(args[0]) : 250;
+        String algorithmId = args.length > 1 ? args[1] : PBKDF2_SHA256;
+        int cost = calibrate(algorithmId, targetMillis);
         
-        MessageDigest md = MessageDigest.getInstance(HASH_ALGORITHM);
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        long start = System.nanoTime();
+        ALGORITHMS.get(algorithmId).derive("calibration-password", salt, cost);
+        long measured = (System.nanoTime() - start) / 1_000_000;
         
-        // Add salt to password
+        System.out.println(algorithmId + " cost for " + targetMillis + " ms: " + cost + " (measured " + measured + " ms)");
+        System.out.println("Set db.password.algorithm=" + algorithmId + " and db.password.iterations=" + cost);
+    }
+    
+    /**
+     * The pre-versioning scheme. It hashed the platform-default encoding of the password,
+     * so that is kept here for the old hashes to keep verifying.
+     */
+    private static byte[] legacyHash(String password, byte[] salt) throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
         md.update(salt);
-        md.update(password.getBytes());
-        
-        // Apply multiple iterations
+        md.update(password.getBytes(Charset.defaultCharset()));
         byte[] hash = md.digest();
-        for (int i = 1; i < iterations; i++) {
+        for (int i = 1; i < LEGACY_ITERATIONS; i++) {
             md.reset();
             md.update(hash);
             hash = md.digest();
         }
+        return hash;
+    }
+    
+    /**
+     * PBKDF2 with an HMAC from the JDK; cost is the iteration count. The JDK encodes
+     * the password characters as UTF-8.
+     */
+    private static final class Pbkdf2 implements Algorithm {
+        private final String id;
+        private final String jcaName;
+        
+        Pbkdf2(String id, String jcaName) {
+            this.id = id;
+            this.jcaName = jcaName;
+        }
         
-        return Base64.getEncoder().encodeToString(hash);
+        @Override
+        public String id() {
+            return id;
+        }
+        
+        @Override
+        public byte[] derive(String password, byte[] salt, int cost) throws GeneralSecurityException {
+            char[] chars = password.toCharArray();
+            PBEKeySpec spec = new PBEKeySpec(chars, salt, cost, KEY_LENGTH_BITS);
+            try {
+                return SecretKeyFactory.getInstance(jcaName).generateSecret(spec).getEncoded();
+            } finally {
+                spec.clearPassword();
+                Arrays.fill(chars, '\0');
+            }
+        }
     }
     
     /**
@@ -0,0 +1,90 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed pool for password hashing, kept apart from the UI thread and the database
+ * threads. The pool has fewer threads than the host has cores, so a burst of logins
+ * cannot take every core, and a short bounded queue behind them. When the queue is
+ * full a submission fails at once rather than making every login wait longer.
+ */
+public class PasswordHashingExecutor {
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final AtomicInteger peakQueueDepth = new AtomicInteger();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    
+    public PasswordHashingExecutor(int threads, int queueCapacity) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int poolSize = threads > 0 ? threads : Math.max(1, cores / 2);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(this.queueCapacity), r -> {
+                Thread t = new Thread(r, "password-hash-" + threadNumber.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.prestartAllCoreThreads();
+    }
+    
+    /**
+     * Run work on the pool. The future fails with RejectedExecutionException straight
+     * away if the pool is saturated.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                queueWaitNanos.add(System.nanoTime() - queuedAt);
+                try {
+                    future.complete(work.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+            submitted.increment();
+            peakQueueDepth.accumulateAndGet(executor.getQueue().size(), Math::max);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    public int getPoolSize() { return executor.getCorePoolSize(); }
+    public int getQueueCapacity() { return queueCapacity; }
+    public int getQueueDepth() { return executor.getQueue().size(); }
+    public int getPeakQueueDepth() { return peakQueueDepth.get(); }
+    public int getActiveCount() { return executor.getActiveCount(); }
+    public long getSubmitted() { return submitted.sum(); }
+    public long getRejected() { return rejected.sum(); }
+    
+    /**
+     * Mean time a task waited in the queue before a thread picked it up
+     */
+    public double getMeanQueueWaitMillis() {
+        long started = executor.getCompletedTaskCount() + executor.getActiveCount();
+        return started == 0 ? 0 : queueWaitNanos.sum() / 1e6 / started;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("PasswordHashing[threads=%d, active=%d, queued=%d/%d, peak=%d, submitted=%d, "
+                             + "rejected=%d, meanWait=%.1fms]",
+            getPoolSize(), getActiveCount(), getQueueDepth(), queueCapacity, getPeakQueueDepth(),
+            getSubmitted(), getRejected(), getMeanQueueWaitMillis());
+    }
+}
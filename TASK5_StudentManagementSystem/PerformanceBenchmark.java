@@ -0,0 +1,469 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Standalone micro-benchmarks for the database layer. Each scenario runs
+ * against a throw-away database in a temp directory, never the live one.
+ *
+ * Usage: java -cp ".;sqlite-jdbc-3.50.3.0.jar" PerformanceBenchmark [scenario]
+ */
+public class PerformanceBenchmark {
+    private static final int SEED_ROWS = 10_000;
+    private static final int READER_THREADS = 4;
+    private static final long RUN_MILLIS = 5_000;
+    private static final int SEARCH_STUDENTS = 500_000;
+    private static final int SEARCH_QUERIES = 200;
+    private static final int LOGIN_USERS = 1_000;
+    private static final int LOGIN_WARMUP = 20_000;
+    private static final int LOGIN_ITERATIONS = 100_000;
+    private static final int GPA_STUDENTS = 25_000;
+    private static final int GPA_SUBJECTS = 40;
+    private static final int PERMISSION_WARMUP = 2_000_000;
+    private static final int PERMISSION_CHECKS = 10_000_000;
+    private static final String[] FIRST_NAMES = {
+        "Aarav", "Diya", "Vihaan", "Ananya", "Arjun", "Isha", "Kabir", "Meera", "Rohan", "Saanvi"
+    };
+    private static final String[] LAST_NAMES = {
+        "Sharma", "Verma", "Iyer", "Reddy", "Patel", "Gupta", "Nair", "Khan", "Singh", "Das",
+        "Mehta", "Joshi", "Kapoor", "Bose", "Pillai", "Chopra", "Malhotra", "Rao", "Menon", "Banerjee"
+    };
+    
+    public static void main(String[] args) throws Exception {
+        String scenario = args.length > 0 ? args[0] : "all";
+        
+        switch (scenario) {
+            case "pragmas":
+                runPragmaBenchmark();
+                break;
+            case "search":
+                runSearchBenchmark();
+                break;
+            case "statements":
+                runStatementCacheBenchmark();
+                break;
+            case "gpa":
+                runGpaBenchmark();
+                break;
+            case "permissions":
+                runPermissionBenchmark();
+                break;
+            case "all":
+                runPragmaBenchmark();
+                runSearchBenchmark();
+                runStatementCacheBenchmark();
+                runGpaBenchmark();
+                runPermissionBenchmark();
+                break;
+            default:
+                System.err.println("Unknown scenario: " + scenario);
+                System.exit(1);
+        }
+    }
+    
+    /**
+     * Concurrent readers plus one committing writer, with SQLite defaults versus
+     * the db.pragma.* profile from database.properties
+     */
+    private static void runPragmaBenchmark() throws Exception {
+        System.out.println("=== Read/write concurrency: SQLite defaults vs pragma profile ===");
+        runReadWriteMix("defaults", SqlitePragmaProfile.defaults());
+        runReadWriteMix("tuned", SqlitePragmaProfile.fromProperties(loadProperties()));
+    }
+    
+    private static void runReadWriteMix(String label, SqlitePragmaProfile profile) throws Exception {
+        Path dir = Files.createTempDirectory("sms-bench");
+        ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("bench.db"),
+            READER_THREADS + 1, 30_000, 0, 0, false, profile, 0);
+        
+        try {
+            seedTable(pool);
+            
+            AtomicBoolean running = new AtomicBoolean(true);
+            LongAdder reads = new LongAdder();
+            LongAdder writes = new LongAdder();
+            LongAdder errors = new LongAdder();
+            LatencyHistogram readLatency = new LatencyHistogram();
+            CountDownLatch done = new CountDownLatch(READER_THREADS + 1);
+            
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < READER_THREADS; i++) {
+                threads.add(new Thread(() -> {
+                    int key = 0;
+                    while (running.get()) {
+                        long start = System.nanoTime();
+                        try (Connection conn = pool.acquireRead();
+                             PreparedStatement pstmt = conn.prepareStatement("SELECT name FROM bench WHERE id = ?")) {
+                            pstmt.setInt(1, 1 + (key++ % SEED_ROWS));
+                            try (ResultSet rs = pstmt.executeQuery()) {
+                                rs.next();
+                            }
+                            reads.increment();
+                        } catch (SQLException e) {
+                            errors.increment();
+                        }
+                        readLatency.record(System.nanoTime() - start);
+                    }
+                    done.countDown();
+                }));
+            }
+            threads.add(new Thread(() -> {
+                while (running.get()) {
+                    try (Connection conn = pool.acquireWrite();
+                         PreparedStatement pstmt = conn.prepareStatement("INSERT INTO bench (name) VALUES (?)")) {
+                        pstmt.setString(1, "row-" + writes.sum());
+                        pstmt.executeUpdate();
+                        conn.commit();
+                        writes.increment();
+                    } catch (SQLException e) {
+                        errors.increment();
+                    }
+                }
+                done.countDown();
+            }));
+            
+            threads.forEach(Thread::start);
+            Thread.sleep(RUN_MILLIS);
+            running.set(false);
+            done.await();
+            
+            double seconds = RUN_MILLIS / 1000.0;
+            System.out.printf("%-9s reads/s=%,10.0f  commits/s=%,8.0f  errors=%d%n",
+                label, reads.sum() / seconds, writes.sum() / seconds, errors.sum());
+            System.out.println("          read latency: " + readLatency);
+        } finally {
+            pool.shutdown();
+            deleteRecursively(dir.toFile());
+        }
+    }
+    
+    /**
+     * LIKE '%term%' scans versus FTS5 MATCH over a large synthetic roster
+     */
+    private static void runSearchBenchmark() throws Exception {
+        System.out.println("=== Student search: LIKE vs FTS5 (" + SEARCH_STUDENTS + " students) ===");
+        Path dir = Files.createTempDirectory("sms-bench");
+        ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("bench.db"),
+            2, 30_000, 0, 0, false, SqlitePragmaProfile.fromProperties(loadProperties()), 0);
+        
+        try {
+            try (Connection conn = pool.acquireWrite();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE students (id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "roll_number TEXT UNIQUE, name TEXT, email TEXT UNIQUE, phone TEXT)");
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT INTO students (roll_number, name, email, phone) VALUES (?, ?, ?, ?)")) {
+                    for (int i = 0; i < SEARCH_STUDENTS; i++) {
+                        String name = syntheticName(i);
+                        pstmt.setString(1, String.format("CS24%06d", i));
+                        pstmt.setString(2, name);
+                        pstmt.setString(3, name.toLowerCase().replace(' ', '.') + i + "@example.com");
+                        pstmt.setString(4, String.format("98%08d", i));
+                        pstmt.addBatch();
+                        if (i % 10_000 == 9_999) {
+                            pstmt.executeBatch();
+                        }
+                    }
+                    pstmt.executeBatch();
+                }
+                for (String sql : SchemaMigrator.SEARCH_INDEX_STATEMENTS) {
+                    stmt.execute(sql);
+                }
+                conn.commit();
+            }
+            
+            LatencyHistogram likeLatency = new LatencyHistogram();
+            LatencyHistogram ftsLatency = new LatencyHistogram();
+            try (Connection conn = pool.acquireRead();
+                 PreparedStatement like = conn.prepareStatement(
+                     "SELECT id FROM students WHERE name LIKE ? ORDER BY name LIMIT 50");
+                 PreparedStatement fts = conn.prepareStatement(
+                     "SELECT rowid FROM students_fts WHERE students_fts MATCH ? ORDER BY rank LIMIT 50")) {
+                for (int i = 0; i < SEARCH_QUERIES; i++) {
+                    String term = syntheticName(i * 7919).split(" ")[1].substring(0, 4);
+                    
+                    long start = System.nanoTime();
+                    like.setString(1, "%" + term + "%");
+                    drain(like);
+                    likeLatency.record(System.nanoTime() - start);
+                    
+                    start = System.nanoTime();
+                    fts.setString(1, DatabaseManager.buildFullTextQuery(term));
+                    drain(fts);
+                    ftsLatency.record(System.nanoTime() - start);
+                }
+            }
+            System.out.println("LIKE: " + likeLatency);
+            System.out.println("FTS5: " + ftsLatency);
+        } finally {
+            pool.shutdown();
+            deleteRecursively(dir.toFile());
+        }
+    }
+    
+    /**
+     * The credential lookup from AuthenticationManager.verifyCredentials, borrowing a
+     * read connection per call as the login path does, with and without the statement
+     * cache. Password hashing is left out so only the JDBC cost is measured.
+     */
+    private static void runStatementCacheBenchmark() throws Exception {
+        System.out.println("=== Login lookup: prepareStatement per call vs statement cache ===");
+        runLoginLookup("uncached", 0);
+        runLoginLookup("cached", 64);
+    }
+    
+    private static void runLoginLookup(String label, int statementCacheSize) throws Exception {
+        Path dir = Files.createTempDirectory("sms-bench");
+        ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("bench.db"), 2, 30_000, 0, 0,
+            false, SqlitePragmaProfile.fromProperties(loadProperties()), statementCacheSize);
+        String query = """
+            SELECT id, username, password_hash, email, role, is_active, last_login
+            FROM users
+            WHERE username = ? AND is_active = TRUE
+        """;
+        
+        try {
+            try (Connection conn = pool.acquireWrite();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE users (id INTEGER PRIMARY KEY AUTOINCREMENT, username VARCHAR(50) UNIQUE NOT NULL, "
+                    + "password_hash VARCHAR(255) NOT NULL, email VARCHAR(100) UNIQUE NOT NULL, role VARCHAR(20) NOT NULL, "
+                    + "is_active BOOLEAN DEFAULT TRUE, last_login TIMESTAMP)");
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT INTO users (username, password_hash, email, role) VALUES (?, ?, ?, 'USER')")) {
+                    for (int i = 0; i < LOGIN_USERS; i++) {
+                        pstmt.setString(1, "user" + i);
+                        pstmt.setString(2, "hash" + i);
+                        pstmt.setString(3, "user" + i + "@example.com");
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                conn.commit();
+            }
+            
+            LatencyHistogram latency = new LatencyHistogram();
+            for (int i = 0; i < LOGIN_WARMUP + LOGIN_ITERATIONS; i++) {
+                if (i == LOGIN_WARMUP) {
+                    latency.reset();
+                }
+                long start = System.nanoTime();
+                try (Connection conn = pool.acquireRead();
+                     PreparedStatement pstmt = conn.prepareStatement(query)) {
+                    pstmt.setString(1, "user" + (i % LOGIN_USERS));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        rs.next();
+                        rs.getString("password_hash");
+                    }
+                }
+                latency.record(System.nanoTime() - start);
+            }
+            
+            System.out.printf("%-9s mean=%.1fus  %s%n", label, latency.getMeanMillis() * 1000, latency);
+            System.out.printf("          statement cache: hits=%d misses=%d%n",
+                pool.getStatementCacheHits(), pool.getStatementCacheMisses());
+        } finally {
+            pool.shutdown();
+            deleteRecursively(dir.toFile());
+        }
+    }
+    
+    /**
+     * Full GPA recompute over GPA_STUDENTS x GPA_SUBJECTS grade rows: first with every
+     * student stale, then again with nothing to write back (the read side alone)
+     */
+    private static void runGpaBenchmark() throws Exception {
+        System.out.println("=== GPA recompute (" + GPA_STUDENTS * GPA_SUBJECTS + " grade rows) ===");
+        Path dir = Files.createTempDirectory("sms-bench");
+        ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("bench.db"),
+            READER_THREADS + 1, 30_000, 0, 0, false, SqlitePragmaProfile.fromProperties(loadProperties()), 64);
+        WriteTransactionRunner writeTransactions = new WriteTransactionRunner(pool, 5, 10, 500);
+        
+        try {
+            try (Connection conn = pool.acquireWrite();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE students (id INTEGER PRIMARY KEY, gpa DECIMAL(3,2) DEFAULT 0.00, "
+                    + "total_credits INTEGER DEFAULT 0)");
+                stmt.execute("CREATE TABLE subjects (id INTEGER PRIMARY KEY, credits INTEGER NOT NULL)");
+                stmt.execute("CREATE TABLE student_grades (id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "student_id INTEGER NOT NULL, subject_id INTEGER NOT NULL, semester INTEGER NOT NULL, "
+                    + "grade_points DECIMAL(3,2))");
+                stmt.execute("CREATE INDEX idx_grades_student_semester ON student_grades(student_id, semester)");
+                stmt.execute(series(GPA_STUDENTS) + "INSERT INTO students (id) SELECT value FROM series");
+                stmt.execute(series(GPA_SUBJECTS) + "INSERT INTO subjects (id, credits) SELECT value, 2 + value % 3 FROM series");
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT INTO student_grades (student_id, subject_id, semester, grade_points) VALUES (?, ?, ?, ?)")) {
+                    for (int student = 1; student <= GPA_STUDENTS; student++) {
+                        for (int subject = 1; subject <= GPA_SUBJECTS; subject++) {
+                            pstmt.setInt(1, student);
+                            pstmt.setInt(2, subject);
+                            pstmt.setInt(3, 1 + (subject - 1) / 5);
+                            pstmt.setDouble(4, ((student * 31 + subject * 17) % 101) / 10.0);
+                            pstmt.addBatch();
+                        }
+                        if (student % 1_000 == 0) {
+                            pstmt.executeBatch();
+                        }
+                    }
+                    pstmt.executeBatch();
+                }
+                conn.commit();
+            }
+            
+            GpaEngine engine = new GpaEngine(pool, writeTransactions, 2_000, 500, READER_THREADS);
+            System.out.println("all stale:   " + engine.recomputeAll());
+            System.out.println("up to date:  " + engine.recomputeAll());
+        } finally {
+            pool.shutdown();
+            deleteRecursively(dir.toFile());
+        }
+    }
+    
+    /**
+     * Authorization check on a live session: the old per-call role map against the
+     * session's cached permission mask, reporting time and heap allocated per check
+     */
+    private static void runPermissionBenchmark() {
+        System.out.println("=== Permission check: role map per call vs cached bitmask ===");
+        String[] roles = { AuthenticationManager.ROLE_ADMIN, AuthenticationManager.ROLE_TEACHER,
+                           AuthenticationManager.ROLE_STUDENT, AuthenticationManager.ROLE_STAFF };
+        Permission[] permissions = Permission.values();
+        UserSession[] sessions = new UserSession[roles.length];
+        for (int i = 0; i < roles.length; i++) {
+            User user = new User();
+            user.setRole(roles[i]);
+            sessions[i] = new UserSession(user, "token" + i, "127.0.0.1", "benchmark");
+        }
+        
+        measurePermissionChecks("role map", i -> {
+            UserSession session = sessions[i & 3];
+            if (session.isExpired()) {
+                return false;
+            }
+            session.extendSession();
+            return legacyCheckPermission(session.getUser().getRole(), permissions[i % permissions.length].name());
+        });
+        measurePermissionChecks("bitmask", i -> {
+            UserSession session = sessions[i & 3];
+            if (session.isExpired()) {
+                return false;
+            }
+            session.extendSession();
+            return session.hasPermission(permissions[i % permissions.length]);
+        });
+    }
+    
+    private static void measurePermissionChecks(String label, java.util.function.IntPredicate check) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int granted = 0;
+        for (int i = 0; i < PERMISSION_WARMUP; i++) {
+            granted += check.test(i) ? 1 : 0;
+        }
+        
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < PERMISSION_CHECKS; i++) {
+            granted += check.test(i) ? 1 : 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        
+        System.out.printf("%-9s %.1f ns/check  %.1f bytes/check  (granted %d)%n", label,
+            (double) elapsed / PERMISSION_CHECKS, (double) allocated / PERMISSION_CHECKS, granted);
+    }
+    
+    /**
+     * The role map as AuthenticationManager built it on every check before permissions
+     * became an enum, kept as the baseline
+     */
+    private static boolean legacyCheckPermission(String userRole, String requiredPermission) {
+        Map<String, Set<String>> permissions = new HashMap<>();
+        permissions.put(AuthenticationManager.ROLE_ADMIN, new HashSet<>(Arrays.asList(
+            "ALL", "USER_MANAGEMENT", "STUDENT_MANAGEMENT", "COURSE_MANAGEMENT",
+            "GRADE_MANAGEMENT", "SYSTEM_CONFIGURATION", "AUDIT_LOGS", "REPORTS")));
+        permissions.put(AuthenticationManager.ROLE_TEACHER, new HashSet<>(Arrays.asList(
+            "STUDENT_VIEW", "GRADE_MANAGEMENT", "COURSE_VIEW", "REPORTS")));
+        permissions.put(AuthenticationManager.ROLE_STUDENT, new HashSet<>(Arrays.asList(
+            "PROFILE_VIEW", "GRADE_VIEW", "COURSE_VIEW")));
+        permissions.put(AuthenticationManager.ROLE_STAFF, new HashSet<>(Arrays.asList(
+            "STUDENT_VIEW", "STUDENT_EDIT", "COURSE_VIEW", "REPORTS")));
+        
+        Set<String> userPermissions = permissions.get(userRole);
+        return userPermissions != null
+            && (userPermissions.contains(requiredPermission) || userPermissions.contains("ALL"));
+    }
+    
+    /**
+     * WITH clause defining series(value) as 1..count
+     */
+    private static String series(int count) {
+        return "WITH RECURSIVE series(value) AS (SELECT 1 UNION ALL SELECT value + 1 FROM series WHERE value < "
+             + count + ") ";
+    }
+    
+    private static String syntheticName(int i) {
+        return FIRST_NAMES[i % FIRST_NAMES.length] + " " + LAST_NAMES[(i / FIRST_NAMES.length) % LAST_NAMES.length];
+    }
+    
+    private static void drain(PreparedStatement pstmt) throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                rs.getInt(1);
+            }
+        }
+    }
+    
+    private static void seedTable(ConnectionPool pool) throws SQLException {
+        try (Connection conn = pool.acquireWrite();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE bench (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT)");
+            try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO bench (name) VALUES (?)")) {
+                for (int i = 0; i < SEED_ROWS; i++) {
+                    pstmt.setString(1, "seed-" + i);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+    
+    private static Properties loadProperties() {
+        Properties props = new Properties();
+        try (FileInputStream fis = new FileInputStream("database.properties")) {
+            props.load(fis);
+        } catch (IOException e) {
+            System.err.println("database.properties not found, tuned profile will be empty");
+        }
+        return props;
+    }
+    
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
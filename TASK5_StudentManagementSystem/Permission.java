@@ -0,0 +1,66 @@
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * Permissions granted to roles. Each role's permissions are a bitmask built once at
+ * class load; a session resolves its role's mask at login, so an authorization check
+ * is a single AND with no allocation.
+ */
+public enum Permission {
+    USER_MANAGEMENT,
+    STUDENT_MANAGEMENT,
+    STUDENT_VIEW,
+    STUDENT_EDIT,
+    COURSE_MANAGEMENT,
+    COURSE_VIEW,
+    GRADE_MANAGEMENT,
+    GRADE_VIEW,
+    PROFILE_VIEW,
+    SYSTEM_CONFIGURATION,
+    AUDIT_LOGS,
+    REPORTS;
+    
+    private static final long ALL = (1L << values().length) - 1;
+    private static final Map<String, Long> ROLE_MASKS = Map.of(
+        AuthenticationManager.ROLE_ADMIN, ALL,
+        AuthenticationManager.ROLE_TEACHER, mask(STUDENT_VIEW, GRADE_MANAGEMENT, COURSE_VIEW, REPORTS),
+        AuthenticationManager.ROLE_STUDENT, mask(PROFILE_VIEW, GRADE_VIEW, COURSE_VIEW),
+        AuthenticationManager.ROLE_STAFF, mask(STUDENT_VIEW, STUDENT_EDIT, COURSE_VIEW, REPORTS));
+    
+    public long bit() {
+        return 1L << ordinal();
+    }
+    
+    public boolean isGrantedBy(long mask) {
+        return (mask & bit()) != 0;
+    }
+    
+    public static long mask(Permission... permissions) {
+        long mask = 0;
+        for (Permission permission : permissions) {
+            mask |= permission.bit();
+        }
+        return mask;
+    }
+    
+    /**
+     * Mask for a role; unknown roles get no permissions
+     */
+    public static long maskForRole(String role) {
+        Long mask = role != null ? ROLE_MASKS.get(role) : null;
+        return mask != null ? mask : 0L;
+    }
+    
+    /**
+     * The permissions in a mask, e.g. for display
+     */
+    public static EnumSet<Permission> fromMask(long mask) {
+        EnumSet<Permission> permissions = EnumSet.noneOf(Permission.class);
+        for (Permission permission : values()) {
+            if (permission.isGrantedBy(mask)) {
+                permissions.add(permission);
+            }
+        }
+        return permissions;
+    }
+}
@@ -0,0 +1,313 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Per-query-shape timing for every statement issued through the connection pool.
+ * Statements are wrapped in proxies that time each execute call; for queries the
+ * clock runs until the result set is closed, since SQLite does most of the work
+ * while rows are stepped. SQL is reduced to a shape (literals replaced by ?,
+ * whitespace collapsed) so the same query with different values shares one
+ * histogram. Statements slower than the threshold are written to the slow-query
+ * log together with their EXPLAIN QUERY PLAN.
+ */
+public class QueryMetrics {
+    private static final int MAX_SHAPES = 1000;
+    private static final int MAX_CACHED_SQL = 4000;
+    private static final String OTHER_SHAPE = "<other>";
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    
+    private final Map<String, ShapeStats> shapes;
+    private final Map<String, String> shapeCache;
+    private final Map<String, String> queryPlans;
+    private final LatencyHistogram commitHistogram;
+    private final LongAdder slowQueries;
+    private final long slowThresholdNanos;
+    private final SlowQueryLog slowQueryLog;
+    
+    /**
+     * slowQueryLog may be null to collect metrics without logging slow statements
+     */
+    public QueryMetrics(long slowThresholdMillis, SlowQueryLog slowQueryLog) {
+        this.shapes = new ConcurrentHashMap<>();
+        this.shapeCache = new ConcurrentHashMap<>();
+        this.queryPlans = new ConcurrentHashMap<>();
+        this.commitHistogram = new LatencyHistogram();
+        this.slowQueries = new LongAdder();
+        this.slowThresholdNanos = slowThresholdMillis * 1_000_000L;
+        this.slowQueryLog = slowQueryLog;
+    }
+    
+    /**
+     * Reduce SQL to its shape: literals become ?, IN lists collapse, whitespace is normalised
+     */
+    static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("IN (?...)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+    
+    /**
+     * Wrap a statement returned by the pool. sql is the prepared SQL, or null for
+     * plain statements whose SQL arrives with each execute call.
+     */
+    Statement instrument(Statement statement, Class<?> type, String sql) {
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { type },
+            new TimedStatementHandler(statement, sql));
+    }
+    
+    void recordCommit(long nanos) {
+        commitHistogram.record(nanos);
+    }
+    
+    private void record(String sql, long nanos, long rows, boolean failed, Statement statement) {
+        // Prepared SQL repeats, so normalise each distinct text only once
+        String shape = shapeCache.get(sql);
+        if (shape == null) {
+            shape = shapeOf(sql);
+            if (shapeCache.size() < MAX_CACHED_SQL) {
+                shapeCache.put(sql, shape);
+            }
+        }
+        ShapeStats stats = shapes.get(shape);
+        if (stats == null) {
+            stats = shapes.size() < MAX_SHAPES
+                ? shapes.computeIfAbsent(shape, k -> new ShapeStats())
+                : shapes.computeIfAbsent(OTHER_SHAPE, k -> new ShapeStats());
+        }
+        stats.latency.record(nanos);
+        stats.rows.add(rows);
+        if (failed) {
+            stats.errors.increment();
+        }
+        
+        if (nanos >= slowThresholdNanos && slowThresholdNanos > 0) {
+            slowQueries.increment();
+            if (slowQueryLog != null) {
+                slowQueryLog.write(sql, nanos, rows, explain(shape, sql, statement));
+            }
+        }
+    }
+    
+    /**
+     * Query plan for a slow statement, computed once per shape on the connection that ran it
+     */
+    private String explain(String shape, String sql, Statement statement) {
+        String plan = queryPlans.get(shape);
+        if (plan != null) {
+            return plan;
+        }
+        String trimmed = sql.trim().toUpperCase();
+        if (!trimmed.startsWith("SELECT") && !trimmed.startsWith("WITH") && !trimmed.startsWith("UPDATE")
+                && !trimmed.startsWith("DELETE") && !trimmed.startsWith("INSERT")) {
+            return "(no plan for this statement type)";
+        }
+        
+        StringBuilder out = new StringBuilder();
+        try {
+            // The unwrapped physical connection keeps EXPLAIN out of the cache and the metrics
+            Connection conn = statement.getConnection().unwrap(Connection.class);
+            try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+                int params = pstmt.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= params; i++) {
+                    pstmt.setNull(i, Types.NULL);
+                }
+                Map<Integer, Integer> depth = new HashMap<>();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int level = depth.getOrDefault(rs.getInt(2), -1) + 1;
+                        depth.put(rs.getInt(1), level);
+                        out.append("  ".repeat(level + 1)).append(rs.getString(4)).append('\n');
+                    }
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            return "(plan unavailable: " + e.getMessage() + ")";
+        }
+        plan = out.toString();
+        if (queryPlans.size() < MAX_SHAPES) {
+            queryPlans.put(shape, plan);
+        }
+        return plan;
+    }
+    
+    /**
+     * Point-in-time copy of all metrics, busiest shapes (by total time) first
+     */
+    public QueryMetricsSnapshot snapshot(ConnectionPool pool) {
+        List<QueryShapeSnapshot> shapeSnapshots = new ArrayList<>();
+        for (Map.Entry<String, ShapeStats> entry : shapes.entrySet()) {
+            ShapeStats stats = entry.getValue();
+            LatencyHistogram h = stats.latency;
+            shapeSnapshots.add(new QueryShapeSnapshot(entry.getKey(), h.getCount(), h.getMeanMillis(),
+                h.getPercentileMillis(50), h.getPercentileMillis(95), h.getPercentileMillis(99),
+                h.getMaxMillis(), stats.rows.sum(), stats.errors.sum()));
+        }
+        shapeSnapshots.sort(Comparator.comparingDouble(QueryShapeSnapshot::getTotalMillis).reversed());
+        
+        return new QueryMetricsSnapshot(shapeSnapshots, commitHistogram.toString(),
+            pool.getReadWaitHistogram().toString(), pool.getWriteWaitHistogram().toString(),
+            pool.getStatementCacheHits(), pool.getStatementCacheMisses(), slowQueries.sum());
+    }
+    
+    public void reset() {
+        shapes.clear();
+        shapeCache.clear();
+        queryPlans.clear();
+        commitHistogram.reset();
+        slowQueries.reset();
+    }
+    
+    private static final class ShapeStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+    }
+    
+    /**
+     * Times execute calls. Queries are timed until their result set is closed,
+     * or until the statement is closed if the caller never closes the result set.
+     */
+    private final class TimedStatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String preparedSql;
+        private TimedResultSetHandler openQuery;
+        
+        TimedStatementHandler(Statement statement, String preparedSql) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+        
+        @Override
+        public Object invoke(Object proxyInstance, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                finishOpenQuery();
+                return forward(method, args);
+            }
+            if (!name.startsWith("execute")) {
+                return forward(method, args);
+            }
+            
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            if (sql == null) {
+                return forward(method, args);
+            }
+            finishOpenQuery();
+            
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = forward(method, args);
+            } catch (Throwable e) {
+                record(sql, System.nanoTime() - start, 0, true, statement);
+                throw e;
+            }
+            
+            if (result instanceof ResultSet) {
+                openQuery = new TimedResultSetHandler((ResultSet) result, sql, start);
+                return Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class }, openQuery);
+            }
+            record(sql, System.nanoTime() - start, affectedRows(result), false, statement);
+            return result;
+        }
+        
+        private long affectedRows(Object result) {
+            if (result instanceof Integer || result instanceof Long) {
+                return Math.max(0, ((Number) result).longValue());
+            }
+            if (result instanceof int[]) {
+                long total = 0;
+                for (int count : (int[]) result) {
+                    total += Math.max(0, count);
+                }
+                return total;
+            }
+            return 0;
+        }
+        
+        private void finishOpenQuery() {
+            if (openQuery != null) {
+                openQuery.finish();
+                openQuery = null;
+            }
+        }
+        
+        private Object forward(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+        
+        /**
+         * Counts rows as they are stepped and records the query once, when it is finished
+         */
+        private final class TimedResultSetHandler implements InvocationHandler {
+            private final ResultSet resultSet;
+            private final String sql;
+            private final long start;
+            private long rows;
+            private boolean finished;
+            
+            TimedResultSetHandler(ResultSet resultSet, String sql, long start) {
+                this.resultSet = resultSet;
+                this.sql = sql;
+                this.start = start;
+            }
+            
+            @Override
+            public Object invoke(Object proxyInstance, Method method, Object[] args) throws Throwable {
+                Object result;
+                try {
+                    result = method.invoke(resultSet, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                switch (method.getName()) {
+                    case "next":
+                        if (Boolean.TRUE.equals(result)) {
+                            rows++;
+                        } else {
+                            finish();
+                        }
+                        break;
+                    case "close":
+                        finish();
+                        break;
+                    default:
+                        break;
+                }
+                return result;
+            }
+            
+            void finish() {
+                if (!finished) {
+                    finished = true;
+                    record(sql, System.nanoTime() - start, rows, false, statement);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.List;
+
+/**
+ * Immutable copy of the query metrics for display
+ */
+class QueryMetricsSnapshot {
+    private final List<QueryShapeSnapshot> shapes;
+    private final String commitLatency;
+    private final String readWait;
+    private final String writeWait;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    private final long slowQueries;
+    
+    public QueryMetricsSnapshot(List<QueryShapeSnapshot> shapes, String commitLatency, String readWait,
+                                String writeWait, long statementCacheHits, long statementCacheMisses,
+                                long slowQueries) {
+        this.shapes = shapes;
+        this.commitLatency = commitLatency;
+        this.readWait = readWait;
+        this.writeWait = writeWait;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.slowQueries = slowQueries;
+    }
+    
+    public List<QueryShapeSnapshot> getShapes() { return shapes; }
+    public String getCommitLatency() { return commitLatency; }
+    public String getReadWait() { return readWait; }
+    public String getWriteWait() { return writeWait; }
+    public long getStatementCacheHits() { return statementCacheHits; }
+    public long getStatementCacheMisses() { return statementCacheMisses; }
+    public long getSlowQueries() { return slowQueries; }
+    
+    /**
+     * Summary lines shown above the per-query table
+     */
+    public String getSummary() {
+        return "Commits:    " + commitLatency + "\n"
+             + "Read wait:  " + readWait + "\n"
+             + "Write wait: " + writeWait + "\n"
+             + "Statement cache: " + statementCacheHits + " hits, " + statementCacheMisses + " misses; "
+             + "slow queries: " + slowQueries;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder(getSummary()).append('\n');
+        for (QueryShapeSnapshot shape : shapes) {
+            out.append(shape).append('\n');
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Latency percentiles and row counts for one query shape
+ */
+class QueryShapeSnapshot {
+    private final String sql;
+    private final long count;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p95Millis;
+    private final double p99Millis;
+    private final double maxMillis;
+    private final long rows;
+    private final long errors;
+    
+    public QueryShapeSnapshot(String sql, long count, double meanMillis, double p50Millis, double p95Millis,
+                              double p99Millis, double maxMillis, long rows, long errors) {
+        this.sql = sql;
+        this.count = count;
+        this.meanMillis = meanMillis;
+        this.p50Millis = p50Millis;
+        this.p95Millis = p95Millis;
+        this.p99Millis = p99Millis;
+        this.maxMillis = maxMillis;
+        this.rows = rows;
+        this.errors = errors;
+    }
+    
+    public String getSql() { return sql; }
+    public long getCount() { return count; }
+    public double getMeanMillis() { return meanMillis; }
+    public double getP50Millis() { return p50Millis; }
+    public double getP95Millis() { return p95Millis; }
+    public double getP99Millis() { return p99Millis; }
+    public double getMaxMillis() { return maxMillis; }
+    public long getRows() { return rows; }
+    public long getErrors() { return errors; }
+    public double getTotalMillis() { return meanMillis * count; }
+    
+    @Override
+    public String toString() {
+        return String.format("%8d  p50=%.2f p95=%.2f p99=%.2f max=%.2f ms  rows=%d errors=%d  %s",
+            count, p50Millis, p95Millis, p99Millis, maxMillis, rows, errors, sql);
+    }
+}
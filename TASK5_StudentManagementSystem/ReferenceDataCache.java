@@ -0,0 +1,230 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory copy of the courses and subjects tables. Each load builds a new immutable
+ * snapshot (maps by id, code and name) that readers use without locking.
+ *
+ * Triggers bump the 'courses' and 'subjects' rows of data_versions on every change, so
+ * refreshIfChanged() costs one primary-key read when nothing changed. It runs on a
+ * schedule to pick up edits made by other processes, and writes made through
+ * DatabaseManager.inReferenceDataTransaction reload the cache as soon as they commit.
+ */
+public class ReferenceDataCache {
+    private static final String VERSION_QUERY =
+        "SELECT TOTAL(version) FROM data_versions WHERE name IN ('courses', 'subjects')";
+    
+    private final ConnectionPool connectionPool;
+    private final ScheduledExecutorService scheduler;
+    private final Object loadLock = new Object();
+    private volatile Snapshot snapshot = new Snapshot(-1, List.of(), List.of());
+    
+    public ReferenceDataCache(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reference-data");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    /**
+     * Check the version stamp every intervalSeconds and reload if it moved
+     */
+    public void schedule(int intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refreshIfChanged();
+            } catch (Exception e) {
+                System.err.println("Reference data refresh failed: " + e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+    
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    /**
+     * Reload both tables unconditionally
+     */
+    public void load() throws SQLException {
+        synchronized (loadLock) {
+            try (Connection conn = connectionPool.acquireRead()) {
+                snapshot = read(conn, readVersion(conn));
+            }
+        }
+    }
+    
+    /**
+     * Reload if courses or subjects changed since the last load; returns true if it did
+     */
+    public boolean refreshIfChanged() throws SQLException {
+        try (Connection conn = connectionPool.acquireRead()) {
+            long version = readVersion(conn);
+            if (version == snapshot.version) {
+                return false;
+            }
+            synchronized (loadLock) {
+                if (version != snapshot.version) {
+                    snapshot = read(conn, version);
+                }
+            }
+            return true;
+        }
+    }
+    
+    private static long readVersion(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(VERSION_QUERY);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+    
+    /**
+     * The version is read before the rows, so a change made in between only causes one
+     * extra reload on the next check, never a stale snapshot with a current version
+     */
+    private static Snapshot read(Connection conn, long version) throws SQLException {
+        List<Course> courses = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT id, code, name, department, duration_months, total_credits, is_active " +
+                "FROM courses ORDER BY name");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                courses.add(new Course(rs.getInt("id"), rs.getString("code"), rs.getString("name"),
+                    rs.getString("department"), rs.getInt("duration_months"), rs.getInt("total_credits"),
+                    rs.getBoolean("is_active")));
+            }
+        }
+        
+        List<Subject> subjects = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT id, code, name, credits, course_id, semester, is_core, is_active " +
+                "FROM subjects ORDER BY course_id, semester, code");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                subjects.add(new Subject(rs.getInt("id"), rs.getString("code"), rs.getString("name"),
+                    rs.getInt("credits"), rs.getInt("course_id"), rs.getInt("semester"),
+                    rs.getBoolean("is_core"), rs.getBoolean("is_active")));
+            }
+        }
+        return new Snapshot(version, courses, subjects);
+    }
+    
+    public Course getCourse(Integer id) {
+        return id != null ? snapshot.coursesById.get(id) : null;
+    }
+    
+    /**
+     * Course by code or name, ignoring case
+     */
+    public Course findCourse(String codeOrName) {
+        if (codeOrName == null) {
+            return null;
+        }
+        String key = codeOrName.trim().toLowerCase(Locale.ROOT);
+        Snapshot current = snapshot;
+        Course course = current.coursesByCode.get(key);
+        return course != null ? course : current.coursesByName.get(key);
+    }
+    
+    /**
+     * Every course, ordered by name
+     */
+    public List<Course> getCourses() {
+        return snapshot.courses;
+    }
+    
+    /**
+     * Active courses, ordered by name, e.g. for selection lists
+     */
+    public List<Course> getActiveCourses() {
+        return snapshot.activeCourses;
+    }
+    
+    public Subject getSubject(Integer id) {
+        return id != null ? snapshot.subjectsById.get(id) : null;
+    }
+    
+    public Subject findSubject(String code) {
+        return code != null ? snapshot.subjectsByCode.get(code.trim().toLowerCase(Locale.ROOT)) : null;
+    }
+    
+    /**
+     * Subjects of a course ordered by semester and code
+     */
+    public List<Subject> getSubjects(int courseId) {
+        return snapshot.subjectsByCourse.getOrDefault(courseId, List.of());
+    }
+    
+    public long getVersion() {
+        return snapshot.version;
+    }
+    
+    /**
+     * One consistent, immutable view of both tables
+     */
+    private static final class Snapshot {
+        final long version;
+        final List<Course> courses;
+        final List<Course> activeCourses;
+        final Map<Integer, Course> coursesById;
+        final Map<String, Course> coursesByCode;
+        final Map<String, Course> coursesByName;
+        final Map<Integer, Subject> subjectsById;
+        final Map<String, Subject> subjectsByCode;
+        final Map<Integer, List<Subject>> subjectsByCourse;
+        
+        Snapshot(long version, List<Course> courses, List<Subject> subjects) {
+            this.version = version;
+            this.courses = List.copyOf(courses);
+            List<Course> active = new ArrayList<>();
+            Map<Integer, Course> byId = new HashMap<>();
+            Map<String, Course> byCode = new HashMap<>();
+            Map<String, Course> byName = new HashMap<>();
+            for (Course course : courses) {
+                if (course.isActive()) {
+                    active.add(course);
+                }
+                byId.put(course.getId(), course);
+                byCode.put(course.getCode().toLowerCase(Locale.ROOT), course);
+                // Names are not unique; an active course wins over a retired one
+                byName.merge(course.getName().toLowerCase(Locale.ROOT), course,
+                    (existing, other) -> existing.isActive() ? existing : other);
+            }
+            this.activeCourses = List.copyOf(active);
+            this.coursesById = Map.copyOf(byId);
+            this.coursesByCode = Map.copyOf(byCode);
+            this.coursesByName = Map.copyOf(byName);
+            
+            Map<Integer, Subject> subjectById = new HashMap<>();
+            Map<String, Subject> subjectByCode = new HashMap<>();
+            Map<Integer, List<Subject>> byCourse = new LinkedHashMap<>();
+            for (Subject subject : subjects) {
+                subjectById.put(subject.getId(), subject);
+                subjectByCode.put(subject.getCode().toLowerCase(Locale.ROOT), subject);
+                byCourse.computeIfAbsent(subject.getCourseId(), k -> new ArrayList<>()).add(subject);
+            }
+            byCourse.replaceAll((courseId, list) -> List.copyOf(list));
+            this.subjectsById = Map.copyOf(subjectById);
+            this.subjectsByCode = Map.copyOf(subjectByCode);
+            this.subjectsByCourse = Collections.unmodifiableMap(byCourse);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * Rendered text and HTML for one student, waiting to be zipped
+ */
+class RenderedTranscript {
+    final String name;
+    final byte[] text;
+    final byte[] html;
+    
+    RenderedTranscript(String name, byte[] text, byte[] html) {
+        this.name = name;
+        this.text = text;
+        this.html = html;
+    }
+}
@@ -0,0 +1,161 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues roll numbers of the form [COURSE_CODE][YY][SEQUENCE] from a sequence table
+ * keyed by (course_code, year). Numbers are reserved from the database in blocks, so
+ * most allocations never touch the database, and two admissions can never receive the
+ * same number. Numbers left in a block at shutdown are skipped, leaving harmless gaps.
+ *
+ * Reservations run through the WriteTransactionRunner. Called while the thread holds
+ * the writer, a reservation joins that transaction and bypasses the in-process block,
+ * so numbers are only handed out if the caller's work commits.
+ */
+public class RollNumberAllocator {
+    private static final String DEFAULT_COURSE_CODE = "GEN";
+    
+    private final ConnectionPool connectionPool;
+    private final WriteTransactionRunner writeTransactions;
+    private final int blockSize;
+    private final Map<String, SequenceBlock> blocks;
+    private final ReferenceDataCache referenceData;
+    
+    public RollNumberAllocator(ConnectionPool connectionPool, WriteTransactionRunner writeTransactions,
+                               ReferenceDataCache referenceData, int blockSize) {
+        this.connectionPool = connectionPool;
+        this.writeTransactions = writeTransactions;
+        this.referenceData = referenceData;
+        this.blockSize = Math.max(1, blockSize);
+        this.blocks = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Next roll number for the course in the current year
+     */
+    public String next(Integer courseId) throws SQLException {
+        String prefix = prefix(courseId);
+        if (connectionPool.getCurrentWriter() != null) {
+            // A block reserved here would outlive a rollback of the caller's transaction
+            String year = prefix.substring(prefix.length() - 2);
+            return format(prefix, reserve(prefix.substring(0, prefix.length() - 2), year, 1) - 1);
+        }
+        SequenceBlock block = blocks.computeIfAbsent(prefix, k -> new SequenceBlock());
+        
+        synchronized (block) {
+            if (block.next >= block.end) {
+                String year = prefix.substring(prefix.length() - 2);
+                long end = reserve(prefix.substring(0, prefix.length() - 2), year, blockSize);
+                block.next = end - blockSize;
+                block.end = end;
+            }
+            return format(prefix, block.next++);
+        }
+    }
+    
+    /**
+     * Reserve count consecutive roll numbers with a single database round trip,
+     * bypassing the in-process block (used by bulk admission)
+     */
+    public List<String> allocate(Integer courseId, int count) throws SQLException {
+        List<String> rollNumbers = new ArrayList<>(count);
+        if (count <= 0) {
+            return rollNumbers;
+        }
+        String prefix = prefix(courseId);
+        String year = prefix.substring(prefix.length() - 2);
+        long end = reserve(prefix.substring(0, prefix.length() - 2), year, count);
+        for (long value = end - count; value < end; value++) {
+            rollNumbers.add(format(prefix, value));
+        }
+        return rollNumbers;
+    }
+    
+    /**
+     * Atomically advance the (course_code, year) sequence by count and return the new
+     * exclusive upper bound. The first reservation for a sequence is seeded from the
+     * highest roll number already in students, so existing data is never reissued.
+     */
+    private long reserve(String courseCode, String year, int count) throws SQLException {
+        return writeTransactions.run(conn -> {
+            long end;
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "UPDATE roll_number_sequences SET next_value = next_value + ? " +
+                    "WHERE course_code = ? AND year = ? RETURNING next_value")) {
+                pstmt.setInt(1, count);
+                pstmt.setString(2, courseCode);
+                pstmt.setString(3, year);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    end = rs.next() ? rs.getLong(1) : -1;
+                }
+            }
+            
+            if (end < 0) {
+                end = findHighestSequence(conn, courseCode + year) + 1 + count;
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT INTO roll_number_sequences (course_code, year, next_value) VALUES (?, ?, ?)")) {
+                    pstmt.setString(1, courseCode);
+                    pstmt.setString(2, year);
+                    pstmt.setLong(3, end);
+                    pstmt.executeUpdate();
+                }
+            }
+            return end;
+        });
+    }
+    
+    /**
+     * Highest numeric sequence already used under the prefix (compared as numbers,
+     * so CS241000 sorts after CS24999)
+     */
+    private long findHighestSequence(Connection conn, String prefix) throws SQLException {
+        String sql = "SELECT MAX(CAST(SUBSTR(roll_number, ?) AS INTEGER)) FROM students " +
+                     "WHERE roll_number LIKE ? AND SUBSTR(roll_number, ?) GLOB '[0-9]*'";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, prefix.length() + 1);
+            pstmt.setString(2, prefix + "%");
+            pstmt.setInt(3, prefix.length() + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+    
+    private String prefix(Integer courseId) throws SQLException {
+        String year = String.valueOf(LocalDate.now().getYear()).substring(2);
+        return courseCode(courseId) + year;
+    }
+    
+    /**
+     * Course code for the id, from the reference data cache
+     */
+    public String courseCode(Integer courseId) throws SQLException {
+        if (courseId == null) {
+            return DEFAULT_COURSE_CODE;
+        }
+        Course course = referenceData.getCourse(courseId);
+        // A course added by another process may not have been polled yet
+        if (course == null && referenceData.refreshIfChanged()) {
+            course = referenceData.getCourse(courseId);
+        }
+        return course != null ? course.getCode() : DEFAULT_COURSE_CODE;
+    }
+    
+    private static String format(String prefix, long value) {
+        return prefix + String.format("%03d", value);
+    }
+    
+    /**
+     * Range [next, end) of numbers reserved by this process for one prefix
+     */
+    private static final class SequenceBlock {
+        private long next;
+        private long end;
+    }
+}
@@ -0,0 +1,599 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Brings the database schema up to date with an ordered list of versioned migrations.
+ * Each applied migration is recorded in schema_version with a SHA-256 checksum of its
+ * SQL, so an edited migration is detected instead of silently diverging. Pending
+ * migrations are applied together in one writer transaction. On a warm start the
+ * recorded versions are checked on a reader and no DDL runs at all.
+ *
+ * Migrations are append-only: once released, change the schema by adding a new one.
+ * SQL that the triggers share with queries elsewhere (the GPA aggregate, the statistics
+ * buckets) is defined once here and read by GpaEngine and StudentStatisticsEngine, so
+ * an edit to it fails the checksum check rather than drifting from the triggers.
+ */
+public class SchemaMigrator {
+    /**
+     * Credit-weighted mean of grade_points over graded subjects, rounded to two places,
+     * for grades g joined to their subjects sub as in GRADES_JOIN
+     */
+    static final String GPA_EXPRESSION =
+        "COALESCE(ROUND(TOTAL(g.grade_points * sub.credits) / "
+        + "NULLIF(SUM(CASE WHEN g.grade_points IS NOT NULL THEN sub.credits END), 0), 2), 0)";
+    /**
+     * Credits of the subjects passed (grade_points > 0)
+     */
+    static final String CREDITS_EXPRESSION = "COALESCE(SUM(CASE WHEN g.grade_points > 0 THEN sub.credits END), 0)";
+    static final String GRADES_JOIN = "FROM student_grades g LEFT JOIN subjects sub ON sub.id = g.subject_id";
+    
+    private static final String ACTIVE = "%1$s.status = 'ACTIVE'";
+    private static final String GPA_VALUE = "CASE WHEN %1$s.gpa > 0 THEN %1$s.gpa ELSE 0 END";
+    private static final String GPA_COUNTED = "CASE WHEN %1$s.gpa > 0 THEN 1 ELSE 0 END";
+    
+    /**
+     * Statistics summary dimensions over students: name, bucket expression and row
+     * filter (null for every student), with %1$s standing for the row alias
+     */
+    private static final String[][] STUDENT_DIMENSIONS = {
+        { "status", "COALESCE(%1$s.status, 'UNKNOWN')", null },
+        { "course", "COALESCE(%1$s.course_id, 0)", ACTIVE },
+        { "gender", "COALESCE(%1$s.gender, 'Unknown')", ACTIVE },
+        { "standing", "CASE WHEN %1$s.gpa IS NULL OR %1$s.gpa <= 0 THEN 'Not Available' "
+                    + "WHEN %1$s.gpa >= 3.5 THEN 'Dean''s List' "
+                    + "WHEN %1$s.gpa >= 3.0 THEN 'Good Standing' "
+                    + "WHEN %1$s.gpa >= 2.0 THEN 'Academic Warning' "
+                    + "ELSE 'Academic Probation' END", ACTIVE },
+        { "birth_year", "COALESCE(strftime('%%Y', " + sqlDate("%1$s.date_of_birth") + "), 'Unknown')", ACTIVE },
+        { "enrolled_month", "COALESCE(strftime('%%Y-%%m', " + sqlDate("%1$s.enrollment_date") + "), 'Unknown')", null }
+    };
+    
+    /**
+     * Adds one row's contribution to a summary bucket: dimension, bucket, then either
+     * VALUES or a SELECT with a WHERE (an upsert needs one or the other to parse)
+     */
+    private static final String SUMMARY_UPSERT = """
+        INSERT INTO student_stats_summary (dimension, bucket, student_count, gpa_sum, gpa_count)
+        %s
+        ON CONFLICT (dimension, bucket) DO UPDATE SET
+            student_count = student_count + excluded.student_count,
+            gpa_sum = gpa_sum + excluded.gpa_sum,
+            gpa_count = gpa_count + excluded.gpa_count;
+        """;
+    
+    /**
+     * FTS5 index over student name, roll number, email and phone, as created by
+     * migration 2: an external-content table kept in sync with students by triggers
+     * and rebuilt from existing rows once they are in place
+     */
+    static final List<String> SEARCH_INDEX_STATEMENTS = List.of(
+        """
+            CREATE VIRTUAL TABLE IF NOT EXISTS students_fts USING fts5(
+                name, roll_number, email, phone,
+                content = 'students', content_rowid = 'id',
+                tokenize = 'unicode61', prefix = '2 3'
+            )
+        """,
+        """
+            CREATE TRIGGER IF NOT EXISTS students_fts_insert AFTER INSERT ON students BEGIN
+                INSERT INTO students_fts (rowid, name, roll_number, email, phone)
+                VALUES (new.id, new.name, new.roll_number, new.email, new.phone);
+            END
+        """,
+        """
+            CREATE TRIGGER IF NOT EXISTS students_fts_delete AFTER DELETE ON students BEGIN
+                INSERT INTO students_fts (students_fts, rowid, name, roll_number, email, phone)
+                VALUES ('delete', old.id, old.name, old.roll_number, old.email, old.phone);
+            END
+        """,
+        """
+            CREATE TRIGGER IF NOT EXISTS students_fts_update
+            AFTER UPDATE OF name, roll_number, email, phone ON students BEGIN
+                INSERT INTO students_fts (students_fts, rowid, name, roll_number, email, phone)
+                VALUES ('delete', old.id, old.name, old.roll_number, old.email, old.phone);
+                INSERT INTO students_fts (rowid, name, roll_number, email, phone)
+                VALUES (new.id, new.name, new.roll_number, new.email, new.phone);
+            END
+        """,
+        "INSERT INTO students_fts (students_fts) VALUES ('rebuild')"
+    );
+    
+    private static final List<Migration> MIGRATIONS = List.of(
+        new Migration(1, "Baseline schema", baselineStatements()),
+        new Migration(2, "Full-text index for student search", SEARCH_INDEX_STATEMENTS),
+        new Migration(3, "Index students for keyset search and statistics", List.of(
+            "CREATE INDEX IF NOT EXISTS idx_students_name ON students(name)",
+            "CREATE INDEX IF NOT EXISTS idx_students_status_gpa ON students(status, gpa)"
+        )),
+        new Migration(4, "Maintain student statistics in a summary table", statisticsSummaryStatements()),
+        new Migration(5, "Roll number sequences", List.of("""
+            CREATE TABLE IF NOT EXISTS roll_number_sequences (
+                course_code VARCHAR(20) NOT NULL,
+                year VARCHAR(2) NOT NULL,
+                next_value INTEGER NOT NULL,
+                PRIMARY KEY (course_code, year)
+            ) WITHOUT ROWID
+            """
+        )),
+        new Migration(6, "Backup history", List.of("""
+            CREATE TABLE IF NOT EXISTS backup_history (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                file_name VARCHAR(255) NOT NULL,
+                status VARCHAR(20) NOT NULL,
+                started_at TIMESTAMP NOT NULL,
+                heartbeat_at TIMESTAMP,
+                finished_at TIMESTAMP,
+                snapshot_bytes INTEGER,
+                compressed_bytes INTEGER,
+                sha256 VARCHAR(64),
+                max_writer_stall_ms REAL,
+                error_message TEXT
+            )
+            """
+        )),
+        new Migration(7, "Replace redundant indexes with composite indexes", List.of(
+            // roll_number, email and username are UNIQUE, which already creates an index
+            "DROP INDEX IF EXISTS idx_students_roll_number",
+            "DROP INDEX IF EXISTS idx_students_email",
+            "DROP INDEX IF EXISTS idx_users_username",
+            // Searches filter on status and course and page through results by name
+            "CREATE INDEX IF NOT EXISTS idx_students_status_course ON students(status, course_id, name)",
+            // Transcripts and GPA read a student's grades semester by semester
+            "DROP INDEX IF EXISTS idx_grades_student",
+            "CREATE INDEX IF NOT EXISTS idx_grades_student_semester ON student_grades(student_id, semester)"
+        )),
+        new Migration(8, "Derive GPA and credits from grades", List.of(
+            // Keep gpa and total_credits in step with grades and subject credits
+            gpaTrigger("grades_gpa_insert", "AFTER INSERT ON student_grades", "id = new.student_id"),
+            gpaTrigger("grades_gpa_update", "AFTER UPDATE OF student_id, subject_id, grade_points ON student_grades",
+                       "id IN (old.student_id, new.student_id)"),
+            gpaTrigger("grades_gpa_delete", "AFTER DELETE ON student_grades", "id = old.student_id"),
+            gpaTrigger("subjects_gpa_update", "AFTER UPDATE OF credits ON subjects",
+                       "id IN (SELECT student_id FROM student_grades WHERE subject_id = new.id)"),
+            // One-off recompute of every student that has grades
+            gpaRecompute(null)
+        )),
+        new Migration(9, "Partition the audit log by month", List.of(
+            // Partition catalog, keyset indexes on the hot table and the union view
+            """
+            CREATE TABLE IF NOT EXISTS audit_partitions (
+                period VARCHAR(7) PRIMARY KEY,
+                table_name VARCHAR(30) NOT NULL,
+                state VARCHAR(10) NOT NULL,
+                row_count INTEGER NOT NULL,
+                min_id INTEGER,
+                max_id INTEGER,
+                min_timestamp TIMESTAMP,
+                max_timestamp TIMESTAMP,
+                archive_file VARCHAR(255),
+                archived_at TIMESTAMP
+            )
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_audit_user ON audit_log(user_id, id)",
+            "CREATE INDEX IF NOT EXISTS idx_audit_action ON audit_log(action, id)",
+            """
+            CREATE VIEW IF NOT EXISTS audit_log_all AS
+            SELECT id, user_id, action, table_name, record_id, old_values, new_values, ip_address,
+                   user_agent, timestamp
+            FROM audit_log
+            """
+        )),
+        new Migration(10, "Index audit entries by record", List.of(
+            // Student history reads one record's entries newest first
+            "CREATE INDEX IF NOT EXISTS idx_audit_record ON audit_log(table_name, record_id, id)"
+        )),
+        new Migration(11, "Track course and subject versions", concat(
+            versionCounterStatements("courses"), versionCounterStatements("subjects"))),
+        new Migration(12, "Persist login lockouts", List.of("""
+            CREATE TABLE IF NOT EXISTS login_lockouts (
+                throttle_key VARCHAR(300) PRIMARY KEY,
+                locked_until INTEGER NOT NULL
+            ) WITHOUT ROWID
+            """
+        ))
+    );
+    
+    private final ConnectionPool connectionPool;
+    private final List<Migration> migrations;
+    
+    public SchemaMigrator(ConnectionPool connectionPool) {
+        this(connectionPool, MIGRATIONS);
+    }
+    
+    SchemaMigrator(ConnectionPool connectionPool, List<Migration> migrations) {
+        this.connectionPool = connectionPool;
+        this.migrations = migrations;
+    }
+    
+    /**
+     * Latest schema version this build knows about
+     */
+    public int getLatestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).getVersion();
+    }
+    
+    /**
+     * Apply every pending migration and return the number applied. Fails if a recorded
+     * migration's checksum no longer matches, or if the database is newer than this build.
+     */
+    public int migrate() throws SQLException {
+        try (Connection conn = connectionPool.acquireRead()) {
+            if (pending(readApplied(conn)).isEmpty()) {
+                System.out.println("Database schema is up to date (version " + getLatestVersion() + ")");
+                return 0;
+            }
+        }
+        
+        try (Connection conn = connectionPool.acquireWrite()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                                 "version INTEGER PRIMARY KEY," +
+                                 "description VARCHAR(200) NOT NULL," +
+                                 "checksum VARCHAR(64) NOT NULL," +
+                                 "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                                 "execution_ms INTEGER NOT NULL" +
+                                 ")");
+                }
+                
+                // Re-read under the writer in case another process migrated in the meantime
+                List<Migration> pending = pending(readApplied(conn));
+                for (Migration migration : pending) {
+                    apply(conn, migration);
+                }
+                conn.commit();
+                return pending.size();
+                
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    System.err.println("Error rolling back migration: " + rollbackEx.getMessage());
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+    
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        long start = System.nanoTime();
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : migration.getStatements()) {
+                stmt.execute(sql);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Migration " + migration.getVersion() + " (" + migration.getDescription()
+                + ") failed: " + e.getMessage(), e);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO schema_version (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)")) {
+            pstmt.setInt(1, migration.getVersion());
+            pstmt.setString(2, migration.getDescription());
+            pstmt.setString(3, migration.getChecksum());
+            pstmt.setLong(4, elapsedMillis);
+            pstmt.executeUpdate();
+        }
+        System.out.println("Applied schema migration " + migration.getVersion() + ": "
+            + migration.getDescription() + " (" + elapsedMillis + " ms)");
+    }
+    
+    /**
+     * Recorded checksums by version; empty for a database that predates migrations
+     */
+    private static TreeMap<Integer, String> readApplied(Connection conn) throws SQLException {
+        TreeMap<Integer, String> applied = new TreeMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'schema_version'");
+             ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+                return applied;
+            }
+        }
+        
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT version, checksum FROM schema_version");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        return applied;
+    }
+    
+    private List<Migration> pending(TreeMap<Integer, String> applied) throws SQLException {
+        List<Migration> pending = new ArrayList<>();
+        for (Migration migration : migrations) {
+            String checksum = applied.remove(migration.getVersion());
+            if (checksum == null) {
+                pending.add(migration);
+            } else if (!checksum.equals(migration.getChecksum())) {
+                throw new SQLException("Checksum mismatch for applied schema migration " + migration.getVersion()
+                    + " (" + migration.getDescription() + "); released migrations must not be edited");
+            }
+        }
+        if (!applied.isEmpty()) {
+            throw new SQLException("Database schema version " + applied.lastKey()
+                + " is newer than this application supports (" + getLatestVersion() + ")");
+        }
+        return pending;
+    }
+    
+    /**
+     * Schema as it stood before versioned migrations. Every statement is idempotent, so
+     * databases created by earlier releases converge on the same state as new ones.
+     */
+    private static List<String> baselineStatements() {
+        return List.of(
+            """
+            CREATE TABLE IF NOT EXISTS users (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                username VARCHAR(50) UNIQUE NOT NULL,
+                password_hash VARCHAR(255) NOT NULL,
+                email VARCHAR(100) UNIQUE NOT NULL,
+                role VARCHAR(20) NOT NULL DEFAULT 'USER',
+                is_active BOOLEAN DEFAULT TRUE,
+                last_login TIMESTAMP,
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS courses (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                code VARCHAR(20) UNIQUE NOT NULL,
+                name VARCHAR(100) NOT NULL,
+                description TEXT,
+                duration_months INTEGER NOT NULL,
+                total_credits INTEGER NOT NULL,
+                department VARCHAR(50) NOT NULL,
+                is_active BOOLEAN DEFAULT TRUE,
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS subjects (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                code VARCHAR(20) UNIQUE NOT NULL,
+                name VARCHAR(100) NOT NULL,
+                description TEXT,
+                credits INTEGER NOT NULL,
+                course_id INTEGER NOT NULL,
+                semester INTEGER NOT NULL,
+                is_core BOOLEAN DEFAULT TRUE,
+                is_active BOOLEAN DEFAULT TRUE,
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS students (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                roll_number VARCHAR(20) UNIQUE NOT NULL,
+                name VARCHAR(100) NOT NULL,
+                email VARCHAR(100) UNIQUE NOT NULL,
+                phone VARCHAR(15),
+                date_of_birth DATE NOT NULL,
+                gender VARCHAR(10) NOT NULL,
+                address TEXT,
+                city VARCHAR(50),
+                state VARCHAR(50),
+                country VARCHAR(50) DEFAULT 'India',
+                postal_code VARCHAR(10),
+                course_id INTEGER,
+                enrollment_date DATE DEFAULT CURRENT_DATE,
+                graduation_date DATE,
+                status VARCHAR(20) DEFAULT 'ACTIVE',
+                gpa DECIMAL(3,2) DEFAULT 0.00,
+                total_credits INTEGER DEFAULT 0,
+                emergency_contact_name VARCHAR(100),
+                emergency_contact_phone VARCHAR(15),
+                emergency_contact_relationship VARCHAR(50),
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                created_by INTEGER,
+                updated_by INTEGER
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS student_grades (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                student_id INTEGER NOT NULL,
+                subject_id INTEGER NOT NULL,
+                semester INTEGER NOT NULL,
+                academic_year VARCHAR(9) NOT NULL,
+                marks_obtained DECIMAL(5,2) NOT NULL,
+                max_marks DECIMAL(5,2) DEFAULT 100.00,
+                grade VARCHAR(2),
+                grade_points DECIMAL(3,2),
+                attendance_percentage DECIMAL(5,2),
+                remarks TEXT,
+                graded_by INTEGER,
+                graded_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS audit_log (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                user_id INTEGER,
+                action VARCHAR(100) NOT NULL,
+                table_name VARCHAR(50) NOT NULL,
+                record_id INTEGER,
+                old_values TEXT,
+                new_values TEXT,
+                ip_address VARCHAR(45),
+                user_agent TEXT,
+                timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            )
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_students_roll_number ON students(roll_number)",
+            "CREATE INDEX IF NOT EXISTS idx_students_email ON students(email)",
+            "CREATE INDEX IF NOT EXISTS idx_students_course ON students(course_id)",
+            "CREATE INDEX IF NOT EXISTS idx_grades_student ON student_grades(student_id)",
+            "CREATE INDEX IF NOT EXISTS idx_grades_subject ON student_grades(subject_id)",
+            "CREATE INDEX IF NOT EXISTS idx_users_username ON users(username)",
+            "CREATE INDEX IF NOT EXISTS idx_audit_timestamp ON audit_log(timestamp)"
+        );
+    }
+    
+    /**
+     * Version counter bumped by triggers on every change to table, for the caches that
+     * poll data_versions
+     */
+    private static List<String> versionCounterStatements(String table) {
+        List<String> statements = new ArrayList<>();
+        statements.add("INSERT OR IGNORE INTO data_versions (name, version) VALUES ('" + table + "', 0)");
+        for (String event : List.of("INSERT", "UPDATE", "DELETE")) {
+            statements.add("""
+                CREATE TRIGGER IF NOT EXISTS %1$s_version_%2$s AFTER %3$s ON %1$s BEGIN
+                    UPDATE data_versions SET version = version + 1 WHERE name = '%1$s';
+                END
+                """.formatted(table, event.toLowerCase(), event));
+        }
+        return statements;
+    }
+    
+    /**
+     * Students version counter and the statistics summary, maintained by triggers and
+     * rebuilt once from existing rows
+     */
+    private static List<String> statisticsSummaryStatements() {
+        List<String> statements = new ArrayList<>();
+        statements.add("""
+            CREATE TABLE IF NOT EXISTS data_versions (
+                name VARCHAR(50) PRIMARY KEY,
+                version INTEGER NOT NULL DEFAULT 0
+            )
+            """);
+        statements.addAll(versionCounterStatements("students"));
+        statements.add("""
+            CREATE TABLE IF NOT EXISTS student_stats_summary (
+                dimension VARCHAR(20) NOT NULL,
+                bucket VARCHAR(50) NOT NULL,
+                student_count INTEGER NOT NULL DEFAULT 0,
+                gpa_sum REAL NOT NULL DEFAULT 0,
+                gpa_count INTEGER NOT NULL DEFAULT 0,
+                PRIMARY KEY (dimension, bucket)
+            ) WITHOUT ROWID
+            """);
+        statements.add(summaryTrigger("students_summary_insert", "AFTER INSERT ON students",
+            studentSummaryDelta("new", 1)));
+        statements.add(summaryTrigger("students_summary_delete", "AFTER DELETE ON students",
+            studentSummaryDelta("old", -1)));
+        statements.add(summaryTrigger("students_summary_update",
+            "AFTER UPDATE OF status, course_id, gender, gpa, date_of_birth, enrollment_date ON students",
+            studentSummaryDelta("old", -1) + studentSummaryDelta("new", 1)));
+        statements.add(summaryTrigger("grades_summary_insert", "AFTER INSERT ON student_grades",
+            subjectSummaryDelta("new", 1)));
+        statements.add(summaryTrigger("grades_summary_delete", "AFTER DELETE ON student_grades",
+            subjectSummaryDelta("old", -1)));
+        statements.add(summaryTrigger("grades_summary_update",
+            "AFTER UPDATE OF subject_id, grade_points ON student_grades",
+            subjectSummaryDelta("old", -1) + subjectSummaryDelta("new", 1)));
+        statements.add("DELETE FROM student_stats_summary");
+        statements.add("INSERT INTO student_stats_summary " + summaryRebuildQuery());
+        return statements;
+    }
+    
+    private static String summaryTrigger(String name, String event, String body) {
+        return "CREATE TRIGGER IF NOT EXISTS " + name + " " + event + " BEGIN\n" + body + "END\n";
+    }
+    
+    /**
+     * Upserts adding (delta 1) or removing (delta -1) one students row in every dimension
+     */
+    private static String studentSummaryDelta(String row, int delta) {
+        StringBuilder sql = new StringBuilder();
+        for (String[] dimension : STUDENT_DIMENSIONS) {
+            String values = "'" + dimension[0] + "', " + String.format(dimension[1], row) + ", " + delta + ", "
+                + scaled(String.format(GPA_VALUE, row), delta) + ", " + scaled(String.format(GPA_COUNTED, row), delta);
+            sql.append(SUMMARY_UPSERT.formatted(dimension[2] == null
+                ? "VALUES (" + values + ")"
+                : "SELECT " + values + " WHERE " + String.format(dimension[2], row)));
+        }
+        return sql.toString();
+    }
+    
+    /**
+     * Upsert adding (delta 1) or removing (delta -1) one student_grades row in its subject bucket
+     */
+    private static String subjectSummaryDelta(String row, int delta) {
+        return SUMMARY_UPSERT.formatted("VALUES ('subject', " + row + ".subject_id, " + delta + ", "
+            + scaled("COALESCE(" + row + ".grade_points, 0)", delta) + ", "
+            + scaled("CASE WHEN " + row + ".grade_points IS NULL THEN 0 ELSE 1 END", delta) + ")");
+    }
+    
+    private static String scaled(String expression, int delta) {
+        return delta > 0 ? expression : "-(" + expression + ")";
+    }
+    
+    /**
+     * Every statistics summary row recomputed straight from the base tables, in the
+     * column order of student_stats_summary
+     */
+    static String summaryRebuildQuery() {
+        StringBuilder sql = new StringBuilder();
+        for (String[] dimension : STUDENT_DIMENSIONS) {
+            sql.append("""
+                SELECT '%s' AS dimension, CAST(%s AS TEXT) AS bucket, COUNT(*) AS student_count,
+                       TOTAL(%s) AS gpa_sum, SUM(%s) AS gpa_count
+                FROM students s%s
+                GROUP BY 2
+                UNION ALL
+                """.formatted(dimension[0], String.format(dimension[1], "s"), String.format(GPA_VALUE, "s"),
+                              String.format(GPA_COUNTED, "s"),
+                              dimension[2] == null ? "" : " WHERE " + String.format(dimension[2], "s")));
+        }
+        sql.append("""
+            SELECT 'subject' AS dimension, CAST(g.subject_id AS TEXT) AS bucket, COUNT(*) AS student_count,
+                   TOTAL(g.grade_points) AS gpa_sum, COUNT(g.grade_points) AS gpa_count
+            FROM student_grades g
+            GROUP BY 2
+            """);
+        return sql.toString();
+    }
+    
+    /**
+     * UPDATE recomputing gpa and total_credits of every student that has grades, or only
+     * of those matched by filter (a condition on students.id) if it is not null
+     */
+    static String gpaRecompute(String filter) {
+        return """
+            UPDATE students SET (gpa, total_credits) = (
+                SELECT %s,
+                       %s
+                %s
+                WHERE g.student_id = students.id)
+            WHERE EXISTS (SELECT 1 FROM student_grades x WHERE x.student_id = students.id)%s
+            """.formatted(GPA_EXPRESSION, CREDITS_EXPRESSION, GRADES_JOIN, filter == null ? "" : " AND " + filter);
+    }
+    
+    private static String gpaTrigger(String name, String event, String filter) {
+        return "CREATE TRIGGER IF NOT EXISTS " + name + " " + event + " BEGIN\n"
+            + gpaRecompute(filter).stripTrailing() + ";\nEND\n";
+    }
+    
+    /**
+     * Normalise a date column: JDBC writes epoch millis, CURRENT_DATE defaults write text
+     */
+    static String sqlDate(String column) {
+        return "(CASE WHEN typeof(" + column + ") = 'integer' THEN date(" + column + " / 1000, 'unixepoch') "
+             + "ELSE date(" + column + ") END)";
+    }
+    
+    private static List<String> concat(List<String> first, List<String> second) {
+        List<String> statements = new ArrayList<>(first);
+        statements.addAll(second);
+        return statements;
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel that expires idle sessions. Each session sits in the slot of
+ * the tick its deadline falls in. Activity only moves the session's timestamp, never
+ * the wheel entry: when a slot comes due, sessions that were used meanwhile are moved
+ * to the slot of their new deadline and the rest are expired. A tick therefore costs
+ * the entries in one slot, not a scan of every session.
+ *
+ * The wheel spans at least one timeout, so every entry fires within one revolution.
+ * Slots are touched only by the single scheduler thread; new sessions are handed over
+ * through a lock-free queue and placed at the next tick.
+ */
+public class SessionExpiryWheel {
+    private final long tickNanos;
+    private final long startNanos;
+    private final int mask;
+    private final List<List<UserSession>> slots;
+    private final Queue<UserSession> pending = new ConcurrentLinkedQueue<>();
+    private final Consumer<UserSession> onExpire;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder rescheduled = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private long currentTick;
+    
+    public SessionExpiryWheel(long tickNanos, long timeoutNanos, Consumer<UserSession> onExpire) {
+        this.tickNanos = Math.max(1, tickNanos);
+        this.onExpire = onExpire;
+        int size = Integer.highestOneBit((int) Math.min(1 << 20, timeoutNanos / this.tickNanos + 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.startNanos = System.nanoTime();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    public void start() {
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                advance(System.nanoTime());
+            } catch (Exception e) {
+                System.err.println("Session expiry tick failed: " + e.getMessage());
+            }
+        }, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    /**
+     * Track a new session; safe from any thread
+     */
+    public void schedule(UserSession session) {
+        pending.add(session);
+        scheduled.increment();
+    }
+    
+    /**
+     * Place new sessions, then fire every slot up to now. Runs on the scheduler thread
+     * (or a caller that owns the wheel, e.g. a benchmark); catches up after a late tick.
+     */
+    void advance(long nowNanos) {
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+        for (UserSession session; (session = pending.poll()) != null; ) {
+            place(session);
+        }
+        
+        List<UserSession> moved = new ArrayList<>();
+        while (currentTick < targetTick) {
+            currentTick++;
+            List<UserSession> slot = slots.get((int) (currentTick & mask));
+            int kept = 0;
+            for (int i = 0; i < slot.size(); i++) {
+                UserSession session = slot.get(i);
+                long deadlineTick = tickOf(session.getDeadlineNanos());
+                if (deadlineTick > currentTick + mask) {
+                    // Cannot happen while the wheel spans the timeout; keep it for a later revolution
+                    slot.set(kept++, session);
+                } else if (deadlineTick > currentTick) {
+                    moved.add(session);
+                } else {
+                    expired.increment();
+                    onExpire.accept(session);
+                }
+            }
+            slot.subList(kept, slot.size()).clear();
+            for (UserSession session : moved) {
+                place(session);
+                rescheduled.increment();
+            }
+            moved.clear();
+        }
+    }
+    
+    private void place(UserSession session) {
+        long tick = Math.max(tickOf(session.getDeadlineNanos()), currentTick + 1);
+        slots.get((int) (tick & mask)).add(session);
+    }
+    
+    /**
+     * First tick at or after the given time, so a session never fires early
+     */
+    private long tickOf(long nanos) {
+        return Math.floorDiv(nanos - startNanos + tickNanos - 1, tickNanos);
+    }
+    
+    public int getWheelSize() { return mask + 1; }
+    public long getScheduled() { return scheduled.sum(); }
+    public long getRescheduled() { return rescheduled.sum(); }
+    public long getExpired() { return expired.sum(); }
+    
+    @Override
+    public String toString() {
+        return String.format("SessionExpiryWheel[slots=%d, tick=%dms, scheduled=%d, rescheduled=%d, expired=%d]",
+            getWheelSize(), TimeUnit.NANOSECONDS.toMillis(tickNanos), getScheduled(), getRescheduled(), getExpired());
+    }
+}
@@ -0,0 +1,58 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Size-rotated slow-query log: slow_queries.log, slow_queries.log.1, ... up to maxFiles
+ */
+class SlowQueryLog {
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    
+    private final Path file;
+    private final long maxBytes;
+    private final int maxFiles;
+    
+    public SlowQueryLog(Path file, long maxBytes, int maxFiles) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxFiles = Math.max(1, maxFiles);
+    }
+    
+    public synchronized void write(String sql, long nanos, long rows, String plan) {
+        String entry = String.format("%s  %.1f ms  rows=%d  thread=%s%n  %s%n%s%n",
+            LocalDateTime.now().format(TIMESTAMP), nanos / 1e6, rows, Thread.currentThread().getName(),
+            QueryMetrics.shapeOf(sql), plan);
+        try {
+            if (Files.exists(file) && Files.size(file) + entry.length() > maxBytes) {
+                rotate();
+            }
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                out.write(entry);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write slow-query log: " + e.getMessage());
+        }
+    }
+    
+    private void rotate() throws IOException {
+        Files.deleteIfExists(rotated(maxFiles));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path source = rotated(i);
+            if (Files.exists(source)) {
+                Files.move(source, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+}
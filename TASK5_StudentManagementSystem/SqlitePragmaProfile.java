@@ -0,0 +1,138 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * SQLite PRAGMA settings applied to every pooled connection when it is opened.
+ * Values come from db.pragma.* entries in database.properties.
+ */
+public class SqlitePragmaProfile {
+    private static final String PROPERTY_PREFIX = "db.pragma.";
+    private static final String[] SUPPORTED_PRAGMAS = {
+        "journal_mode", "synchronous", "cache_size", "mmap_size", "temp_store", "busy_timeout"
+    };
+    
+    private final Map<String, String> settings;
+    
+    private SqlitePragmaProfile(Map<String, String> settings) {
+        this.settings = settings;
+    }
+    
+    /**
+     * Profile that leaves every SQLite default untouched
+     */
+    public static SqlitePragmaProfile defaults() {
+        return new SqlitePragmaProfile(new LinkedHashMap<>());
+    }
+    
+    public static SqlitePragmaProfile fromProperties(Properties props) {
+        Map<String, String> settings = new LinkedHashMap<>();
+        for (String pragma : SUPPORTED_PRAGMAS) {
+            String value = props.getProperty(PROPERTY_PREFIX + pragma);
+            if (value == null || value.trim().isEmpty()) {
+                continue;
+            }
+            value = value.trim();
+            if (!value.matches("-?[A-Za-z0-9_]+")) {
+                System.err.println("Ignoring invalid value for " + PROPERTY_PREFIX + pragma + ": " + value);
+                continue;
+            }
+            settings.put(pragma, value);
+        }
+        return new SqlitePragmaProfile(settings);
+    }
+    
+    /**
+     * Apply the profile. Must run while the connection is still in auto-commit
+     * mode, because journal_mode cannot change inside a transaction.
+     */
+    public void apply(Connection conn) throws SQLException {
+        if (settings.isEmpty()) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (Map.Entry<String, String> entry : settings.entrySet()) {
+                stmt.execute("PRAGMA " + entry.getKey() + " = " + entry.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Read back the effective value of every supported pragma
+     */
+    public Map<String, String> readEffectiveSettings(Connection conn) throws SQLException {
+        Map<String, String> effective = new LinkedHashMap<>();
+        try (Statement stmt = conn.createStatement()) {
+            for (String pragma : SUPPORTED_PRAGMAS) {
+                try (ResultSet rs = stmt.executeQuery("PRAGMA " + pragma)) {
+                    effective.put(pragma, rs.next() ? rs.getString(1) : null);
+                }
+            }
+        }
+        return effective;
+    }
+    
+    /**
+     * Startup self-check: log the effective settings and warn where SQLite
+     * did not accept the configured value (e.g. mmap_size above the compile-time limit)
+     */
+    public void logEffectiveSettings(Connection conn) throws SQLException {
+        Map<String, String> effective = readEffectiveSettings(conn);
+        
+        System.out.println("SQLite pragma profile:");
+        for (Map.Entry<String, String> entry : effective.entrySet()) {
+            String configured = settings.get(entry.getKey());
+            String actual = entry.getValue();
+            String line = String.format("  %-13s= %s", entry.getKey(), actual);
+            
+            if (configured != null && !normalize(entry.getKey(), configured).equals(normalize(entry.getKey(), actual))) {
+                System.err.println(line + " (configured " + configured + ", not applied)");
+            } else {
+                System.out.println(line);
+            }
+        }
+    }
+    
+    /**
+     * Map symbolic pragma values to the numeric form SQLite reports back
+     */
+    private static String normalize(String pragma, String value) {
+        if (value == null) {
+            return "";
+        }
+        String upper = value.trim().toUpperCase(Locale.ROOT);
+        switch (pragma) {
+            case "synchronous":
+                switch (upper) {
+                    case "OFF": return "0";
+                    case "NORMAL": return "1";
+                    case "FULL": return "2";
+                    case "EXTRA": return "3";
+                    default: return upper;
+                }
+            case "temp_store":
+                switch (upper) {
+                    case "DEFAULT": return "0";
+                    case "FILE": return "1";
+                    case "MEMORY": return "2";
+                    default: return upper;
+                }
+            default:
+                return upper;
+        }
+    }
+    
+    public Map<String, String> getSettings() {
+        return new LinkedHashMap<>(settings);
+    }
+    
+    @Override
+    public String toString() {
+        return settings.isEmpty() ? "SQLite defaults" : settings.toString();
+    }
+}
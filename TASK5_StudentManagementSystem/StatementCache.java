@@ -0,0 +1,196 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of prepared statements for one physical connection, keyed by SQL text.
+ * Callers get a proxy whose close() resets the statement and parks it in the cache
+ * instead of finalizing it, so the next prepareStatement with the same SQL skips
+ * parsing and planning. A statement is checked out while in use; preparing the same
+ * SQL again before it is closed (e.g. from a nested call) simply prepares a second one.
+ */
+class StatementCache {
+    private final Connection connection;
+    private final int capacity;
+    private final LinkedHashMap<String, PreparedStatement> idle;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private boolean closed;
+    
+    StatementCache(Connection connection, int capacity, LongAdder hits, LongAdder misses, LongAdder evictions) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.idle = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > StatementCache.this.capacity) {
+                    StatementCache.this.evictions.increment();
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Cached statement for sql, or a freshly prepared one on a miss.
+     * owner is returned from the statement's getConnection().
+     */
+    PreparedStatement prepare(String sql, Connection owner) throws SQLException {
+        PreparedStatement statement;
+        synchronized (this) {
+            statement = idle.remove(sql);
+        }
+        if (statement != null && !statement.isClosed()) {
+            hits.increment();
+        } else {
+            misses.increment();
+            statement = connection.prepareStatement(sql);
+        }
+        
+        CachedStatementHandler handler = new CachedStatementHandler(sql, statement, owner);
+        return (PreparedStatement) Proxy.newProxyInstance(
+            PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, handler);
+    }
+    
+    /**
+     * Reset a statement the caller has closed and keep it for reuse
+     */
+    private void giveBack(String sql, PreparedStatement statement, boolean settingsChanged) {
+        try {
+            statement.clearParameters();
+            if (settingsChanged) {
+                statement.clearBatch();
+                statement.setFetchSize(0);
+                statement.setMaxRows(0);
+            }
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            return;
+        }
+        
+        PreparedStatement displaced;
+        synchronized (this) {
+            if (closed) {
+                displaced = statement;
+            } else {
+                displaced = idle.put(sql, statement);
+            }
+        }
+        if (displaced != null) {
+            closeQuietly(displaced);
+        }
+    }
+    
+    /**
+     * Close every cached statement; statements still checked out are closed when returned
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+            Iterator<PreparedStatement> it = idle.values().iterator();
+            while (it.hasNext()) {
+                closeQuietly(it.next());
+                it.remove();
+            }
+        }
+    }
+    
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing cached statement: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Statement proxy: close() hands the statement back. A result set left open would keep
+     * the statement mid-step and hold its read snapshot, so it is closed first.
+     */
+    private final class CachedStatementHandler implements InvocationHandler {
+        private final String sql;
+        private final PreparedStatement statement;
+        private final Connection owner;
+        private ResultSet openResultSet;
+        private boolean settingsChanged;
+        private boolean returned;
+        
+        CachedStatementHandler(String sql, PreparedStatement statement, Connection owner) {
+            this.sql = sql;
+            this.statement = statement;
+            this.owner = owner;
+        }
+        
+        @Override
+        public Object invoke(Object proxyInstance, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        closeOpenResultSet();
+                        giveBack(sql, statement, settingsChanged);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || statement.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxyInstance == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxyInstance);
+                case "toString":
+                    return "Cached[" + sql.trim() + "]";
+                case "addBatch":
+                case "setFetchSize":
+                case "setMaxRows":
+                    settingsChanged = true;
+                    break;
+                default:
+                    break;
+            }
+            
+            if (returned) {
+                throw new SQLException("Statement has already been closed");
+            }
+            
+            try {
+                if ("executeQuery".equals(method.getName())) {
+                    // The driver reuses one result set per statement, so close the old one first
+                    closeOpenResultSet();
+                    openResultSet = (ResultSet) method.invoke(statement, args);
+                    return openResultSet;
+                }
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+        
+        private void closeOpenResultSet() {
+            if (openResultSet != null) {
+                try {
+                    openResultSet.close();
+                } catch (SQLException e) {
+                    System.err.println("Error closing result set: " + e.getMessage());
+                }
+                openResultSet = null;
+            }
+        }
+    }
+}
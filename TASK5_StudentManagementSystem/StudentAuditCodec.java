@@ -0,0 +1,370 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Field-level diff encoding of students rows for audit_log.old_values / new_values.
+ * An edit stores only the columns that changed, as a flat JSON object keyed by
+ * column name: old_values holds their previous values and new_values the new ones.
+ * An insert has only new_values and a delete only old_values, each holding every column.
+ *
+ * Payloads of COMPRESSION_THRESHOLD bytes or more (full snapshots, long addresses) are
+ * deflated against a preset dictionary of column names and common values, and stored as
+ * "~1" followed by base64 when that is shorter. Any stored value decodes with decode().
+ *
+ * Full before and after snapshots are rebuilt on demand by walking back from the current
+ * row: the state before an edit is the state after it with its old_values applied.
+ */
+public final class StudentAuditCodec {
+    private static final int COMPRESSION_THRESHOLD = 160;
+    private static final String COMPRESSED_PREFIX = "~1";
+    private static final byte[] DICTIONARY = (
+        "\"emergency_contact_relationship\":\"Father\"\"Mother\"\"Guardian\"\"emergency_contact_phone\":\""
+        + "\"emergency_contact_name\":\"\"enrollment_date\":\"\"graduation_date\":\"\"date_of_birth\":\""
+        + "\"created_at\":\"\"updated_at\":\"\"created_by\":\"updated_by\":\"total_credits\":\"gpa\":"
+        + "\"status\":\"ACTIVE\"INACTIVE\"GRADUATED\"SUSPENDED\"\"course_id\":\"country\":\"India\""
+        + "\"postal_code\":\"\"state\":\"\"city\":\"\"address\":\"\"gender\":\"Male\"Female\"Other\""
+        + "\"phone\":\"\"email\":\"@gmail.com\"\"name\":\"\"roll_number\":\":null,\"id\":")
+        .getBytes(StandardCharsets.UTF_8);
+    
+    private enum Kind { TEXT, INTEGER, DECIMAL, DATE, TIMESTAMP }
+    
+    /**
+     * Audited columns of the students table, mapped to the Student property they fill
+     */
+    private enum Field {
+        ID("id", Kind.INTEGER, Student::getId, (s, v) -> s.setId((Integer) v)),
+        ROLL_NUMBER("roll_number", Kind.TEXT, Student::getRollNumber, (s, v) -> s.setRollNumber((String) v)),
+        NAME("name", Kind.TEXT, Student::getName, (s, v) -> s.setName((String) v)),
+        EMAIL("email", Kind.TEXT, Student::getEmail, (s, v) -> s.setEmail((String) v)),
+        PHONE("phone", Kind.TEXT, Student::getPhone, (s, v) -> s.setPhone((String) v)),
+        DATE_OF_BIRTH("date_of_birth", Kind.DATE, Student::getDateOfBirth, (s, v) -> s.setDateOfBirth((Date) v)),
+        GENDER("gender", Kind.TEXT, Student::getGender, (s, v) -> s.setGender((String) v)),
+        ADDRESS("address", Kind.TEXT, Student::getAddress, (s, v) -> s.setAddress((String) v)),
+        CITY("city", Kind.TEXT, Student::getCity, (s, v) -> s.setCity((String) v)),
+        STATE("state", Kind.TEXT, Student::getState, (s, v) -> s.setState((String) v)),
+        COUNTRY("country", Kind.TEXT, Student::getCountry, (s, v) -> s.setCountry((String) v)),
+        POSTAL_CODE("postal_code", Kind.TEXT, Student::getPostalCode, (s, v) -> s.setPostalCode((String) v)),
+        COURSE_ID("course_id", Kind.INTEGER, Student::getCourseId, (s, v) -> s.setCourseId((Integer) v)),
+        ENROLLMENT_DATE("enrollment_date", Kind.DATE, Student::getEnrollmentDate,
+            (s, v) -> s.setEnrollmentDate((Date) v)),
+        GRADUATION_DATE("graduation_date", Kind.DATE, Student::getGraduationDate,
+            (s, v) -> s.setGraduationDate((Date) v)),
+        STATUS("status", Kind.TEXT, Student::getStatus, (s, v) -> s.setStatus((String) v)),
+        GPA("gpa", Kind.DECIMAL, Student::getGpa, (s, v) -> s.setGpa((BigDecimal) v)),
+        TOTAL_CREDITS("total_credits", Kind.INTEGER, Student::getTotalCredits,
+            (s, v) -> s.setTotalCredits((Integer) v)),
+        EMERGENCY_CONTACT_NAME("emergency_contact_name", Kind.TEXT, Student::getEmergencyContactName,
+            (s, v) -> s.setEmergencyContactName((String) v)),
+        EMERGENCY_CONTACT_PHONE("emergency_contact_phone", Kind.TEXT, Student::getEmergencyContactPhone,
+            (s, v) -> s.setEmergencyContactPhone((String) v)),
+        EMERGENCY_CONTACT_RELATIONSHIP("emergency_contact_relationship", Kind.TEXT,
+            Student::getEmergencyContactRelationship, (s, v) -> s.setEmergencyContactRelationship((String) v)),
+        CREATED_AT("created_at", Kind.TIMESTAMP, Student::getCreatedAt, (s, v) -> s.setCreatedAt((Timestamp) v)),
+        UPDATED_AT("updated_at", Kind.TIMESTAMP, Student::getUpdatedAt, (s, v) -> s.setUpdatedAt((Timestamp) v)),
+        CREATED_BY("created_by", Kind.INTEGER, Student::getCreatedBy, (s, v) -> s.setCreatedBy((Integer) v)),
+        UPDATED_BY("updated_by", Kind.INTEGER, Student::getUpdatedBy, (s, v) -> s.setUpdatedBy((Integer) v));
+        
+        private static final Map<String, Field> BY_COLUMN = new LinkedHashMap<>();
+        static {
+            for (Field field : values()) {
+                BY_COLUMN.put(field.column, field);
+            }
+        }
+        
+        final String column;
+        final Kind kind;
+        final Function<Student, Object> getter;
+        final BiConsumer<Student, Object> setter;
+        
+        Field(String column, Kind kind, Function<Student, Object> getter, BiConsumer<Student, Object> setter) {
+            this.column = column;
+            this.kind = kind;
+            this.getter = getter;
+            this.setter = setter;
+        }
+        
+        /**
+         * Canonical text of the value, so 8.5 and 8.50 or two Dates on the same day compare equal
+         */
+        String text(Student student) {
+            Object value = getter.apply(student);
+            if (value == null) {
+                return null;
+            }
+            if (kind == Kind.DECIMAL) {
+                return ((BigDecimal) value).stripTrailingZeros().toPlainString();
+            }
+            return value.toString();
+        }
+        
+        Object parse(String text) {
+            if (text == null) {
+                return null;
+            }
+            switch (kind) {
+                case INTEGER: return Integer.valueOf(text);
+                case DECIMAL: return new BigDecimal(text);
+                case DATE: return Date.valueOf(text);
+                case TIMESTAMP: return Timestamp.valueOf(text);
+                default: return text;
+            }
+        }
+    }
+    
+    private StudentAuditCodec() {
+    }
+    
+    /**
+     * Encode the change from before to after as {old_values, new_values}. Either side
+     * may be null for an insert or delete; both entries are null if nothing changed.
+     */
+    public static String[] encode(Student before, Student after) {
+        Map<String, String> oldValues = new LinkedHashMap<>();
+        Map<String, String> newValues = new LinkedHashMap<>();
+        for (Field field : Field.values()) {
+            String oldText = before != null ? field.text(before) : null;
+            String newText = after != null ? field.text(after) : null;
+            if (before != null && after != null && Objects.equals(oldText, newText)) {
+                continue;
+            }
+            if (before != null) {
+                oldValues.put(field.column, oldText);
+            }
+            if (after != null) {
+                newValues.put(field.column, newText);
+            }
+        }
+        return new String[] { pack(before != null ? oldValues : null), pack(after != null ? newValues : null) };
+    }
+    
+    /**
+     * Column values held by an encoded old_values or new_values, in column order.
+     * Values are in their canonical text form; null means the column was NULL.
+     */
+    public static Map<String, String> decode(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        return parseObject(encoded.startsWith(COMPRESSED_PREFIX) ? inflate(encoded) : encoded);
+    }
+    
+    /**
+     * Copy of student with the encoded columns set to their recorded values
+     */
+    public static Student apply(Student student, String encoded) {
+        Student result = copy(student);
+        for (Map.Entry<String, String> entry : decode(encoded).entrySet()) {
+            Field field = Field.BY_COLUMN.get(entry.getKey());
+            if (field != null) {
+                field.setter.accept(result, field.parse(entry.getValue()));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Snapshot as it was before an edit, given the snapshot right after it
+     */
+    public static Student before(Student after, String oldValues) {
+        return apply(after, oldValues);
+    }
+    
+    /**
+     * Snapshot as it was after an edit, given the snapshot right before it
+     */
+    public static Student after(Student before, String newValues) {
+        return apply(before, newValues);
+    }
+    
+    static Student copy(Student student) {
+        Student copy = new Student();
+        if (student != null) {
+            for (Field field : Field.values()) {
+                field.setter.accept(copy, field.getter.apply(student));
+            }
+            copy.setCourseName(student.getCourseName());
+        }
+        return copy;
+    }
+    
+    private static String pack(Map<String, String> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        StringWriter json = new StringWriter(values.size() * 24);
+        try {
+            json.write('{');
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                if (json.getBuffer().length() > 1) {
+                    json.write(',');
+                }
+                json.write('"');
+                json.write(entry.getKey());
+                json.write("\":");
+                Field field = Field.BY_COLUMN.get(entry.getKey());
+                String value = entry.getValue();
+                if (value == null) {
+                    json.write("null");
+                } else if (field.kind == Kind.INTEGER || field.kind == Kind.DECIMAL) {
+                    json.write(value);
+                } else {
+                    StudentExporter.writeJsonString(json, value);
+                }
+            }
+            json.write('}');
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringWriter does not throw
+        }
+        
+        String text = json.toString();
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        if (raw.length < COMPRESSION_THRESHOLD) {
+            return text;
+        }
+        String compressed = deflate(raw);
+        return compressed.length() < text.length() ? compressed : text;
+    }
+    
+    private static String deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setDictionary(DICTIONARY);
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length);
+            byte[] buffer = new byte[512];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return COMPRESSED_PREFIX + Base64.getEncoder().withoutPadding().encodeToString(out.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    private static String inflate(String encoded) {
+        byte[] compressed = Base64.getDecoder().decode(encoded.substring(COMPRESSED_PREFIX.length()));
+        Inflater inflater = new Inflater(true);
+        try {
+            // Raw deflate streams carry no dictionary id, so it is supplied up front
+            inflater.setDictionary(DICTIONARY);
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[512];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated audit value");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt audit value: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+    
+    /**
+     * Parse a flat JSON object whose values are strings, numbers or null
+     */
+    private static Map<String, String> parseObject(String json) {
+        Map<String, String> values = new LinkedHashMap<>();
+        int[] pos = { skipSpace(json, 0) };
+        expect(json, pos, '{');
+        if (peek(json, pos) == '}') {
+            return values;
+        }
+        while (true) {
+            String key = parseString(json, pos);
+            expect(json, pos, ':');
+            char c = peek(json, pos);
+            String value;
+            if (c == '"') {
+                value = parseString(json, pos);
+            } else {
+                int start = pos[0];
+                while (pos[0] < json.length() && ",} \t\r\n".indexOf(json.charAt(pos[0])) < 0) {
+                    pos[0]++;
+                }
+                String literal = json.substring(start, pos[0]);
+                value = "null".equals(literal) ? null : literal;
+            }
+            values.put(key, value);
+            c = peek(json, pos);
+            pos[0]++;
+            if (c == '}') {
+                return values;
+            }
+            if (c != ',') {
+                throw new IllegalArgumentException("Malformed audit value at " + (pos[0] - 1));
+            }
+        }
+    }
+    
+    private static String parseString(String json, int[] pos) {
+        expect(json, pos, '"');
+        StringBuilder value = new StringBuilder();
+        while (pos[0] < json.length()) {
+            char c = json.charAt(pos[0]++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            char escaped = json.charAt(pos[0]++);
+            switch (escaped) {
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'u':
+                    value.append((char) Integer.parseInt(json.substring(pos[0], pos[0] + 4), 16));
+                    pos[0] += 4;
+                    break;
+                default: value.append(escaped);
+            }
+        }
+        throw new IllegalArgumentException("Unterminated string in audit value");
+    }
+    
+    private static void expect(String json, int[] pos, char expected) {
+        if (peek(json, pos) != expected) {
+            throw new IllegalArgumentException("Expected '" + expected + "' in audit value at " + pos[0]);
+        }
+        pos[0]++;
+    }
+    
+    private static char peek(String json, int[] pos) {
+        pos[0] = skipSpace(json, pos[0]);
+        if (pos[0] >= json.length()) {
+            throw new IllegalArgumentException("Unexpected end of audit value");
+        }
+        return json.charAt(pos[0]);
+    }
+    
+    private static int skipSpace(String json, int pos) {
+        while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+}
@@ -0,0 +1,243 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the student roster from a forward-only ResultSet straight into a CSV or
+ * JSON Lines file, optionally gzip-compressed. No Student objects are built and
+ * nothing is buffered beyond the fetch window and the output buffer, so memory
+ * stays flat however many rows are exported. Output goes to a .part file that is
+ * renamed into place only when the export completes.
+ */
+public class StudentExporter {
+    public enum Format { CSV, JSONL }
+    
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    private static final int PROGRESS_INTERVAL_ROWS = 10_000;
+    
+    /**
+     * Exportable columns and the SQL that produces them; projections are checked against this list
+     */
+    private static final Map<String, String> COLUMNS = new LinkedHashMap<>();
+    static {
+        COLUMNS.put("id", "s.id");
+        COLUMNS.put("roll_number", "s.roll_number");
+        COLUMNS.put("name", "s.name");
+        COLUMNS.put("email", "s.email");
+        COLUMNS.put("phone", "s.phone");
+        COLUMNS.put("date_of_birth", SchemaMigrator.sqlDate("s.date_of_birth"));
+        COLUMNS.put("gender", "s.gender");
+        COLUMNS.put("address", "s.address");
+        COLUMNS.put("city", "s.city");
+        COLUMNS.put("state", "s.state");
+        COLUMNS.put("country", "s.country");
+        COLUMNS.put("postal_code", "s.postal_code");
+        COLUMNS.put("course_id", "s.course_id");
+        COLUMNS.put("course_code", "c.code");
+        COLUMNS.put("course_name", "c.name");
+        COLUMNS.put("enrollment_date", SchemaMigrator.sqlDate("s.enrollment_date"));
+        COLUMNS.put("graduation_date", SchemaMigrator.sqlDate("s.graduation_date"));
+        COLUMNS.put("status", "s.status");
+        COLUMNS.put("gpa", "s.gpa");
+        COLUMNS.put("total_credits", "s.total_credits");
+        COLUMNS.put("emergency_contact_name", "s.emergency_contact_name");
+        COLUMNS.put("emergency_contact_phone", "s.emergency_contact_phone");
+        COLUMNS.put("emergency_contact_relationship", "s.emergency_contact_relationship");
+    }
+    
+    /**
+     * Called on the exporting thread every few thousand rows
+     */
+    public interface ProgressListener {
+        void onProgress(long rowsWritten, long totalRows);
+    }
+    
+    private final DatabaseManager dbManager;
+    private final int fetchSize;
+    private final Integer exportedBy;
+    private volatile boolean cancelled;
+    
+    public StudentExporter(DatabaseManager dbManager, int fetchSize, Integer exportedBy) {
+        this.dbManager = dbManager;
+        this.fetchSize = Math.max(1, fetchSize);
+        this.exportedBy = exportedBy;
+    }
+    
+    public static List<String> getAvailableColumns() {
+        return new ArrayList<>(COLUMNS.keySet());
+    }
+    
+    /**
+     * Stop at the next row; the partial output is deleted
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    /**
+     * Export the roster in id order. An empty or null column list exports every column.
+     */
+    public ExportReport export(Path target, Format format, boolean gzip, List<String> columns,
+                               ProgressListener listener) throws IOException, SQLException {
+        List<String> projection = columns == null || columns.isEmpty() ? getAvailableColumns() : columns;
+        StringBuilder select = new StringBuilder("SELECT ");
+        for (int i = 0; i < projection.size(); i++) {
+            String expression = COLUMNS.get(projection.get(i));
+            if (expression == null) {
+                throw new IllegalArgumentException("Unknown export column: " + projection.get(i));
+            }
+            select.append(i > 0 ? ", " : "").append(expression);
+        }
+        select.append(" FROM students s LEFT JOIN courses c ON s.course_id = c.id ORDER BY s.id");
+        
+        long startNanos = System.nanoTime();
+        long rows = 0;
+        Path partFile = target.resolveSibling(target.getFileName() + ".part");
+        
+        try (Connection conn = dbManager.getReadConnection()) {
+            long totalRows = countStudents(conn);
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(select.toString(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(fetchSize);
+                
+                try (ResultSet rs = pstmt.executeQuery();
+                     Writer out = openWriter(partFile, gzip)) {
+                    String[] names = projection.toArray(new String[0]);
+                    if (format == Format.CSV) {
+                        writeCsvHeader(out, names);
+                    }
+                    
+                    while (!cancelled && rs.next()) {
+                        if (format == Format.CSV) {
+                            writeCsvRow(out, rs, names.length);
+                        } else {
+                            writeJsonRow(out, rs, names);
+                        }
+                        rows++;
+                        if (listener != null && rows % PROGRESS_INTERVAL_ROWS == 0) {
+                            listener.onProgress(rows, totalRows);
+                        }
+                    }
+                }
+                if (listener != null && !cancelled) {
+                    listener.onProgress(rows, totalRows);
+                }
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            Files.deleteIfExists(partFile);
+            throw e;
+        }
+        
+        if (cancelled) {
+            Files.deleteIfExists(partFile);
+        } else {
+            Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        
+        ExportReport report = new ExportReport(rows, cancelled ? 0 : Files.size(target),
+                                               System.nanoTime() - startNanos, cancelled);
+        System.out.println("Student export " + (cancelled ? "cancelled: " : "finished: ") + report);
+        
+        if (exportedBy != null && !cancelled) {
+            dbManager.logAuditTrail(exportedBy, "EXPORT", "students", null, null,
+                "file=" + target.getFileName() + ", format=" + format + ", " + report, null, null);
+        }
+        return report;
+    }
+    
+    private static long countStudents(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM students");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+    
+    private static Writer openWriter(Path file, boolean gzip) throws IOException {
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), OUTPUT_BUFFER_SIZE);
+        if (gzip) {
+            out = new GZIPOutputStream(out, OUTPUT_BUFFER_SIZE);
+        }
+        // Buffer chars ahead of the encoder so per-field writes stay cheap
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE);
+    }
+    
+    private static void writeCsvHeader(Writer out, String[] names) throws IOException {
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(names[i]);
+        }
+        out.write("\r\n");
+    }
+    
+    private static void writeCsvRow(Writer out, ResultSet rs, int columnCount) throws SQLException, IOException {
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+                out.write(',');
+            }
+            out.write(CsvWriter.escape(rs.getString(i)));
+        }
+        out.write("\r\n");
+    }
+    
+    static void writeJsonRow(Writer out, ResultSet rs, String[] names) throws SQLException, IOException {
+        out.write('{');
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write('"');
+            out.write(names[i]);
+            out.write("\":");
+            
+            Object value = rs.getObject(i + 1);
+            if (value == null) {
+                out.write("null");
+            } else if (value instanceof Number) {
+                out.write(value.toString());
+            } else {
+                writeJsonString(out, value.toString());
+            }
+        }
+        out.write("}\n");
+    }
+    
+    static void writeJsonString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
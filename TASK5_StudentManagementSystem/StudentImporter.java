@@ -0,0 +1,476 @@
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk student import from CSV. The file is parsed as a stream one chunk at a time;
+ * each chunk is validated in parallel with Student.validate(), given roll numbers
+ * in blocks, and inserted with executeBatch in its own transaction on a writer
+ * thread while the next chunk is parsed. Rows that fail are written to a reject
+ * file with their line number and reason. Committed chunks stay committed if the
+ * import is cancelled or fails part way. gpa and total_credits columns are ignored:
+ * they are derived from grades, which an import does not carry.
+ *
+ * An import run on behalf of a user writes a CREATE audit entry for every inserted
+ * student in the chunk's transaction, holding the row as stored.
+ *
+ * Usage: java -cp ".;sqlite-jdbc-3.50.3.0.jar" StudentImporter students.csv [rejects.csv]
+ */
+public class StudentImporter {
+    // Satisfies Student.validate() until a real roll number is allocated
+    private static final String PENDING_ROLL_NUMBER = "PENDING";
+    private static final String[] REQUIRED_COLUMNS = {"name", "email", "date_of_birth", "gender"};
+    private static final String INSERT_SQL =
+        "INSERT INTO students (roll_number, name, email, phone, date_of_birth, gender, address, city, " +
+        "state, country, postal_code, course_id, enrollment_date, status, " +
+        "emergency_contact_name, emergency_contact_phone, emergency_contact_relationship, " +
+        "created_by, updated_by) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    /**
+     * Called on the importing thread after every chunk
+     */
+    public interface ProgressListener {
+        void onProgress(ImportReport progress);
+    }
+    
+    private final DatabaseManager dbManager;
+    private final int chunkSize;
+    private final int validationThreads;
+    private final Integer importedBy;
+    private volatile boolean cancelled;
+    
+    public StudentImporter(DatabaseManager dbManager, int chunkSize, int validationThreads, Integer importedBy) {
+        this.dbManager = dbManager;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.validationThreads = validationThreads > 0 ? validationThreads : Runtime.getRuntime().availableProcessors();
+        this.importedBy = importedBy;
+    }
+    
+    /**
+     * Stop after the chunk currently being written
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    public ImportReport importFile(Path csvFile, Path rejectFile, ProgressListener listener)
+            throws IOException, SQLException {
+        long totalBytes = Files.size(csvFile);
+        long startNanos = System.nanoTime();
+        AtomicLong rowsRead = new AtomicLong();
+        AtomicLong imported = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        
+        ForkJoinPool validators = new ForkJoinPool(validationThreads);
+        ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "student-import-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        
+        try (CountingInputStream in = new CountingInputStream(Files.newInputStream(csvFile));
+             CsvReader reader = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+             CsvWriter rejects = new CsvWriter(Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8))) {
+            
+            List<String> header = reader.readRecord();
+            if (header == null) {
+                throw new IOException("CSV file is empty: " + csvFile);
+            }
+            Map<String, Integer> columns = mapColumns(header);
+            
+            List<String> rejectHeader = new ArrayList<>(List.of("line", "error"));
+            rejectHeader.addAll(header);
+            rejects.writeRecord(rejectHeader);
+            
+            Map<String, Integer> courseIds = loadCourseIds();
+            Future<?> pendingWrite = null;
+            
+            while (!cancelled && !Thread.currentThread().isInterrupted()) {
+                List<ImportRow> chunk = readChunk(reader);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                rowsRead.addAndGet(chunk.size());
+                
+                // Parse and validate on the worker pool while the writer inserts the previous chunk
+                validators.submit(() -> chunk.parallelStream().forEach(row -> parseRow(row, columns, courseIds))).join();
+                
+                List<ImportRow> valid = new ArrayList<>(chunk.size());
+                for (ImportRow row : chunk) {
+                    if (row.error == null) {
+                        valid.add(row);
+                    } else {
+                        reject(rejects, row, rejected);
+                    }
+                }
+                
+                // At most one chunk in flight keeps memory bounded regardless of file size
+                await(pendingWrite);
+                pendingWrite = writer.submit(() -> {
+                    insertChunk(valid, rejects, imported, rejected);
+                    return null;
+                });
+                
+                if (listener != null) {
+                    listener.onProgress(new ImportReport(rowsRead.get(), imported.get(), rejected.get(),
+                        in.getCount(), totalBytes, System.nanoTime() - startNanos, false));
+                }
+            }
+            await(pendingWrite);
+            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        } finally {
+            validators.shutdownNow();
+            writer.shutdownNow();
+        }
+        
+        ImportReport report = new ImportReport(rowsRead.get(), imported.get(), rejected.get(),
+            totalBytes, totalBytes, System.nanoTime() - startNanos, cancelled);
+        System.out.println("Student import " + (cancelled ? "cancelled: " : "finished: ") + report);
+        
+        if (importedBy != null && report.getImported() > 0) {
+            dbManager.logAuditTrail(importedBy, "IMPORT", "students", null, null,
+                "file=" + csvFile.getFileName() + ", " + report, null, null);
+        }
+        return report;
+    }
+    
+    private List<ImportRow> readChunk(CsvReader reader) throws IOException {
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize) {
+            long line = reader.getLineNumber() + 1;
+            List<String> fields = reader.readRecord();
+            if (fields == null) {
+                break;
+            }
+            if (fields.size() == 1 && fields.get(0).trim().isEmpty()) {
+                continue; // blank line
+            }
+            chunk.add(new ImportRow(line, fields));
+        }
+        return chunk;
+    }
+    
+    private Map<String, Integer> mapColumns(List<String> header) throws IOException {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT).replace(' ', '_');
+            if (i == 0 && name.startsWith("\uFEFF")) {
+                name = name.substring(1);
+            }
+            columns.put(name, i);
+        }
+        for (String required : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(required)) {
+                throw new IOException("CSV header is missing required column: " + required);
+            }
+        }
+        return columns;
+    }
+    
+    /**
+     * Course ids keyed by lower-case code and name, so the file can use either
+     */
+    private Map<String, Integer> loadCourseIds() throws SQLException {
+        ReferenceDataCache referenceData = dbManager.getReferenceData();
+        referenceData.refreshIfChanged();
+        Map<String, Integer> courseIds = new HashMap<>();
+        for (Course course : referenceData.getCourses()) {
+            courseIds.put(course.getCode().toLowerCase(Locale.ROOT), course.getId());
+            courseIds.putIfAbsent(course.getName().toLowerCase(Locale.ROOT), course.getId());
+        }
+        return courseIds;
+    }
+    
+    /**
+     * Build and validate the Student for a row; runs on the validation pool
+     */
+    private void parseRow(ImportRow row, Map<String, Integer> columns, Map<String, Integer> courseIds) {
+        try {
+            Student student = new Student();
+            String rollNumber = field(row, columns, "roll_number");
+            student.setRollNumber(rollNumber != null ? rollNumber : PENDING_ROLL_NUMBER);
+            student.setName(field(row, columns, "name"));
+            student.setEmail(field(row, columns, "email"));
+            student.setPhone(field(row, columns, "phone"));
+            student.setDateOfBirth(parseDate(field(row, columns, "date_of_birth"), "date_of_birth"));
+            student.setGender(normalizeGender(field(row, columns, "gender")));
+            student.setAddress(field(row, columns, "address"));
+            student.setCity(field(row, columns, "city"));
+            student.setState(field(row, columns, "state"));
+            student.setCountry(field(row, columns, "country"));
+            student.setPostalCode(field(row, columns, "postal_code"));
+            student.setEnrollmentDate(parseDate(field(row, columns, "enrollment_date"), "enrollment_date"));
+            student.setEmergencyContactName(field(row, columns, "emergency_contact_name"));
+            student.setEmergencyContactPhone(field(row, columns, "emergency_contact_phone"));
+            student.setEmergencyContactRelationship(field(row, columns, "emergency_contact_relationship"));
+            
+            String status = field(row, columns, "status");
+            if (status != null) {
+                student.setStatus(status.toUpperCase(Locale.ROOT));
+            }
+            
+            String courseId = field(row, columns, "course_id");
+            String course = field(row, columns, "course");
+            if (courseId != null) {
+                student.setCourseId(Integer.valueOf(courseId));
+            } else if (course != null) {
+                Integer id = courseIds.get(course.toLowerCase(Locale.ROOT));
+                if (id == null) {
+                    row.error = "Unknown course: " + course;
+                    return;
+                }
+                student.setCourseId(id);
+            }
+            
+            ValidationResult result = student.validate();
+            if (!result.isValid()) {
+                row.error = result.getErrorMessage();
+                return;
+            }
+            student.setCreatedBy(importedBy);
+            student.setUpdatedBy(importedBy);
+            row.student = student;
+        } catch (NumberFormatException e) {
+            row.error = "Invalid number: " + e.getMessage();
+        } catch (IllegalArgumentException e) {
+            row.error = e.getMessage();
+        }
+    }
+    
+    private static String field(ImportRow row, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= row.fields.size()) {
+            return null;
+        }
+        String value = row.fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+    
+    private static Date parseDate(String value, String column) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Date.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + column + " (expected yyyy-mm-dd): " + value);
+        }
+    }
+    
+    private static String normalizeGender(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (String gender : new String[] {Student.GENDER_MALE, Student.GENDER_FEMALE, Student.GENDER_OTHER}) {
+            if (gender.equalsIgnoreCase(value)) {
+                return gender;
+            }
+        }
+        return value;
+    }
+    
+    /**
+     * Insert one chunk in a single transaction. If the batch hits a constraint
+     * (typically a duplicate email or roll number) it is rolled back and replayed
+     * row by row so only the offending rows are rejected.
+     */
+    private void insertChunk(List<ImportRow> rows, CsvWriter rejects, AtomicLong imported, AtomicLong rejected)
+            throws SQLException, IOException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<ImportRow> failedRows = dbManager.inWriteTransaction(conn -> {
+            // Reserved in the chunk's transaction, so a rollback or replay returns them
+            allocateRollNumbers(rows);
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+                try {
+                    for (ImportRow row : rows) {
+                        bind(pstmt, row.student);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                    auditCreated(rows, List.of());
+                    return List.<ImportRow>of();
+                } catch (SQLException e) {
+                    if (WriteTransactionRunner.isBusy(e)) {
+                        throw e;
+                    }
+                    conn.rollback();
+                    pstmt.clearBatch();
+                    // The rollback also released the chunk's roll numbers
+                    allocateRollNumbers(rows);
+                    
+                    List<ImportRow> failed = new ArrayList<>();
+                    for (ImportRow row : rows) {
+                        try {
+                            bind(pstmt, row.student);
+                            pstmt.executeUpdate();
+                        } catch (SQLException rowError) {
+                            // A lock conflict replays the whole chunk; anything else rejects just this row.
+                            // SQLite rolls back only the failed statement, the transaction stays open
+                            if (WriteTransactionRunner.isBusy(rowError)) {
+                                throw rowError;
+                            }
+                            row.error = rowError.getMessage();
+                            failed.add(row);
+                        }
+                    }
+                    auditCreated(rows, failed);
+                    return failed;
+                }
+            }
+        });
+        
+        imported.addAndGet(rows.size() - failedRows.size());
+        for (ImportRow row : failedRows) {
+            reject(rejects, row, rejected);
+        }
+    }
+    
+    /**
+     * Record a CREATE audit entry for every inserted row, in the chunk's transaction
+     */
+    private void auditCreated(List<ImportRow> rows, List<ImportRow> failed) throws SQLException {
+        if (importedBy == null) {
+            return;
+        }
+        Set<ImportRow> skipped = new HashSet<>(failed);
+        List<String> rollNumbers = new ArrayList<>(rows.size() - failed.size());
+        for (ImportRow row : rows) {
+            if (!skipped.contains(row)) {
+                rollNumbers.add(row.student.getRollNumber());
+            }
+        }
+        dbManager.logStudentsCreated(importedBy, rollNumbers);
+    }
+    
+    /**
+     * Give rows without a roll number one from the allocator; rows numbered by an
+     * earlier, rolled-back attempt are numbered again
+     */
+    private void allocateRollNumbers(List<ImportRow> rows) throws SQLException {
+        Map<Integer, List<Student>> pendingByCourse = new LinkedHashMap<>();
+        for (ImportRow row : rows) {
+            if (row.generatedRollNumber || PENDING_ROLL_NUMBER.equals(row.student.getRollNumber())) {
+                row.generatedRollNumber = true;
+                pendingByCourse.computeIfAbsent(row.student.getCourseId(), k -> new ArrayList<>()).add(row.student);
+            }
+        }
+        for (Map.Entry<Integer, List<Student>> entry : pendingByCourse.entrySet()) {
+            List<Student> students = entry.getValue();
+            List<String> rollNumbers = dbManager.generateRollNumbers(entry.getKey(), students.size());
+            for (int i = 0; i < students.size(); i++) {
+                students.get(i).setRollNumber(rollNumbers.get(i));
+            }
+        }
+    }
+    
+    private static void bind(PreparedStatement pstmt, Student s) throws SQLException {
+        pstmt.setString(1, s.getRollNumber());
+        pstmt.setString(2, s.getName());
+        pstmt.setString(3, s.getEmail());
+        pstmt.setString(4, s.getPhone());
+        pstmt.setDate(5, s.getDateOfBirth());
+        pstmt.setString(6, s.getGender());
+        pstmt.setString(7, s.getAddress());
+        pstmt.setString(8, s.getCity());
+        pstmt.setString(9, s.getState());
+        pstmt.setString(10, s.getCountry() != null ? s.getCountry() : "India");
+        pstmt.setString(11, s.getPostalCode());
+        setNullable(pstmt, 12, s.getCourseId(), Types.INTEGER);
+        pstmt.setDate(13, s.getEnrollmentDate() != null ? s.getEnrollmentDate() : new Date(System.currentTimeMillis()));
+        pstmt.setString(14, s.getStatus() != null ? s.getStatus() : Student.STATUS_ACTIVE);
+        pstmt.setString(15, s.getEmergencyContactName());
+        pstmt.setString(16, s.getEmergencyContactPhone());
+        pstmt.setString(17, s.getEmergencyContactRelationship());
+        setNullable(pstmt, 18, s.getCreatedBy(), Types.INTEGER);
+        setNullable(pstmt, 19, s.getUpdatedBy(), Types.INTEGER);
+    }
+    
+    private static void setNullable(PreparedStatement pstmt, int index, Integer value, int sqlType) throws SQLException {
+        if (value == null) {
+            pstmt.setNull(index, sqlType);
+        } else {
+            pstmt.setInt(index, value);
+        }
+    }
+    
+    private static void reject(CsvWriter rejects, ImportRow row, AtomicLong rejected) throws IOException {
+        List<String> record = new ArrayList<>(row.fields.size() + 2);
+        record.add(String.valueOf(row.line));
+        record.add(row.error);
+        record.addAll(row.fields);
+        // The reader thread and the writer thread both report rejects
+        synchronized (rejects) {
+            rejects.writeRecord(record);
+        }
+        rejected.incrementAndGet();
+    }
+    
+    private static void await(Future<?> future) throws InterruptedException, IOException, SQLException {
+        if (future == null) {
+            return;
+        }
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java StudentImporter <students.csv> [rejects.csv]");
+            System.exit(1);
+        }
+        Path csvFile = Paths.get(args[0]);
+        Path rejectFile = Paths.get(args.length > 1 ? args[1] : args[0] + ".rejects.csv");
+        
+        StudentImporter importer = DatabaseManager.getInstance().createStudentImporter(null);
+        long[] lastPrint = {0};
+        ImportReport report = importer.importFile(csvFile, rejectFile, progress -> {
+            long now = System.currentTimeMillis();
+            if (now - lastPrint[0] >= 1000) {
+                lastPrint[0] = now;
+                System.out.println(progress);
+            }
+        });
+        
+        System.out.println(report);
+        if (report.getRejected() > 0) {
+            System.out.println("Rejected rows written to " + rejectFile);
+        }
+        DatabaseManager.getInstance().closeConnection();
+    }
+}
@@ -13,8 +13,19 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.paint.Color;
 import javafx.scene.control.Alert.AlertType;
 import java.util.Optional;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 import java.math.BigDecimal;
 import javafx.scene.shape.Line;
+import javafx.concurrent.Task;
+import javafx.stage.FileChooser;
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class StudentManagementSystem extends Application {
     
@@ -250,16 +261,20 @@ public class StudentManagementSystem extends Application {
             String ipAddress = "127.0.0.1";
             String userAgent = "JavaFX Application";
             
-            LoginResult result = authManager.authenticateUser(username, password, ipAddress, userAgent);
-            
-            if (result.isSuccess()) {
-                currentSession = result.getSession();
-                showSuccess("Login Successful", "Welcome, " + currentSession.getUser().getUsername() + "!");
-                createMainScene();
-                primaryStage.setScene(mainScene);
-            } else {
-                showError("Login Failed", result.getMessage());
-            }
+            // Hashing runs on its own pool; the UI stays responsive until the result is back
+            loginButton.setDisable(true);
+            authManager.authenticateUserAsync(username, password, ipAddress, userAgent)
+                .thenAccept(result -> javafx.application.Platform.runLater(() -> {
+                    loginButton.setDisable(false);
+                    if (result.isSuccess()) {
+                        currentSession = result.getSession();
+                        showSuccess("Login Successful", "Welcome, " + currentSession.getUser().getUsername() + "!");
+                        createMainScene();
+                        primaryStage.setScene(mainScene);
+                    } else {
+                        showError("Login Failed", result.getMessage());
+                    }
+                }));
         });
         
         loginForm.getChildren().addAll(loginTitle, usernameGroup, passwordGroup, loginButton, demoInfo);
@@ -378,7 +393,18 @@ public class StudentManagementSystem extends Application {
             }
         });
         
-        userSection.getChildren().addAll(userInfo, logoutButton);
+        Button changePasswordButton = new Button("Change Password");
+        changePasswordButton.setStyle(
+            "-fx-background-color: #667eea; " +
+            "-fx-text-fill: white; " +
+            "-fx-font-weight: bold; " +
+            "-fx-background-radius: 8; " +
+            "-fx-padding: 10 20; " +
+            "-fx-cursor: hand;"
+        );
+        changePasswordButton.setOnAction(e -> showChangePasswordDialog(changePasswordButton));
+        
+        userSection.getChildren().addAll(userInfo, changePasswordButton, logoutButton);
         
         // Time display
         VBox timeSection = new VBox(3);
@@ -508,7 +534,14 @@ public class StudentManagementSystem extends Application {
         viewStatisticsBtn.setTextFill(javafx.scene.paint.Color.WHITE);
         viewStatisticsBtn.setOnAction(e -> showStatisticsDialog());
         
-        actionButtons.getChildren().addAll(addStudentBtn, generateReportBtn, viewStatisticsBtn);
+        Button importStudentsBtn = new Button("Import Students");
+        importStudentsBtn.setStyle("-fx-background-color: #16a085; -fx-text-fill: white; -fx-font-weight: bold; -fx-padding: 12px 24px;");
+        importStudentsBtn.setPrefHeight(48);
+        importStudentsBtn.setMinHeight(48);
+        importStudentsBtn.setTextFill(javafx.scene.paint.Color.WHITE);
+        importStudentsBtn.setOnAction(e -> importStudentData());
+        
+        actionButtons.getChildren().addAll(addStudentBtn, importStudentsBtn, generateReportBtn, viewStatisticsBtn);
         
         quickActions.getChildren().addAll(actionsLabel, actionButtons);
         
@@ -742,7 +775,24 @@ public class StudentManagementSystem extends Application {
         backupDataBtn.setTextFill(javafx.scene.paint.Color.WHITE);
         backupDataBtn.setOnAction(e -> backupSystemData());
         
-        adminControls.getChildren().addAll(userManagementBtn, systemSettingsBtn, auditLogsBtn, backupDataBtn);
+        Button queryMetricsBtn = new Button("Query Metrics");
+        queryMetricsBtn.setStyle("-fx-background-color: #2980b9; -fx-text-fill: white; -fx-font-weight: bold; -fx-padding: 12px 24px;");
+        queryMetricsBtn.setPrefWidth(200);
+        queryMetricsBtn.setPrefHeight(48);
+        queryMetricsBtn.setMinHeight(48);
+        queryMetricsBtn.setTextFill(javafx.scene.paint.Color.WHITE);
+        queryMetricsBtn.setOnAction(e -> showQueryMetricsDialog());
+        
+        Button recomputeGpaBtn = new Button("Recompute GPAs");
+        recomputeGpaBtn.setStyle("-fx-background-color: #16a085; -fx-text-fill: white; -fx-font-weight: bold; -fx-padding: 12px 24px;");
+        recomputeGpaBtn.setPrefWidth(200);
+        recomputeGpaBtn.setPrefHeight(48);
+        recomputeGpaBtn.setMinHeight(48);
+        recomputeGpaBtn.setTextFill(javafx.scene.paint.Color.WHITE);
+        recomputeGpaBtn.setOnAction(e -> recomputeAllGpas(recomputeGpaBtn));
+        
+        adminControls.getChildren().addAll(userManagementBtn, systemSettingsBtn, auditLogsBtn, backupDataBtn,
+                                           queryMetricsBtn, recomputeGpaBtn);
         
         adminLayout.getChildren().addAll(titleLabel, adminControls);
         return adminLayout;
@@ -818,20 +868,244 @@ public class StudentManagementSystem extends Application {
         showInfo("Feature", "Add Student dialog will be implemented here");
     }
     
+    /**
+     * Import students from a CSV file on a background thread with a progress dialog
+     */
+    private void importStudentData() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Students");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File csvFile = chooser.showOpenDialog(primaryStage);
+        if (csvFile == null) {
+            return;
+        }
+        Path rejectFile = Paths.get(csvFile.getPath() + ".rejects.csv");
+        
+        StudentImporter importer = dbManager.createStudentImporter(currentSession.getUser().getId());
+        Task<ImportReport> importTask = new Task<>() {
+            @Override
+            protected ImportReport call() throws Exception {
+                return importer.importFile(csvFile.toPath(), rejectFile, progress -> {
+                    updateProgress(progress.getFractionDone(), 1.0);
+                    updateMessage(progress.toString());
+                });
+            }
+        };
+        
+        Alert progressDialog = showProgressDialog("Importing Students", importTask, importer::cancel);
+        
+        importTask.setOnSucceeded(e -> {
+            progressDialog.close();
+            ImportReport report = importTask.getValue();
+            String message = String.format("Imported %d of %d rows (%.0f rows/s).",
+                report.getImported(), report.getRowsRead(), report.getRowsPerSecond());
+            if (report.getRejected() > 0) {
+                message += "\n" + report.getRejected() + " rejected rows were written to " + rejectFile;
+            }
+            showSuccess(report.isCancelled() ? "Import Cancelled" : "Import Complete", message);
+        });
+        importTask.setOnFailed(e -> {
+            progressDialog.close();
+            showError("Import Failed", importTask.getException().getMessage());
+        });
+        
+        Thread importThread = new Thread(importTask, "student-import");
+        importThread.setDaemon(true);
+        importThread.start();
+    }
+    
+    /**
+     * Non-modal progress dialog bound to a background task; closing it runs onCancel
+     */
+    private Alert showProgressDialog(String title, Task<?> task, Runnable onCancel) {
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(400);
+        progressBar.progressProperty().bind(task.progressProperty());
+        Label progressLabel = new Label();
+        progressLabel.textProperty().bind(task.messageProperty());
+        
+        Alert progressDialog = new Alert(AlertType.NONE);
+        progressDialog.setTitle(title);
+        progressDialog.getDialogPane().setContent(new VBox(10, progressBar, progressLabel));
+        progressDialog.getButtonTypes().add(ButtonType.CANCEL);
+        progressDialog.setOnCloseRequest(e -> {
+            if (task.isRunning()) {
+                onCancel.run();
+            }
+        });
+        progressDialog.show();
+        return progressDialog;
+    }
+    
     private void performAdvancedSearch(String searchType, String searchTerm) {
         showInfo("Feature", "Advanced search will be implemented here");
     }
     
+    /**
+     * Write text and HTML transcripts for every graded student into a zip
+     */
     private void generateStudentReport() {
-        showInfo("Feature", "Student report generation will be implemented here");
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Generate Transcripts");
+        chooser.setInitialFileName("transcripts.zip");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Zip archive", "*.zip"));
+        File target = chooser.showSaveDialog(primaryStage);
+        if (target == null) {
+            return;
+        }
+        
+        TranscriptGenerator generator = dbManager.createTranscriptGenerator(currentSession.getUser().getId());
+        Task<TranscriptReport> transcriptTask = new Task<>() {
+            @Override
+            protected TranscriptReport call() throws Exception {
+                return generator.generate(target.toPath(), null, (written, total) -> {
+                    updateProgress(written, Math.max(total, 1));
+                    updateMessage(written + " of " + total + " transcripts written");
+                });
+            }
+        };
+        
+        Alert progressDialog = showProgressDialog("Generating Transcripts", transcriptTask, generator::cancel);
+        
+        transcriptTask.setOnSucceeded(e -> {
+            progressDialog.close();
+            TranscriptReport report = transcriptTask.getValue();
+            if (report.isCancelled()) {
+                showInfo("Transcripts Cancelled", "No file was written.");
+            } else {
+                showSuccess("Transcripts Complete", String.format("Wrote transcripts for %d students to %s (%.0f students/s).",
+                    report.getStudents(), target.getName(), report.getStudentsPerSecond()));
+            }
+        });
+        transcriptTask.setOnFailed(e -> {
+            progressDialog.close();
+            showError("Transcript Generation Failed", transcriptTask.getException().getMessage());
+        });
+        
+        Thread transcriptThread = new Thread(transcriptTask, "transcript-generate");
+        transcriptThread.setDaemon(true);
+        transcriptThread.start();
     }
     
     private void generateStatisticsReport() {
         showInfo("Feature", "Statistics report generation will be implemented here");
     }
     
+    /**
+     * Stream the full roster to CSV or JSON Lines; a .gz file name enables compression
+     */
     private void exportStudentData() {
-        showInfo("Feature", "Data export will be implemented here");
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Students");
+        chooser.setInitialFileName("students.csv");
+        chooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("CSV", "*.csv", "*.csv.gz"),
+            new FileChooser.ExtensionFilter("JSON Lines", "*.jsonl", "*.jsonl.gz"));
+        File target = chooser.showSaveDialog(primaryStage);
+        if (target == null) {
+            return;
+        }
+        
+        String fileName = target.getName().toLowerCase();
+        boolean gzip = fileName.endsWith(".gz");
+        StudentExporter.Format format = fileName.endsWith(".jsonl") || fileName.endsWith(".jsonl.gz")
+            ? StudentExporter.Format.JSONL : StudentExporter.Format.CSV;
+        
+        StudentExporter exporter = dbManager.createStudentExporter(currentSession.getUser().getId());
+        Task<ExportReport> exportTask = new Task<>() {
+            @Override
+            protected ExportReport call() throws Exception {
+                return exporter.export(target.toPath(), format, gzip, null, (rows, total) -> {
+                    updateProgress(rows, Math.max(total, 1));
+                    updateMessage(rows + " of " + total + " students written");
+                });
+            }
+        };
+        
+        Alert progressDialog = showProgressDialog("Exporting Students", exportTask, exporter::cancel);
+        
+        exportTask.setOnSucceeded(e -> {
+            progressDialog.close();
+            ExportReport report = exportTask.getValue();
+            if (report.isCancelled()) {
+                showInfo("Export Cancelled", "No file was written.");
+            } else {
+                showSuccess("Export Complete", String.format("Exported %d students to %s (%.0f rows/s).",
+                    report.getRows(), target.getName(), report.getRowsPerSecond()));
+            }
+        });
+        exportTask.setOnFailed(e -> {
+            progressDialog.close();
+            showError("Export Failed", exportTask.getException().getMessage());
+        });
+        
+        Thread exportThread = new Thread(exportTask, "student-export");
+        exportThread.setDaemon(true);
+        exportThread.start();
+    }
+    
+    /**
+     * Change the signed-in user's password; the check and the new hash run on the hashing pool
+     */
+    private void showChangePasswordDialog(Button trigger) {
+        PasswordField currentField = new PasswordField();
+        currentField.setPromptText("Current password");
+        PasswordField newField = new PasswordField();
+        newField.setPromptText("New password");
+        PasswordField confirmField = new PasswordField();
+        confirmField.setPromptText("Confirm new password");
+        
+        Alert dialog = new Alert(AlertType.CONFIRMATION);
+        dialog.setTitle("Change Password");
+        dialog.setHeaderText("Change the password for " + currentSession.getUser().getUsername());
+        dialog.getDialogPane().setContent(new VBox(10, currentField, newField, confirmField));
+        Optional<ButtonType> choice = dialog.showAndWait();
+        if (choice.isEmpty() || choice.get() != ButtonType.OK) {
+            return;
+        }
+        
+        String currentPassword = currentField.getText();
+        String newPassword = newField.getText();
+        if (currentPassword.isEmpty() || newPassword.isEmpty()) {
+            showError("Change Password", "Please enter both the current and the new password.");
+            return;
+        }
+        if (!newPassword.equals(confirmField.getText())) {
+            showError("Change Password", "The new passwords do not match.");
+            return;
+        }
+        
+        String sessionToken = currentSession.getSessionToken();
+        Task<Boolean> changeTask = new Task<>() {
+            @Override
+            protected Boolean call() throws Exception {
+                return authManager.changePasswordAsync(sessionToken, currentPassword, newPassword).get();
+            }
+        };
+        
+        trigger.setDisable(true);
+        changeTask.setOnSucceeded(e -> {
+            trigger.setDisable(false);
+            if (changeTask.getValue()) {
+                showSuccess("Change Password", "Your password has been changed.");
+            } else {
+                showError("Change Password", "The current password is incorrect or your session has expired.");
+            }
+        });
+        changeTask.setOnFailed(e -> {
+            trigger.setDisable(false);
+            Throwable cause = changeTask.getException().getCause() != null
+                ? changeTask.getException().getCause() : changeTask.getException();
+            if (cause instanceof RejectedExecutionException) {
+                showError("Change Password", "The server is busy. Please try again in a moment.");
+            } else {
+                showError("Change Password", "Could not change the password: " + cause.getMessage());
+            }
+        });
+        
+        Thread changeThread = new Thread(changeTask, "password-change");
+        changeThread.setDaemon(true);
+        changeThread.start();
     }
     
     private void showUserManagementDialog() {
@@ -843,11 +1117,276 @@ public class StudentManagementSystem extends Application {
     }
     
     private void showAuditLogsDialog() {
-        showInfo("Feature", "Audit logs will be implemented here");
+        TextField userIdField = new TextField();
+        userIdField.setPromptText("User ID");
+        userIdField.setPrefWidth(90);
+        TextField actionField = new TextField();
+        actionField.setPromptText("Action (e.g. CREATE)");
+        
+        TableView<AuditRecord> table = new TableView<>();
+        table.setPrefSize(1000, 450);
+        String[][] columns = {
+            {"Time (UTC)", "timestamp"}, {"User", "userId"}, {"Action", "action"}, {"Table", "tableName"},
+            {"Record", "recordId"}, {"Old Values", "oldValues"}, {"New Values", "newValues"}, {"IP", "ipAddress"}
+        };
+        for (String[] column : columns) {
+            TableColumn<AuditRecord, Object> tableColumn = new TableColumn<>(column[0]);
+            tableColumn.setCellValueFactory(new PropertyValueFactory<>(column[1]));
+            tableColumn.setPrefWidth(column[1].endsWith("Values") ? 250 : 90);
+            table.getColumns().add(tableColumn);
+        }
+        
+        Button searchBtn = new Button("Search");
+        Button moreBtn = new Button("Load More");
+        moreBtn.setDisable(true);
+        Long[] cursor = new Long[1];
+        
+        // Each page continues from the oldest id shown, so paging stays cheap however far back it goes.
+        // A page may span several monthly partitions, so it is loaded off the FX thread.
+        Runnable loadPage = () -> {
+            String userIdText = userIdField.getText().trim();
+            String actionText = actionField.getText().trim();
+            Integer userId;
+            try {
+                userId = userIdText.isEmpty() ? null : Integer.valueOf(userIdText);
+            } catch (NumberFormatException ex) {
+                showError("Invalid Input", "User ID must be a number.");
+                return;
+            }
+            String action = actionText.isEmpty() ? null : actionText.toUpperCase();
+            Long from = cursor[0];
+            Task<AuditPage> pageTask = new Task<>() {
+                @Override
+                protected AuditPage call() throws Exception {
+                    return dbManager.queryAuditLog(userId, action, null, null, from, 200);
+                }
+            };
+            
+            searchBtn.setDisable(true);
+            moreBtn.setDisable(true);
+            pageTask.setOnSucceeded(e -> {
+                AuditPage page = pageTask.getValue();
+                if (from == null) {
+                    table.getItems().setAll(page.getRecords());
+                } else {
+                    table.getItems().addAll(page.getRecords());
+                }
+                cursor[0] = page.getNextCursor();
+                searchBtn.setDisable(false);
+                moreBtn.setDisable(!page.hasMore());
+            });
+            pageTask.setOnFailed(e -> {
+                searchBtn.setDisable(false);
+                moreBtn.setDisable(cursor[0] == null);
+                showError("Audit Logs", "Could not load audit logs: " + pageTask.getException().getMessage());
+            });
+            
+            Thread pageThread = new Thread(pageTask, "audit-log-page");
+            pageThread.setDaemon(true);
+            pageThread.start();
+        };
+        searchBtn.setOnAction(e -> {
+            cursor[0] = null;
+            loadPage.run();
+        });
+        moreBtn.setOnAction(e -> loadPage.run());
+        loadPage.run();
+        
+        // Full before/after history of the student an entry refers to
+        Button historyBtn = new Button("Student History");
+        historyBtn.setDisable(true);
+        table.getSelectionModel().selectedItemProperty().addListener((obs, previous, selected) ->
+            historyBtn.setDisable(selected == null || !"students".equals(selected.getTableName())
+                                  || selected.getRecordId() == null));
+        historyBtn.setOnAction(e -> {
+            AuditRecord selected = table.getSelectionModel().getSelectedItem();
+            if (selected != null && selected.getRecordId() != null) {
+                showStudentHistoryDialog(selected.getRecordId());
+            }
+        });
+        
+        Alert dialog = new Alert(AlertType.NONE);
+        dialog.setTitle("Audit Logs");
+        dialog.setResizable(true);
+        dialog.getDialogPane().setContent(new VBox(10,
+            new HBox(10, new Label("Filter:"), userIdField, actionField, searchBtn), table,
+            new HBox(10, moreBtn, historyBtn)));
+        dialog.getButtonTypes().add(ButtonType.CLOSE);
+        dialog.showAndWait();
+    }
+    
+    /**
+     * Audited revisions of one student, newest first, with the columns each one changed
+     */
+    private void showStudentHistoryDialog(int studentId) {
+        TextArea historyArea = new TextArea("Loading...");
+        historyArea.setEditable(false);
+        historyArea.setPrefRowCount(20);
+        historyArea.setPrefColumnCount(80);
+        historyArea.setStyle("-fx-font-family: monospace;");
+        
+        Task<List<StudentRevision>> historyTask = new Task<>() {
+            @Override
+            protected List<StudentRevision> call() throws Exception {
+                return dbManager.getStudentHistory(studentId);
+            }
+        };
+        historyTask.setOnSucceeded(e -> historyArea.setText(formatStudentHistory(historyTask.getValue())));
+        historyTask.setOnFailed(e ->
+            historyArea.setText("Could not load history: " + historyTask.getException().getMessage()));
+        
+        Thread historyThread = new Thread(historyTask, "student-history");
+        historyThread.setDaemon(true);
+        historyThread.start();
+        
+        Alert dialog = new Alert(AlertType.NONE);
+        dialog.setTitle("Student History (id " + studentId + ")");
+        dialog.setResizable(true);
+        dialog.getDialogPane().setContent(historyArea);
+        dialog.getButtonTypes().add(ButtonType.CLOSE);
+        dialog.showAndWait();
+    }
+    
+    private static String formatStudentHistory(List<StudentRevision> revisions) {
+        if (revisions.isEmpty()) {
+            return "No audited changes for this student.";
+        }
+        StringBuilder text = new StringBuilder();
+        for (StudentRevision revision : revisions) {
+            text.append(revision.getTimestamp()).append("  ").append(revision.getAction())
+                .append(" by user ").append(revision.getUserId()).append('\n');
+            String[] values = StudentAuditCodec.encode(revision.getBefore(), revision.getAfter());
+            Map<String, String> oldValues = StudentAuditCodec.decode(values[0]);
+            Map<String, String> newValues = StudentAuditCodec.decode(values[1]);
+            Set<String> columns = new LinkedHashSet<>(oldValues.keySet());
+            columns.addAll(newValues.keySet());
+            for (String column : columns) {
+                text.append("    ").append(column).append(": ")
+                    .append(oldValues.containsKey(column) ? oldValues.get(column) : "-").append(" -> ")
+                    .append(newValues.containsKey(column) ? newValues.get(column) : "-").append('\n');
+            }
+        }
+        return text.toString();
     }
     
+    /**
+     * Take an online backup and restore-verify it on a background thread
+     */
     private void backupSystemData() {
-        showInfo("Feature", "Data backup will be implemented here");
+        BackupManager backupManager = dbManager.getBackupManager();
+        Task<String> backupTask = new Task<>() {
+            @Override
+            protected String call() throws Exception {
+                updateMessage("Taking snapshot...");
+                BackupReport report = backupManager.backupNow();
+                updateMessage("Verifying " + report.getFile().getFileName() + "...");
+                VerificationResult verification = backupManager.verify(report.getFile());
+                if (!verification.isValid()) {
+                    throw new IllegalStateException("Backup failed verification: " + verification.getMessage());
+                }
+                return report + "\n" + verification;
+            }
+        };
+        
+        // Cancelling interrupts the backup thread; BackupManager stops at the next step and cleans up
+        Alert progressDialog = showProgressDialog("Backing Up Data", backupTask, () -> backupTask.cancel(true));
+        
+        backupTask.setOnSucceeded(e -> {
+            progressDialog.close();
+            showSuccess("Backup Complete", backupTask.getValue());
+        });
+        backupTask.setOnFailed(e -> {
+            progressDialog.close();
+            showError("Backup Failed", backupTask.getException().getMessage());
+        });
+        backupTask.setOnCancelled(e -> {
+            progressDialog.close();
+            showInfo("Backup Cancelled", "The backup was stopped and its partial files were removed.");
+        });
+        
+        Thread backupThread = new Thread(backupTask, "manual-backup");
+        backupThread.setDaemon(true);
+        backupThread.start();
+    }
+    
+    /**
+     * Rebuild every student's GPA and credits from grades on a background thread.
+     * The run cannot be cancelled, so the button stays disabled until it finishes.
+     */
+    private void recomputeAllGpas(Button trigger) {
+        GpaEngine gpaEngine = dbManager.getGpaEngine();
+        Task<GpaReport> recomputeTask = new Task<>() {
+            @Override
+            protected GpaReport call() throws Exception {
+                return gpaEngine.recomputeAll();
+            }
+        };
+        
+        trigger.setDisable(true);
+        recomputeTask.setOnSucceeded(e -> {
+            trigger.setDisable(false);
+            GpaReport report = recomputeTask.getValue();
+            showSuccess("GPA Recompute Complete", String.format("%,d students updated in %,d ms.",
+                report.getStudentsUpdated(), report.getElapsedMillis()));
+        });
+        recomputeTask.setOnFailed(e -> {
+            trigger.setDisable(false);
+            showError("GPA Recompute Failed", recomputeTask.getException().getMessage());
+        });
+        
+        Thread recomputeThread = new Thread(recomputeTask, "gpa-recompute");
+        recomputeThread.setDaemon(true);
+        recomputeThread.start();
+    }
+    
+    /**
+     * Per-query latency table from the database metrics snapshot
+     */
+    private void showQueryMetricsDialog() {
+        if (dbManager.getQueryMetricsSnapshot() == null) {
+            showInfo("Query Metrics", "Enable db.performance_logging_enabled in database.properties to collect query metrics.");
+            return;
+        }
+        
+        TextArea summaryArea = new TextArea();
+        summaryArea.setEditable(false);
+        summaryArea.setPrefRowCount(4);
+        summaryArea.setStyle("-fx-font-family: monospace;");
+        
+        TableView<QueryShapeSnapshot> table = new TableView<>();
+        table.setPrefSize(1000, 400);
+        String[][] columns = {
+            {"Query", "sql"}, {"Count", "count"}, {"p50 ms", "p50Millis"}, {"p95 ms", "p95Millis"},
+            {"p99 ms", "p99Millis"}, {"Max ms", "maxMillis"}, {"Rows", "rows"}, {"Errors", "errors"}
+        };
+        for (String[] column : columns) {
+            TableColumn<QueryShapeSnapshot, Object> tableColumn = new TableColumn<>(column[0]);
+            tableColumn.setCellValueFactory(new PropertyValueFactory<>(column[1]));
+            tableColumn.setPrefWidth("sql".equals(column[1]) ? 480 : 70);
+            table.getColumns().add(tableColumn);
+        }
+        
+        Runnable refresh = () -> {
+            QueryMetricsSnapshot snapshot = dbManager.getQueryMetricsSnapshot();
+            summaryArea.setText(snapshot.getSummary());
+            table.setItems(FXCollections.observableArrayList(snapshot.getShapes()));
+        };
+        refresh.run();
+        
+        Button refreshBtn = new Button("Refresh");
+        refreshBtn.setOnAction(e -> refresh.run());
+        Button resetBtn = new Button("Reset");
+        resetBtn.setOnAction(e -> {
+            dbManager.resetQueryMetrics();
+            refresh.run();
+        });
+        
+        Alert dialog = new Alert(AlertType.NONE);
+        dialog.setTitle("Query Metrics");
+        dialog.setResizable(true);
+        dialog.getDialogPane().setContent(new VBox(10, summaryArea, table, new HBox(10, refreshBtn, resetBtn)));
+        dialog.getButtonTypes().add(ButtonType.CLOSE);
+        dialog.showAndWait();
     }
     
     private void generateSystemReport() {
@@ -962,7 +1501,7 @@ public class StudentManagementSystem extends Application {
         ComboBox<String> courseCombo = (ComboBox<String>) courseGroup.getChildren().get(1);
         ComboBox<String> yearCombo = (ComboBox<String>) yearGroup.getChildren().get(1);
         
-        courseCombo.getItems().addAll("Computer Science", "Information Technology", "Electronics", "Mechanical", "Civil", "Business Administration");
+        courseCombo.getItems().addAll(getActiveCourseNames());
         yearCombo.getItems().addAll("1st Year", "2nd Year", "3rd Year", "4th Year");
         
         // Auto-generate roll number when course is selected
@@ -1059,16 +1598,19 @@ public class StudentManagementSystem extends Application {
     }
     
     private Integer getCourseIdFromName(String courseName) {
-        // Map course names to dummy course IDs for demo
-        switch (courseName) {
-            case "Computer Science": return 1;
-            case "Information Technology": return 2;
-            case "Electronics": return 3;
-            case "Mechanical": return 4;
-            case "Civil": return 5;
-            case "Business Administration": return 6;
-            default: return 1;
+        Course course = DatabaseManager.getInstance().getReferenceData().findCourse(courseName);
+        return course != null ? course.getId() : null;
+    }
+    
+    /**
+     * Names of the active courses, from the reference data cache
+     */
+    private List<String> getActiveCourseNames() {
+        List<String> names = new ArrayList<>();
+        for (Course course : DatabaseManager.getInstance().getReferenceData().getActiveCourses()) {
+            names.add(course.getName());
         }
+        return names;
     }
     
     private VBox createFormSection(String title, String icon) {
@@ -1267,7 +1809,8 @@ public class StudentManagementSystem extends Application {
         ComboBox<String> courseSearch = (ComboBox<String>) courseSearchGroup.getChildren().get(1);
         ComboBox<String> yearSearch = (ComboBox<String>) yearSearchGroup.getChildren().get(1);
         
-        courseSearch.getItems().addAll("All Courses", "Computer Science", "Information Technology", "Electronics", "Mechanical", "Civil", "Business Administration");
+        courseSearch.getItems().add("All Courses");
+        courseSearch.getItems().addAll(getActiveCourseNames());
         yearSearch.getItems().addAll("All Years", "1st Year", "2nd Year", "3rd Year", "4th Year");
         
         // Search button
@@ -0,0 +1,34 @@
+import java.util.List;
+
+/**
+ * One page of keyset-paginated search results
+ */
+class StudentPage {
+    private final List<Student> students;
+    private final Cursor nextCursor;
+    
+    public StudentPage(List<Student> students, Cursor nextCursor) {
+        this.students = students;
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<Student> getStudents() { return students; }
+    public Cursor getNextCursor() { return nextCursor; }
+    public boolean hasMore() { return nextCursor != null; }
+    
+    /**
+     * Position after the last row of a page: the (name, id) sort key
+     */
+    public static class Cursor {
+        private final String name;
+        private final int id;
+        
+        public Cursor(String name, int id) {
+            this.name = name;
+            this.id = id;
+        }
+        
+        public String getName() { return name; }
+        public int getId() { return id; }
+    }
+}
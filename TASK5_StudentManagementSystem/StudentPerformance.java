@@ -0,0 +1,34 @@
+import java.math.BigDecimal;
+
+/**
+ * Student performance class for tracking individual student performance
+ */
+class StudentPerformance {
+    private String studentName;
+    private String rollNumber;
+    private String courseName;
+    private BigDecimal gpa;
+    private int totalCredits;
+    private String academicStanding;
+    private String status;
+    
+    public StudentPerformance(String studentName, String rollNumber, String courseName, 
+                            BigDecimal gpa, int totalCredits, String academicStanding, String status) {
+        this.studentName = studentName;
+        this.rollNumber = rollNumber;
+        this.courseName = courseName;
+        this.gpa = gpa;
+        this.totalCredits = totalCredits;
+        this.academicStanding = academicStanding;
+        this.status = status;
+    }
+    
+    // Getters
+    public String getStudentName() { return studentName; }
+    public String getRollNumber() { return rollNumber; }
+    public String getCourseName() { return courseName; }
+    public BigDecimal getGpa() { return gpa; }
+    public int getTotalCredits() { return totalCredits; }
+    public String getAcademicStanding() { return academicStanding; }
+    public String getStatus() { return status; }
+}
@@ -0,0 +1,29 @@
+/**
+ * One audited change to a student with the full row before and after it;
+ * before is null for a creation and after null for a deletion
+ */
+class StudentRevision {
+    private final long auditId;
+    private final int userId;
+    private final String action;
+    private final String timestamp;
+    private final Student before;
+    private final Student after;
+    
+    public StudentRevision(long auditId, int userId, String action, String timestamp,
+                           Student before, Student after) {
+        this.auditId = auditId;
+        this.userId = userId;
+        this.action = action;
+        this.timestamp = timestamp;
+        this.before = before;
+        this.after = after;
+    }
+    
+    public long getAuditId() { return auditId; }
+    public int getUserId() { return userId; }
+    public String getAction() { return action; }
+    public String getTimestamp() { return timestamp; }
+    public Student getBefore() { return before; }
+    public Student getAfter() { return after; }
+}
@@ -1,4 +1,3 @@
-import java.math.BigDecimal;
 import java.util.*;
 
 public class StudentStatistics {
@@ -11,6 +10,7 @@ public class StudentStatistics {
     private Map<String, Integer> academicStandingDistribution;
     private List<StudentPerformance> topPerformers;
     private List<StudentPerformance> atRiskStudents;
+    private int atRiskCount;
     private Map<String, Double> courseAverageGPAs;
     private Map<String, Integer> enrollmentTrends;
     
@@ -40,6 +40,10 @@ public class StudentStatistics {
     public Map<String, Integer> getAcademicStandingDistribution() { return academicStandingDistribution; }
     public List<StudentPerformance> getTopPerformers() { return topPerformers; }
     public List<StudentPerformance> getAtRiskStudents() { return atRiskStudents; }
+    
+    // The at-risk list may be capped; the count covers every at-risk student
+    public int getAtRiskCount() { return Math.max(atRiskCount, atRiskStudents.size()); }
+    public void setAtRiskCount(int atRiskCount) { this.atRiskCount = atRiskCount; }
     public Map<String, Double> getCourseAverageGPAs() { return courseAverageGPAs; }
     public Map<String, Integer> getEnrollmentTrends() { return enrollmentTrends; }
     
@@ -113,7 +117,7 @@ public class StudentStatistics {
     }
     
     public String getAcademicHealthStatus() {
-        int atRiskCount = atRiskStudents.size();
+        int atRiskCount = getAtRiskCount();
         double atRiskPercentage = (double) atRiskCount / totalStudents * 100;
         
         if (atRiskPercentage <= 10) return "HEALTHY";
@@ -176,7 +180,7 @@ public class StudentStatistics {
         report.put("leastPopularCourse", getLeastPopularCourse());
         report.put("genderRatio", getGenderRatio());
         report.put("topPerformersCount", topPerformers.size());
-        report.put("atRiskStudentsCount", atRiskStudents.size());
+        report.put("atRiskStudentsCount", getAtRiskCount());
         
         // Recommendations
         report.put("recommendations", getRecommendations());
@@ -244,9 +248,9 @@ public class StudentStatistics {
         if (!atRiskStudents.isEmpty()) {
             report.append("AT-RISK STUDENTS:\n");
             report.append("-----------------\n");
-            report.append("Total: ").append(atRiskStudents.size()).append(" students\n");
+            report.append("Total: ").append(getAtRiskCount()).append(" students\n");
             report.append("Percentage: ").append(String.format("%.1f", 
-                (double) atRiskStudents.size() / totalStudents * 100)).append("%\n\n");
+                (double) getAtRiskCount() / totalStudents * 100)).append("%\n\n");
         }
         
         // Recommendations
@@ -263,36 +267,3 @@ public class StudentStatistics {
         return report.toString();
     }
 }
-
-/**
- * Student performance class for tracking individual student performance
- */
-class StudentPerformance {
-    private String studentName;
-    private String rollNumber;
-    private String courseName;
-    private BigDecimal gpa;
-    private int totalCredits;
-    private String academicStanding;
-    private String status;
-    
-    public StudentPerformance(String studentName, String rollNumber, String courseName, 
-                            BigDecimal gpa, int totalCredits, String academicStanding, String status) {
-        this.studentName = studentName;
-        this.rollNumber = rollNumber;
-        this.courseName = courseName;
-        this.gpa = gpa;
-        this.totalCredits = totalCredits;
-        this.academicStanding = academicStanding;
-        this.status = status;
-    }
-    
-    // Getters
-    public String getStudentName() { return studentName; }
-    public String getRollNumber() { return rollNumber; }
-    public String getCourseName() { return courseName; }
-    public BigDecimal getGpa() { return gpa; }
-    public int getTotalCredits() { return totalCredits; }
-    public String getAcademicStanding() { return academicStanding; }
-    public String getStatus() { return status; }
-}
@@ -0,0 +1,311 @@
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves StudentStatistics from the student_stats_summary table, which triggers on
+ * students and student_grades keep up to date on every insert, update and delete.
+ * Loading statistics therefore costs O(#groups) rather than O(#students); the student
+ * lists are capped top-N queries. The result is also cached until the students or
+ * courses version counter (bumped by triggers) changes.
+ */
+public class StudentStatisticsEngine {
+    private static final int TOP_PERFORMER_LIMIT = 10;
+    private static final int AT_RISK_LIMIT = 100;
+    private static final String AT_RISK_STANDING = "Academic Probation";
+    private static final String AT_RISK_GPA = "2.0";
+    
+    private static final String TOP_PERFORMERS = """
+        SELECT s.name, s.roll_number, c.name AS course_name, s.gpa, s.total_credits, s.status
+        FROM students s
+        LEFT JOIN courses c ON s.course_id = c.id
+        WHERE s.status = 'ACTIVE' AND s.gpa > 0
+        ORDER BY s.gpa DESC
+        LIMIT ?
+        """;
+    
+    private static final String AT_RISK = """
+        SELECT s.name, s.roll_number, c.name AS course_name, s.gpa, s.total_credits, s.status
+        FROM students s
+        LEFT JOIN courses c ON s.course_id = c.id
+        WHERE s.status = 'ACTIVE' AND s.gpa > 0 AND s.gpa < ?
+        ORDER BY s.gpa ASC
+        LIMIT ?
+        """;
+    
+    private final ConnectionPool connectionPool;
+    private final WriteTransactionRunner writeTransactions;
+    private final Object refreshLock = new Object();
+    private volatile StudentStatistics cachedStatistics;
+    private volatile long cachedVersion = -1;
+    private ScheduledExecutorService consistencyChecker;
+    
+    public StudentStatisticsEngine(ConnectionPool connectionPool, WriteTransactionRunner writeTransactions) {
+        this.connectionPool = connectionPool;
+        this.writeTransactions = writeTransactions;
+    }
+    
+    /**
+     * Cached statistics, reloaded only if students or courses changed since the last call
+     */
+    public StudentStatistics getStatistics() throws SQLException {
+        try (Connection conn = connectionPool.acquireRead()) {
+            long version = readVersion(conn);
+            StudentStatistics cached = cachedStatistics;
+            if (cached != null && version == cachedVersion) {
+                return cached;
+            }
+            
+            // One thread reloads; the others wait and reuse its result
+            synchronized (refreshLock) {
+                if (cachedStatistics != null && version == cachedVersion) {
+                    return cachedStatistics;
+                }
+                StudentStatistics fresh = load(conn);
+                cachedStatistics = fresh;
+                cachedVersion = version;
+                return fresh;
+            }
+        }
+    }
+    
+    /**
+     * Drop the cached result, e.g. after a bulk change made with triggers disabled
+     */
+    public void invalidate() {
+        cachedVersion = -1;
+    }
+    
+    /**
+     * Both counters only grow, so their sum changes whenever either table does; course
+     * renames must reload too, since the student lists carry course names
+     */
+    private long readVersion(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT COALESCE(SUM(version), 0) FROM data_versions WHERE name IN ('students', 'courses')");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+    
+    private StudentStatistics load(Connection conn) throws SQLException {
+        StudentStatistics stats = new StudentStatistics();
+        
+        Map<Integer, String> courseNames = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT id, name, is_active FROM courses");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                courseNames.put(rs.getInt("id"), rs.getString("name"));
+                // Active courses with no active students still show up with a count of zero
+                if (rs.getBoolean("is_active")) {
+                    stats.addCourseDistribution(rs.getString("name"), 0);
+                }
+            }
+        }
+        
+        Map<String, Integer> ageRanges = new LinkedHashMap<>();
+        Map<String, Integer> enrollment = new TreeMap<>();
+        int currentYear = LocalDate.now().getYear();
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT dimension, bucket, student_count, gpa_sum, gpa_count FROM student_stats_summary " +
+                "WHERE dimension <> 'subject' AND student_count > 0");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                String bucket = rs.getString("bucket");
+                int count = rs.getInt("student_count");
+                double gpaSum = rs.getDouble("gpa_sum");
+                int gpaCount = rs.getInt("gpa_count");
+                
+                switch (rs.getString("dimension")) {
+                    case "status":
+                        stats.addStatusDistribution(bucket, count);
+                        if (Student.STATUS_ACTIVE.equals(bucket)) {
+                            stats.setTotalStudents(count);
+                            stats.setAverageGPA(gpaCount == 0 ? 0.0 : gpaSum / gpaCount);
+                        }
+                        break;
+                    case "course":
+                        String course = courseNames.get(Integer.valueOf(bucket));
+                        if (course != null) {
+                            stats.addCourseDistribution(course, count);
+                            if (gpaCount > 0) {
+                                stats.addCourseAverageGPA(course, gpaSum / gpaCount);
+                            }
+                        }
+                        break;
+                    case "gender":
+                        stats.addGenderDistribution(bucket, count);
+                        break;
+                    case "standing":
+                        stats.addAcademicStandingDistribution(bucket, count);
+                        if (AT_RISK_STANDING.equals(bucket)) {
+                            stats.setAtRiskCount(count);
+                        }
+                        break;
+                    case "birth_year":
+                        ageRanges.merge(ageRange(bucket, currentYear), count, Integer::sum);
+                        break;
+                    case "enrolled_month":
+                        enrollment.merge(bucket, count, Integer::sum);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        ageRanges.forEach(stats::addAgeDistribution);
+        enrollment.forEach(stats::addEnrollmentTrend);
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(TOP_PERFORMERS)) {
+            pstmt.setInt(1, TOP_PERFORMER_LIMIT);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    stats.addTopPerformer(mapPerformance(rs));
+                }
+            }
+        }
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(AT_RISK)) {
+            pstmt.setBigDecimal(1, new BigDecimal(AT_RISK_GPA));
+            pstmt.setInt(2, AT_RISK_LIMIT);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    stats.addAtRiskStudent(mapPerformance(rs));
+                }
+            }
+        }
+        
+        return stats;
+    }
+    
+    /**
+     * Average grade points per subject id, from the same summary table
+     */
+    public Map<Integer, Double> getSubjectGradeAverages() throws SQLException {
+        Map<Integer, Double> averages = new HashMap<>();
+        try (Connection conn = connectionPool.acquireRead();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "SELECT bucket, gpa_sum, gpa_count FROM student_stats_summary " +
+                 "WHERE dimension = 'subject' AND gpa_count > 0");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                averages.put(Integer.valueOf(rs.getString("bucket")), rs.getDouble("gpa_sum") / rs.getInt("gpa_count"));
+            }
+        }
+        return averages;
+    }
+    
+    /**
+     * Rebuild the summary from the base tables, diff it against the trigger-maintained
+     * rows and replace them if they drifted. Holds the writer for one full scan.
+     *
+     * @return number of summary rows that differed
+     */
+    public int verifySummary() throws SQLException {
+        int mismatches = writeTransactions.run(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP TABLE IF EXISTS temp.student_stats_expected");
+                stmt.execute("CREATE TEMP TABLE student_stats_expected AS " + SchemaMigrator.summaryRebuildQuery());
+                
+                // GPA sums are compared with a tolerance: incremental float updates drift slightly
+                int drifted = 0;
+                String diff = """
+                    SELECT a.dimension, a.bucket, a.student_count AS actual, e.student_count AS expected
+                    FROM student_stats_summary a
+                    LEFT JOIN temp.student_stats_expected e ON e.dimension = a.dimension AND e.bucket = a.bucket
+                    WHERE (a.student_count <> 0 OR a.gpa_count <> 0)
+                      AND (e.dimension IS NULL OR e.student_count <> a.student_count
+                           OR e.gpa_count <> a.gpa_count OR ABS(e.gpa_sum - a.gpa_sum) > 0.000001)
+                    UNION ALL
+                    SELECT e.dimension, e.bucket, NULL, e.student_count
+                    FROM temp.student_stats_expected e
+                    LEFT JOIN student_stats_summary a ON a.dimension = e.dimension AND a.bucket = e.bucket
+                    WHERE a.dimension IS NULL
+                    """;
+                try (ResultSet rs = stmt.executeQuery(diff)) {
+                    while (rs.next()) {
+                        drifted++;
+                        System.err.println("Statistics summary drift: " + rs.getString("dimension") + "/"
+                            + rs.getString("bucket") + " actual=" + rs.getString("actual")
+                            + " expected=" + rs.getString("expected"));
+                    }
+                }
+                
+                if (drifted > 0) {
+                    stmt.execute("DELETE FROM student_stats_summary");
+                    stmt.execute("INSERT INTO student_stats_summary SELECT * FROM temp.student_stats_expected");
+                }
+                stmt.execute("DROP TABLE temp.student_stats_expected");
+                return drifted;
+            }
+        });
+        if (mismatches > 0) {
+            invalidate();
+        }
+        return mismatches;
+    }
+    
+    /**
+     * Run verifySummary() periodically on a background thread
+     */
+    public synchronized void scheduleConsistencyCheck(long intervalHours) {
+        if (intervalHours <= 0 || consistencyChecker != null) {
+            return;
+        }
+        consistencyChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stats-consistency-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        consistencyChecker.scheduleAtFixedRate(() -> {
+            try {
+                int mismatches = verifySummary();
+                System.out.println("Statistics summary check: " + mismatches + " mismatched rows");
+            } catch (SQLException e) {
+                System.err.println("Statistics summary check failed: " + e.getMessage());
+            }
+        }, intervalHours, intervalHours, TimeUnit.HOURS);
+    }
+    
+    public synchronized void shutdown() {
+        if (consistencyChecker != null) {
+            consistencyChecker.shutdownNow();
+            consistencyChecker = null;
+        }
+    }
+    
+    private static String ageRange(String birthYear, int currentYear) {
+        int age;
+        try {
+            age = currentYear - Integer.parseInt(birthYear);
+        } catch (NumberFormatException e) {
+            return "Unknown";
+        }
+        if (age < 18) return "Under 18";
+        else if (age <= 20) return "18-20";
+        else if (age <= 24) return "21-24";
+        else if (age <= 29) return "25-29";
+        else return "30+";
+    }
+    
+    private static StudentPerformance mapPerformance(ResultSet rs) throws SQLException {
+        BigDecimal gpa = rs.getBigDecimal("gpa");
+        Student probe = new Student();
+        probe.setGpa(gpa);
+        return new StudentPerformance(rs.getString("name"), rs.getString("roll_number"),
+            rs.getString("course_name"), gpa, rs.getInt("total_credits"),
+            probe.getAcademicStanding(), rs.getString("status"));
+    }
+}
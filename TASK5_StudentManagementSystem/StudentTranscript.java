@@ -0,0 +1,43 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One student's header details and grade lines, in semester order
+ */
+class StudentTranscript {
+    final int studentId;
+    final String rollNumber;
+    final String name;
+    final String status;
+    final String courseCode;
+    final String courseName;
+    final List<GradeLine> lines = new ArrayList<>();
+    
+    StudentTranscript(int studentId, String rollNumber, String name, String status,
+                      String courseCode, String courseName) {
+        this.studentId = studentId;
+        this.rollNumber = rollNumber;
+        this.name = name;
+        this.status = status;
+        this.courseCode = courseCode;
+        this.courseName = courseName;
+    }
+    
+    /**
+     * Lines split into consecutive runs of the same semester and academic year
+     */
+    List<List<GradeLine>> semesters() {
+        List<List<GradeLine>> semesters = new ArrayList<>();
+        List<GradeLine> current = null;
+        for (GradeLine line : lines) {
+            if (current == null || current.get(0).semester != line.semester
+                || !Objects.equals(current.get(0).academicYear, line.academicYear)) {
+                current = new ArrayList<>();
+                semesters.add(current);
+            }
+            current.add(line);
+        }
+        return semesters;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Immutable row of the subjects table
+ */
+class Subject {
+    private final int id;
+    private final String code;
+    private final String name;
+    private final int credits;
+    private final int courseId;
+    private final int semester;
+    private final boolean core;
+    private final boolean active;
+    
+    public Subject(int id, String code, String name, int credits, int courseId, int semester,
+                   boolean core, boolean active) {
+        this.id = id;
+        this.code = code;
+        this.name = name;
+        this.credits = credits;
+        this.courseId = courseId;
+        this.semester = semester;
+        this.core = core;
+        this.active = active;
+    }
+    
+    public int getId() { return id; }
+    public String getCode() { return code; }
+    public String getName() { return name; }
+    public int getCredits() { return credits; }
+    public int getCourseId() { return courseId; }
+    public int getSemester() { return semester; }
+    public boolean isCore() { return core; }
+    public boolean isActive() { return active; }
+    
+    @Override
+    public String toString() {
+        return code + " " + name;
+    }
+}
@@ -0,0 +1,450 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Produces per-student transcripts (plain text and self-contained HTML) for a whole
+ * cohort into one zip file. Grades are streamed in a single query ordered by student,
+ * and grouped on the fly, so only the students in flight are held in memory. Rendering
+ * runs on a worker pool fed through a bounded queue; a single writer thread drains the
+ * rendered files into the zip. Both queues are bounded, so a slow disk throttles the
+ * renderers and slow renderers throttle the query instead of buffering the cohort.
+ */
+public class TranscriptGenerator {
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    private static final int PROGRESS_INTERVAL_STUDENTS = 100;
+    private static final long HAND_OFF_POLL_MS = 100;
+    
+    private static final String GRADES_QUERY = """
+        SELECT s.id, s.roll_number, s.name, s.status, c.code, c.name,
+               g.semester, g.academic_year, sub.code, sub.name, sub.credits,
+               g.marks_obtained, g.max_marks, g.grade, g.grade_points
+        FROM student_grades g
+        JOIN students s ON s.id = g.student_id
+        LEFT JOIN courses c ON c.id = s.course_id
+        LEFT JOIN subjects sub ON sub.id = g.subject_id
+        """;
+    
+    /**
+     * Called on the zip writer thread as transcripts are written
+     */
+    public interface ProgressListener {
+        void onProgress(long studentsWritten, long totalStudents);
+    }
+    
+    private final DatabaseManager dbManager;
+    private final int threads;
+    private final int queueCapacity;
+    private final int fetchSize;
+    private final Integer generatedBy;
+    private volatile boolean cancelled;
+    
+    public TranscriptGenerator(DatabaseManager dbManager, int threads, int queueCapacity,
+                               int fetchSize, Integer generatedBy) {
+        this.dbManager = dbManager;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.fetchSize = Math.max(1, fetchSize);
+        this.generatedBy = generatedBy;
+    }
+    
+    /**
+     * Stop after the transcripts in flight; the partial zip is deleted
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    /**
+     * Write transcripts for every graded student, or only those in courseId when it is not null
+     */
+    public TranscriptReport generate(Path target, Integer courseId, ProgressListener listener)
+            throws IOException, SQLException {
+        long startNanos = System.nanoTime();
+        Path partFile = target.resolveSibling(target.getFileName() + ".part");
+        String filter = courseId != null ? "WHERE s.course_id = ? " : "";
+        
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        BlockingQueue<RenderedTranscript> rendered = new ArrayBlockingQueue<>(queueCapacity);
+        // Caller-runs: when the render queue is full the reading thread renders too, which slows the query
+        ThreadPoolExecutor renderers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), r -> {
+                Thread t = new Thread(r, "transcript-render");
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+        
+        long students = 0;
+        ZipWriter writer = null;
+        try (Connection conn = dbManager.getReadConnection()) {
+            long totalStudents = countStudents(conn, filter, courseId);
+            writer = new ZipWriter(partFile, rendered, failure, totalStudents, listener);
+            writer.start();
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(GRADES_QUERY + filter
+                     + "ORDER BY g.student_id, g.semester, g.academic_year, sub.code",
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(fetchSize);
+                if (courseId != null) {
+                    pstmt.setInt(1, courseId);
+                }
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    StudentTranscript current = null;
+                    while (!cancelled && failure.get() == null && rs.next()) {
+                        int studentId = rs.getInt(1);
+                        if (current == null || current.studentId != studentId) {
+                            if (current != null) {
+                                submit(renderers, current, rendered, failure);
+                                students++;
+                            }
+                            current = new StudentTranscript(studentId, rs.getString(2), rs.getString(3),
+                                rs.getString(4), rs.getString(5), rs.getString(6));
+                        }
+                        current.lines.add(readLine(rs));
+                    }
+                    if (current != null && !cancelled && failure.get() == null) {
+                        submit(renderers, current, rendered, failure);
+                        students++;
+                    }
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            cancelled = true;
+            awaitQuietly(renderers);
+            if (writer != null) {
+                writer.finish();
+            }
+            Files.deleteIfExists(partFile);
+            throw e;
+        }
+        
+        awaitQuietly(renderers);
+        writer.finish();
+        Throwable error = failure.get();
+        if (error != null || cancelled) {
+            Files.deleteIfExists(partFile);
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            } else if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else if (error != null) {
+                throw new IOException("Transcript generation failed", error);
+            }
+        } else {
+            Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        
+        TranscriptReport report = new TranscriptReport(cancelled ? writer.written : students,
+            cancelled ? 0 : Files.size(target), System.nanoTime() - startNanos, cancelled);
+        System.out.println("Transcript generation " + (cancelled ? "cancelled: " : "finished: ") + report);
+        
+        if (generatedBy != null && !cancelled) {
+            dbManager.logAuditTrail(generatedBy, "TRANSCRIPTS", "student_grades", null, null,
+                "file=" + target.getFileName() + (courseId != null ? ", course=" + courseId : "") + ", " + report,
+                null, null);
+        }
+        return report;
+    }
+    
+    private static long countStudents(Connection conn, String filter, Integer courseId) throws SQLException {
+        String sql = "SELECT COUNT(DISTINCT g.student_id) FROM student_grades g JOIN students s ON s.id = g.student_id "
+                   + filter;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            if (courseId != null) {
+                pstmt.setInt(1, courseId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+    
+    private static GradeLine readLine(ResultSet rs) throws SQLException {
+        GradeLine line = new GradeLine();
+        line.semester = rs.getInt(7);
+        line.academicYear = rs.getString(8);
+        line.subjectCode = rs.getString(9);
+        line.subjectName = rs.getString(10);
+        line.credits = rs.getInt(11);
+        line.marksObtained = rs.getBigDecimal(12);
+        line.maxMarks = rs.getBigDecimal(13);
+        line.grade = rs.getString(14);
+        line.gradePoints = rs.getBigDecimal(15);
+        return line;
+    }
+    
+    private void submit(ThreadPoolExecutor renderers, StudentTranscript transcript,
+                        BlockingQueue<RenderedTranscript> rendered, AtomicReference<Throwable> failure) {
+        renderers.execute(() -> {
+            try {
+                RenderedTranscript output = new RenderedTranscript(fileName(transcript),
+                    renderText(transcript).getBytes(StandardCharsets.UTF_8),
+                    renderHtml(transcript).getBytes(StandardCharsets.UTF_8));
+                // Poll so a failed or cancelled writer cannot leave renderers blocked forever
+                while (!cancelled && failure.get() == null
+                       && !rendered.offer(output, HAND_OFF_POLL_MS, TimeUnit.MILLISECONDS)) {
+                    // Queue full: wait for the writer
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+    }
+    
+    private static void awaitQuietly(ThreadPoolExecutor renderers) {
+        renderers.shutdown();
+        try {
+            while (!renderers.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Renderers drain once the writer consumes or fails
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            renderers.shutdownNow();
+        }
+    }
+    
+    private static String fileName(StudentTranscript t) {
+        String base = t.rollNumber != null ? t.rollNumber : "student-" + t.studentId;
+        return base.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+    
+    static String renderText(StudentTranscript t) {
+        StringBuilder out = new StringBuilder(4096);
+        out.append("ACADEMIC TRANSCRIPT\n");
+        out.append("===================\n\n");
+        out.append(String.format("Name:        %s\n", nullToEmpty(t.name)));
+        out.append(String.format("Roll number: %s\n", nullToEmpty(t.rollNumber)));
+        out.append(String.format("Course:      %s\n", courseLabel(t)));
+        out.append(String.format("Status:      %s\n", nullToEmpty(t.status)));
+        out.append(String.format("Issued:      %s\n", LocalDate.now()));
+        
+        GpaTally cumulative = new GpaTally();
+        for (List<GradeLine> semester : t.semesters()) {
+            GradeLine first = semester.get(0);
+            out.append(String.format("\nSemester %d (%s)\n", first.semester, nullToEmpty(first.academicYear)));
+            out.append(String.format("%-10s %-36s %7s %13s %5s %6s\n",
+                "Code", "Subject", "Credits", "Marks", "Grade", "Points"));
+            GpaTally term = new GpaTally();
+            for (GradeLine line : semester) {
+                out.append(String.format("%-10s %-36s %7d %13s %5s %6s\n",
+                    nullToEmpty(line.subjectCode), truncate(nullToEmpty(line.subjectName), 36), line.credits,
+                    marks(line), nullToEmpty(line.grade), decimal(line.gradePoints)));
+                term.add(line);
+                cumulative.add(line);
+            }
+            out.append(String.format("Semester GPA: %s   Credits earned: %d\n", term.gpa(), term.creditsEarned));
+        }
+        
+        out.append(String.format("\nCumulative GPA: %s\n", cumulative.gpa()));
+        out.append(String.format("Total credits earned: %d\n", cumulative.creditsEarned));
+        return out.toString();
+    }
+    
+    static String renderHtml(StudentTranscript t) {
+        StringBuilder out = new StringBuilder(8192);
+        out.append("<!DOCTYPE html>\n<html lang=\"en\"><head><meta charset=\"UTF-8\">");
+        out.append("<title>Transcript - ").append(html(t.name)).append("</title>");
+        out.append("<style>body{font-family:sans-serif;margin:2em}table{border-collapse:collapse;width:100%;")
+           .append("margin-bottom:.5em}th,td{border:1px solid #ccc;padding:4px 8px;text-align:left}")
+           .append("th{background:#f0f0f0}td.n{text-align:right}.summary{font-weight:bold}</style></head><body>\n");
+        out.append("<h1>Academic Transcript</h1>\n<table>");
+        out.append("<tr><th>Name</th><td>").append(html(t.name)).append("</td></tr>");
+        out.append("<tr><th>Roll number</th><td>").append(html(t.rollNumber)).append("</td></tr>");
+        out.append("<tr><th>Course</th><td>").append(html(courseLabel(t))).append("</td></tr>");
+        out.append("<tr><th>Status</th><td>").append(html(t.status)).append("</td></tr>");
+        out.append("<tr><th>Issued</th><td>").append(LocalDate.now()).append("</td></tr></table>\n");
+        
+        GpaTally cumulative = new GpaTally();
+        for (List<GradeLine> semester : t.semesters()) {
+            GradeLine first = semester.get(0);
+            out.append("<h2>Semester ").append(first.semester).append(" (")
+               .append(html(first.academicYear)).append(")</h2>\n");
+            out.append("<table><tr><th>Code</th><th>Subject</th><th>Credits</th><th>Marks</th>")
+               .append("<th>Grade</th><th>Points</th></tr>");
+            GpaTally term = new GpaTally();
+            for (GradeLine line : semester) {
+                out.append("<tr><td>").append(html(line.subjectCode))
+                   .append("</td><td>").append(html(line.subjectName))
+                   .append("</td><td class=\"n\">").append(line.credits)
+                   .append("</td><td class=\"n\">").append(html(marks(line)))
+                   .append("</td><td>").append(html(line.grade))
+                   .append("</td><td class=\"n\">").append(decimal(line.gradePoints)).append("</td></tr>");
+                term.add(line);
+                cumulative.add(line);
+            }
+            out.append("</table><p class=\"summary\">Semester GPA: ").append(term.gpa())
+               .append(" &middot; Credits earned: ").append(term.creditsEarned).append("</p>\n");
+        }
+        
+        out.append("<h2>Summary</h2><p class=\"summary\">Cumulative GPA: ").append(cumulative.gpa())
+           .append(" &middot; Total credits earned: ").append(cumulative.creditsEarned).append("</p>\n");
+        out.append("</body></html>\n");
+        return out.toString();
+    }
+    
+    private static String courseLabel(StudentTranscript t) {
+        if (t.courseCode == null) {
+            return nullToEmpty(t.courseName);
+        }
+        return t.courseCode + (t.courseName != null ? " - " + t.courseName : "");
+    }
+    
+    private static String marks(GradeLine line) {
+        return decimal(line.marksObtained) + " / " + decimal(line.maxMarks);
+    }
+    
+    private static String decimal(BigDecimal value) {
+        return value == null ? "-" : value.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+    
+    private static String truncate(String value, int length) {
+        return value.length() <= length ? value : value.substring(0, length - 1) + "~";
+    }
+    
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+    
+    private static String html(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder escaped = new StringBuilder(value.length() + 16);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<': escaped.append("&lt;"); break;
+                case '>': escaped.append("&gt;"); break;
+                case '&': escaped.append("&amp;"); break;
+                case '"': escaped.append("&quot;"); break;
+                case '\'': escaped.append("&#39;"); break;
+                default: escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+    
+    /**
+     * Credit-weighted GPA accumulator, using the same rules as GpaEngine
+     */
+    private static final class GpaTally {
+        private BigDecimal weightedPoints = BigDecimal.ZERO;
+        private int gradedCredits;
+        private int creditsEarned;
+        
+        void add(GradeLine line) {
+            if (line.gradePoints == null) {
+                return;
+            }
+            weightedPoints = weightedPoints.add(line.gradePoints.multiply(BigDecimal.valueOf(line.credits)));
+            gradedCredits += line.credits;
+            if (line.gradePoints.signum() > 0) {
+                creditsEarned += line.credits;
+            }
+        }
+        
+        String gpa() {
+            if (gradedCredits == 0) {
+                return "0.00";
+            }
+            return weightedPoints.divide(BigDecimal.valueOf(gradedCredits), 2, RoundingMode.HALF_UP).toPlainString();
+        }
+    }
+    
+    /**
+     * Single thread that owns the zip stream; ZipOutputStream is not thread-safe
+     */
+    private final class ZipWriter extends Thread {
+        private final Path file;
+        private final BlockingQueue<RenderedTranscript> rendered;
+        private final AtomicReference<Throwable> failure;
+        private final long totalStudents;
+        private final ProgressListener listener;
+        private volatile boolean producing = true;
+        private volatile long written;
+        
+        ZipWriter(Path file, BlockingQueue<RenderedTranscript> rendered, AtomicReference<Throwable> failure,
+                  long totalStudents, ProgressListener listener) {
+            super("transcript-zip");
+            setDaemon(true);
+            this.file = file;
+            this.rendered = rendered;
+            this.failure = failure;
+            this.totalStudents = totalStudents;
+            this.listener = listener;
+        }
+        
+        @Override
+        public void run() {
+            try (ZipOutputStream zip = new ZipOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(file), OUTPUT_BUFFER_SIZE))) {
+                // Compression is the one serial stage; the fastest level keeps it off the critical path
+                zip.setLevel(Deflater.BEST_SPEED);
+                while (!cancelled && failure.get() == null) {
+                    RenderedTranscript next = rendered.poll(HAND_OFF_POLL_MS, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        if (!producing && rendered.isEmpty()) {
+                            break;
+                        }
+                        continue;
+                    }
+                    writeEntry(zip, next.name + ".txt", next.text);
+                    writeEntry(zip, next.name + ".html", next.html);
+                    written++;
+                    if (listener != null && written % PROGRESS_INTERVAL_STUDENTS == 0) {
+                        listener.onProgress(written, totalStudents);
+                    }
+                }
+                if (listener != null && !cancelled && failure.get() == null) {
+                    listener.onProgress(written, totalStudents);
+                }
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } catch (InterruptedException e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+        
+        private void writeEntry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+            zip.putNextEntry(new ZipEntry(name));
+            zip.write(content);
+            zip.closeEntry();
+        }
+        
+        /**
+         * Called once every renderer has finished; waits for the queue to drain
+         */
+        void finish() {
+            producing = false;
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+}
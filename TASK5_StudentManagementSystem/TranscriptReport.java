@@ -0,0 +1,31 @@
+/**
+ * Outcome of a finished or cancelled transcript run
+ */
+class TranscriptReport {
+    private final long students;
+    private final long bytes;
+    private final long elapsedNanos;
+    private final boolean cancelled;
+    
+    public TranscriptReport(long students, long bytes, long elapsedNanos, boolean cancelled) {
+        this.students = students;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+        this.cancelled = cancelled;
+    }
+    
+    public long getStudents() { return students; }
+    public long getBytes() { return bytes; }
+    public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+    public boolean isCancelled() { return cancelled; }
+    
+    public double getStudentsPerSecond() {
+        return elapsedNanos > 0 ? students * 1_000_000_000.0 / elapsedNanos : 0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("students=%d bytes=%d in %.1fs (%.0f students/s)",
+            students, bytes, elapsedNanos / 1e9, getStudentsPerSecond());
+    }
+}
@@ -0,0 +1,17 @@
+import java.sql.SQLException;
+
+/**
+ * SQLException carried through a java.util.stream pipeline
+ */
+class UncheckedSqlException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    public UncheckedSqlException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+    
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
@@ -0,0 +1,68 @@
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * User session class for managing active sessions
+ */
+class UserSession {
+    private final User user;
+    private final String sessionToken;
+    private final String ipAddress;
+    private final String userAgent;
+    private final LocalDateTime createdAt;
+    // Resolved once from the role, so permission checks need no lookups
+    private final long permissionMask;
+    // Monotonic clock, so checking and extending a session allocate nothing
+    private volatile long lastActivityNanos;
+    
+    static final long TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(AuthenticationManager.SESSION_TIMEOUT_MINUTES);
+    private static final AtomicLongFieldUpdater<UserSession> LAST_ACTIVITY =
+        AtomicLongFieldUpdater.newUpdater(UserSession.class, "lastActivityNanos");
+    
+    public UserSession(User user, String sessionToken, String ipAddress, String userAgent) {
+        this.user = user;
+        this.sessionToken = sessionToken;
+        this.ipAddress = ipAddress;
+        this.userAgent = userAgent;
+        this.createdAt = LocalDateTime.now();
+        this.permissionMask = Permission.maskForRole(user.getRole());
+        this.lastActivityNanos = System.nanoTime();
+    }
+    
+    public boolean isExpired() {
+        return System.nanoTime() - lastActivityNanos > TIMEOUT_NANOS;
+    }
+    
+    /**
+     * Record activity. A lazy set skips the full fence of a volatile write on the
+     * request path; the store still reaches the expiry thread in order, and the wheel
+     * only looks at a session once its old deadline has passed.
+     */
+    public void extendSession() {
+        LAST_ACTIVITY.lazySet(this, System.nanoTime());
+    }
+    
+    /**
+     * System.nanoTime() value after which the session is expired
+     */
+    public long getDeadlineNanos() {
+        return lastActivityNanos + TIMEOUT_NANOS;
+    }
+    
+    public boolean hasPermission(Permission permission) {
+        return permission.isGrantedBy(permissionMask);
+    }
+    
+    public long getPermissionMask() { return permissionMask; }
+    
+    // Getters
+    public User getUser() { return user; }
+    public String getSessionToken() { return sessionToken; }
+    public String getIpAddress() { return ipAddress; }
+    public String getUserAgent() { return userAgent; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getLastActivity() {
+        return LocalDateTime.now().minusNanos(System.nanoTime() - lastActivityNanos);
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * Validation result class for student data validation
+ */
+class ValidationResult {
+    private boolean isValid = true;
+    private java.util.List<String> errors = new java.util.ArrayList<>();
+    
+    public void addError(String error) {
+        this.isValid = false;
+        this.errors.add(error);
+    }
+    
+    public boolean isValid() { return isValid; }
+    
+    public java.util.List<String> getErrors() { return errors; }
+    
+    public String getErrorMessage() {
+        return String.join("; ", errors);
+    }
+}
@@ -0,0 +1,28 @@
+import java.nio.file.Path;
+
+/**
+ * Outcome of restoring a snapshot to a scratch file and checking it
+ */
+class VerificationResult {
+    private final Path snapshot;
+    private final boolean valid;
+    private final String message;
+    private final long studentCount;
+    
+    public VerificationResult(Path snapshot, boolean valid, String message, long studentCount) {
+        this.snapshot = snapshot;
+        this.valid = valid;
+        this.message = message;
+        this.studentCount = studentCount;
+    }
+    
+    public Path getSnapshot() { return snapshot; }
+    public boolean isValid() { return valid; }
+    public String getMessage() { return message; }
+    public long getStudentCount() { return studentCount; }
+    
+    @Override
+    public String toString() {
+        return snapshot.getFileName() + (valid ? ": verified, " + studentCount + " students" : ": INVALID - " + message);
+    }
+}
@@ -0,0 +1,136 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs units of work in a transaction on the pool's single writer connection. If
+ * SQLite reports SQLITE_BUSY or SQLITE_LOCKED (another process holds the lock past
+ * busy_timeout, or a deferred transaction could not upgrade its snapshot), the
+ * transaction is rolled back and the whole unit is replayed after a jittered
+ * exponential backoff. Work must therefore only touch the database: side effects
+ * outside it would be repeated on a retry.
+ *
+ * A call made while the thread already holds the writer joins the outer transaction;
+ * it neither commits nor retries, and the outer unit replays it on conflict.
+ */
+public class WriteTransactionRunner {
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+    
+    /**
+     * A unit of work run inside a write transaction
+     */
+    @FunctionalInterface
+    public interface TransactionWork<T> {
+        T execute(Connection conn) throws SQLException;
+    }
+    
+    private final ConnectionPool connectionPool;
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder aborts = new LongAdder();
+    
+    public WriteTransactionRunner(ConnectionPool connectionPool, int maxAttempts,
+                                  long baseDelayMillis, long maxDelayMillis) {
+        this.connectionPool = connectionPool;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = Math.max(1, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+    }
+    
+    /**
+     * Run work in a write transaction and commit it, retrying on lock conflicts
+     */
+    public <T> T run(TransactionWork<T> work) throws SQLException {
+        if (connectionPool.getCurrentWriter() != null) {
+            try (Connection conn = connectionPool.acquireWrite()) {
+                return work.execute(conn);
+            }
+        }
+        
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return runOnce(work);
+            } catch (SQLException e) {
+                if (!isBusy(e) || attempt >= maxAttempts) {
+                    aborts.increment();
+                    throw e;
+                }
+                retries.increment();
+                backOff(attempt, e);
+            }
+        }
+    }
+    
+    private <T> T runOnce(TransactionWork<T> work) throws SQLException {
+        try (Connection conn = connectionPool.acquireWrite()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                T result = work.execute(conn);
+                conn.commit();
+                commits.increment();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    System.err.println("Error rolling back write transaction: " + rollbackEx.getMessage());
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+    
+    /**
+     * Sleep a random time up to base * 2^attempt ("full jitter") so writers that
+     * collided do not wake up and collide again
+     */
+    private void backOff(int attempt, SQLException cause) throws SQLException {
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt, 20));
+        long delay = ThreadLocalRandom.current().nextLong(baseDelayMillis, ceiling + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            aborts.increment();
+            throw cause;
+        }
+    }
+    
+    /**
+     * True for SQLITE_BUSY / SQLITE_LOCKED and their extended codes anywhere in the cause chain
+     */
+    static boolean isBusy(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                int primaryCode = ((SQLException) t).getErrorCode() & 0xff;
+                if (primaryCode == SQLITE_BUSY || primaryCode == SQLITE_LOCKED) {
+                    return true;
+                }
+                String message = t.getMessage();
+                if (message != null && (message.contains("SQLITE_BUSY") || message.contains("SQLITE_LOCKED")
+                                        || message.contains("database is locked"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    public long getCommits() { return commits.sum(); }
+    public long getRetries() { return retries.sum(); }
+    public long getAborts() { return aborts.sum(); }
+    
+    @Override
+    public String toString() {
+        return String.format("WriteTransactions[commits=%d, retries=%d, aborts=%d]",
+            getCommits(), getRetries(), getAborts());
+    }
+}